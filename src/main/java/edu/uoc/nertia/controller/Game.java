@@ -1,15 +1,21 @@
 package edu.uoc.nertia.controller;
 
 import edu.uoc.nertia.model.cells.Cell;
-import edu.uoc.nertia.model.cells.Element;
 import edu.uoc.nertia.model.exceptions.LevelException;
 import edu.uoc.nertia.model.leaderboard.LeaderBoard;
 import edu.uoc.nertia.model.levels.Level;
-import edu.uoc.nertia.model.stack.StackItem;
+import edu.uoc.nertia.model.levels.LevelCache;
 import edu.uoc.nertia.model.levels.LevelDifficulty;
+import edu.uoc.nertia.model.levels.LevelHistory;
+import edu.uoc.nertia.model.levels.LevelMirror;
+import edu.uoc.nertia.model.levels.MoveEngine;
+import edu.uoc.nertia.model.levels.MoveOutcome;
+import edu.uoc.nertia.model.levels.MovePredictor;
+import edu.uoc.nertia.model.solver.HintCache;
+import edu.uoc.nertia.model.solver.Solvability;
+import edu.uoc.nertia.model.solver.SolvabilityMonitor;
 import edu.uoc.nertia.model.utils.Direction;
 import edu.uoc.nertia.model.utils.MoveResult;
-import edu.uoc.nertia.model.utils.Position;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -21,16 +27,35 @@ import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Controller class of the game. It is the middleware (or bridge) between the model and view classes.
  * <br/>
  * This class is called from the view classes in order to access/modify the model data.
+ * It runs some work in the background, so a game that is not played any more must be closed.
  *
  *  @author David García-Solórzano
  *  @version 1.0
 */
-public class Game {
+public class Game implements AutoCloseable {
+
+    /**
+     * Threads that load the next levels of the games in the background. They are daemons, so they never keep
+     * the application running.
+     */
+    private static final ExecutorService PREFETCHER = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "level-prefetcher");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * Name of the folder in which level files are
@@ -57,11 +82,53 @@ public class Game {
      */
     private Level level;
 
+    /**
+     * MoveEngine object that applies the player's moves to the current level.
+     */
+    private MoveEngine moveEngine;
+
+    /**
+     * LevelHistory object that records the moves and undos of the current level.
+     * It is {@code null} in games without undo, which cannot go back.
+     */
+    private LevelHistory history;
+
+    /**
+     * HintCache object shared by the games that play the current level.
+     */
+    private HintCache hints;
+
+    /**
+     * LevelMirror object that follows the actions of the player in the background, for the monitor and the predictor.
+     */
+    private LevelMirror mirror;
+
+    /**
+     * SolvabilityMonitor object that analyses the states of the current level in the background.
+     */
+    private SolvabilityMonitor monitor;
+
+    /**
+     * MovePredictor object that computes the outcomes of the next moves of the current level in the background.
+     */
+    private MovePredictor predictor;
+
+    /**
+     * Level {@code currentLevel + 1}, which is loaded in the background while the current one is played,
+     * or {@code null} if the current level is the last one.
+     */
+    private CompletableFuture<Level> nextLevel;
+
     /**
      * LeaderBoard object that manages the leaderboard of the game.
      */
     private LeaderBoard leaderBoard;
 
+    /**
+     * Whether the levels of this game record their moves so that they can be undone.
+     */
+    private boolean undoable = true;
+
     /**
      * Constructor
      *
@@ -115,6 +182,30 @@ public class Game {
         maxLevels = num;
     }
 
+    /**
+     * Creates a game whose levels do not record their moves, e.g. for simulations, replays and bots.
+     * Moves are faster because they are not recorded, {@link #undo()} and {@link #seek(int)} always return
+     * {@code false}, and the scores never have an undo penalty.
+     *
+     * @param fileFolder Folder name where the configuration/level files are.
+     * @return Game without undo.
+     * @throws IOException When there is a problem while retrieving number of levels
+     */
+    public static Game withoutUndo(String fileFolder) throws IOException {
+        Game game = new Game(fileFolder);
+        game.undoable = false;
+        return game;
+    }
+
+    /**
+     * Checks if the moves of this game can be undone.
+     *
+     * @return {@code false} if the game has been created with {@link #withoutUndo(String)}.
+     */
+    public boolean isUndoable() {
+        return undoable;
+    }
+
     /**
      * Setter of the attribute {@code fileFolder}.
      *
@@ -231,16 +322,111 @@ public class Game {
         return false;
     }
 
+    /**
+     * Checks if the next level has already been loaded in the background, so that {@link #nextLevel()} will not
+     * read its file.
+     *
+     * @return {@code true} if the next level is ready, {@code false} if it is still loading, it is wrong or the
+     * current level is the last one.
+     */
+    public boolean isNextLevelReady() {
+        return nextLevel != null && nextLevel.isDone() && !nextLevel.isCompletedExceptionally();
+    }
+
     /**
      * Loads a new level by using the value of the attribute {@code currentLevel}.
      *<p>
      * The pattern of the filename is: fileFolder+"level" + numberLevel + ".txt".
+     * If the level has already been loaded in the background, that instance is used. Otherwise, it is loaded
+     * here, and the file is only parsed if it is not in {@link LevelCache#shared()}. Then the loading of the
+     * following level starts in the background.
      * </p>
      *
      * @throws LevelException When there is a level exception/problem.
      */
     private void loadLevel() throws LevelException {
-        level = new Level(fileFolder + "level" + currentLevel + ".txt");
+        String fileName = fileFolder + "level" + currentLevel + ".txt";
+        //A wrong level is loaded again, so that its exception is thrown here.
+        level = isNextLevelReady() ? nextLevel.join() : LevelCache.shared().load(fileName, undoable);
+        prefetch();
+        hints = HintCache.forLevel(fileName, level);
+        closeMirror();
+        mirror = new LevelMirror(level);
+        predictor = new MovePredictor(mirror, MovePredictor.DEFAULT_CAPACITY);
+        monitor = new SolvabilityMonitor(mirror, SolvabilityMonitor.DEFAULT_MAX_STATES);
+        moveEngine = new MoveEngine(level);
+        history = undoable ? new LevelHistory(level, moveEngine, LevelHistory.DEFAULT_CHECKPOINT_INTERVAL) : null;
+    }
+
+    /**
+     * Stops the background analyses of the current level, if any.
+     */
+    private void closeMirror() {
+        if (mirror != null) {
+            mirror.close();
+            monitor.close();
+        }
+    }
+
+    /**
+     * Stops the background work of the game, i.e. the analyses of the current level and the loading of the next
+     * one. The game must not be played afterwards.
+     */
+    @Override
+    public void close() {
+        closeMirror();
+        if (nextLevel != null) {
+            nextLevel.cancel(false);
+        }
+    }
+
+    /**
+     * Waits until the background analyses of the current level have caught up with the player, e.g. in tests.
+     *
+     * @param timeout Maximum time to wait, in milliseconds.
+     * @return {@code true} if they have caught up, {@code false} if the time has run out.
+     * @throws InterruptedException When the thread is interrupted while waiting.
+     */
+    boolean awaitBackground(long timeout) throws InterruptedException {
+        return mirror.await(timeout);
+    }
+
+    /**
+     * Waits until the next level has been loaded in the background, e.g. in tests.
+     *
+     * @param timeout Maximum time to wait, in milliseconds.
+     * @return {@code true} if the next level is ready, as in {@link #isNextLevelReady()}.
+     * @throws InterruptedException When the thread is interrupted while waiting.
+     */
+    boolean awaitNextLevel(long timeout) throws InterruptedException {
+        if (nextLevel == null) {
+            return false;
+        }
+        try {
+            nextLevel.get(timeout, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (ExecutionException | TimeoutException | CancellationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Starts loading the level that follows the current one in the background.
+     */
+    private void prefetch() {
+        if (currentLevel >= maxLevels) {
+            nextLevel = null;
+            return;
+        }
+        String fileName = fileFolder + "level" + (currentLevel + 1) + ".txt";
+        boolean undoable = this.undoable;
+        nextLevel = CompletableFuture.supplyAsync(() -> {
+            try {
+                return LevelCache.shared().load(fileName, undoable);
+            } catch (LevelException e) {
+                throw new CompletionException(e);
+            }
+        }, PREFETCHER);
     }
 
     /**
@@ -267,20 +453,90 @@ public class Game {
     /**
      * Undo one move from the level's stack.
      *
-     * @return {@code true} if one move has been undone, otherwise {@code false} (e.g. the stack is empty).
+     * @return {@code true} if one move has been undone, otherwise {@code false} (e.g. the stack is empty or
+     * the game has been created with {@link #withoutUndo(String)}).
      * @throws LevelException When either the row or the column is wrong.
      */
     public boolean undo() throws LevelException{
-       return level.undo();
+        if (history != null && history.undo()) {
+            mirror.undone();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of actions (moves and undos) recorded in the history of the current level.
+     *
+     * @return Number of actions that can be reached with {@link #seek(int)}. It is 0 in games without undo.
+     */
+    public int getHistorySize() {
+        return history == null ? 0 : history.size();
+    }
+
+    /**
+     * Leaves the current level as it was after the given number of actions (moves and undos), e.g. to review
+     * the game. Seeking does not forget the actions after that point unless a new move or undo is done.
+     * Going back costs the same as undoing the moves in between: the score keeps the undo penalty.
+     *
+     * @param action Number of actions, from 0 to {@link #getHistorySize()}.
+     * @return {@code true} if the level has been moved to that point, {@code false} if it is out of the history
+     * or the game has been created with {@link #withoutUndo(String)}.
+     * @throws LevelException When there is a level exception/problem.
+     */
+    public boolean seek(int action) throws LevelException {
+        if (history != null && history.seekWithPenalty(action)) {
+            mirror.sought(action);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the current level can still be completed from its current state. The state is analysed
+     * in the background after each move, undo or seek, so this never waits for it.
+     *
+     * @return {@link Solvability#SOLVABLE} or {@link Solvability#DEAD_END} (only undoing or reloading helps),
+     * or {@link Solvability#UNKNOWN} while the last state is being analysed.
+     */
+    public Solvability getSolvability() {
+        return monitor.getSolvability();
+    }
+
+    /**
+     * Returns a fingerprint of the state of the current level (the player's cell and the remaining gems and
+     * extra lives), e.g. to detect repeated states. Equal states give the same value, even after a reload.
+     *
+     * @return 64-bit hash of the state.
+     */
+    public long stateHash() {
+        return level.stateHash();
+    }
+
+    /**
+     * Returns the next move of an optimal path from the current state of the level, e.g. after some undos or
+     * a death. Hints are cached by state and shared with the other games that play the same level.
+     *
+     * @return Direction to move in, or {@code null} if the level cannot be completed any more or is completed.
+     */
+    public Direction hint() {
+        return hints.hint(level);
     }
 
     /**
      * Reloads the current level, i.e. load the level again.
+     * <p>
+     * The file is not read again: a new session of the same {@link edu.uoc.nertia.model.levels.LevelTemplate}
+     * is started in O(1), and the background copy of the level goes back to its initial state.
+     * </p>
      *
      * @throws LevelException When there is a level exception/problem.
      */
     public void reload() throws LevelException {
-        loadLevel();
+        level = level.newSession();
+        moveEngine = new MoveEngine(level);
+        history = undoable ? new LevelHistory(level, moveEngine, LevelHistory.DEFAULT_CHECKPOINT_INTERVAL) : null;
+        mirror.sought(0);
     }
 
     /**
@@ -289,90 +545,37 @@ public class Game {
      * <li>a mine, then it returns {@link MoveResult#DIE}</li>
      * <li>another kind of cell, then it returns {@link MoveResult#OK}</li>
      * </ul>
-     * If the first cell is out of bounds, then it returns {@link MoveResult#KO} (i.e. INVALID move)
+     * If the first cell is a wall, then it returns {@link MoveResult#KO} (i.e. INVALID move)
+     * <p>
+     * The outcomes of the four directions are computed in the background after each action, so the move usually
+     * applies a known outcome instead of resolving the slide.
+     * </p>
      *
      * @param direction Direction to move the player in.
      * @return MoveResult object the move is done.
      * @throws LevelException If there are any problems with increaseNumGemsGot.
      */
     public MoveResult movePlayer(Direction direction) throws LevelException {
-        Position originPosition = level.getPlayerPosition();
-        Element originElement = level.getCell(originPosition).getElement();
-        Position currentPosition;
-        Position nextPosition;
-        Element nextElement;
-        StackItem stackItem;
-        List<Position> collectedLives = new ArrayList<Position>();
-        List<Position> collectedGems = new ArrayList<Position>();
-        boolean hasMoved = false;
-
-        while(true) {
-            currentPosition = level.getPlayerPosition();
-            nextPosition = currentPosition.offsetBy(direction.getRowOffset(), direction.getColumnOffset(), getBoardSize());
-
-            if(nextPosition == null) {
-                level.increaseNumMoves();
-                stackItem = new StackItem(originPosition, originElement, collectedLives, collectedGems);
-                level.push(stackItem);
-                return MoveResult.OK;
-            }
-
-            if (level.getCell(nextPosition).getElement() == Element.MINE) {
-                level.decreaseNumLives();
-                level.increaseNumMoves();
-                level.setCell(originPosition, originElement);
-                for (Position gemPos: collectedGems) {
-                    level.setCell(gemPos, Element.GEM);
-                    level.decreaseNumGemsGot();
-                }
-                for (Position livePos: collectedLives) {
-                    level.setCell(livePos, Element.EXTRA_LIFE);
-                }
-                return MoveResult.DIE;
-            }
-
-            if (level.getCell(nextPosition).getElement() == Element.STOP) {
-                level.setCell(currentPosition, Element.EMPTY);
-                level.setCell(nextPosition, Element.PLAYER_STOP);
-                stackItem = new StackItem(originPosition, originElement, collectedLives, collectedGems);
-                level.push(stackItem);
-                level.increaseNumMoves();
-                return MoveResult.OK;
-            }
-
-            if(level.getCell(nextPosition).getElement() == Element.WALL) {
-                if(!hasMoved)
-                    return MoveResult.KO;
-                else {
-                    level.increaseNumMoves();
-                    stackItem = new StackItem(originPosition, originElement, collectedLives, collectedGems);
-                    level.push(stackItem);
-                    return MoveResult.OK;
-                }
-            }
-
-            if(level.getCell(nextPosition).getElement() == Element.STOP) {
-                nextElement = Element.PLAYER_STOP;
-            } else {
-                nextElement = Element.PLAYER;
-            }
-            if(level.getCell(currentPosition).getElement() == Element.PLAYER_STOP)
-                level.setCell(currentPosition, Element.STOP);
-            else {
-                level.setCell(currentPosition, Element.EMPTY);
-            }
-            if(level.getCell(nextPosition).getElement() == Element.GEM) {
-                level.increaseNumGemsGot(1);
-                collectedGems.add(nextPosition);
-            }
-            if(level.getCell(nextPosition).getElement() == Element.EXTRA_LIFE) {
-                level.increaseNumLives(1);
-                collectedLives.add(nextPosition);
-            }
-
-            hasMoved = true;
-            level.setCell(nextPosition, nextElement);
+        MoveOutcome outcome = predictor.lookup(level.stateHash(), direction);
+        MoveResult result;
+        if (history != null) {
+            result = outcome != null ? history.move(direction, outcome) : history.move(direction);
+        } else {
+            result = outcome != null ? moveEngine.apply(outcome) : moveEngine.move(direction);
         }
+        mirror.moved(direction);
+        return result;
+    }
+
+    /**
+     * Returns what {@link #movePlayer(Direction)} would do in the given direction, without changing the level,
+     * e.g. to preview a move or to look ahead in the four directions.
+     *
+     * @param direction Direction to move the player in.
+     * @return Outcome of the move: result, destination, collected gems and extra lives, and change of lives.
+     */
+    public MoveOutcome peekMove(Direction direction) {
+        return moveEngine.peek(direction);
     }
 
     /**
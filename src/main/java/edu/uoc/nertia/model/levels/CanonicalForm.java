@@ -0,0 +1,234 @@
+package edu.uoc.nertia.model.levels;
+
+import edu.uoc.nertia.model.cells.Element;
+import edu.uoc.nertia.model.utils.Direction;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Canonical form of a level under the 8 {@link Symmetry symmetries} of the square.
+ * <p>
+ * The board of the level is transformed by every symmetry and the smallest one (comparing the elements cell by
+ * cell, row by row) is the canonical board. Two levels that are rotations or reflections of each other have the
+ * same canonical board, so they have the same {@link #getHash() hash} and are {@link #equals(Object) equal}.
+ * The number of lives is part of the form, but the difficulty is not: it is only a label.
+ * </p>
+ * <p>
+ * The form keeps the symmetry that turns the level into the canonical board, so moves can be taken from one
+ * orientation to another with {@link #mapMoves(List, CanonicalForm)}, e.g. to replay a stored solution.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class CanonicalForm {
+
+    /**
+     * Cached copy of {@link Element#values()}.
+     */
+    private static final Element[] ELEMENTS = Element.values();
+
+    /**
+     * Seeds of the two halves of the hash.
+     */
+    private static final long HIGH_SEED = 0x43616E6F_6E696361L;
+    private static final long LOW_SEED = 0x6C466F72_6D4E6572L;
+
+    /**
+     * Size of the board.
+     */
+    private final int size;
+
+    /**
+     * Number of lives of the level.
+     */
+    private final int numLives;
+
+    /**
+     * Element ordinals of the canonical board, row by row.
+     */
+    private final byte[] board;
+
+    /**
+     * Symmetry that turns the level into the canonical board.
+     */
+    private final Symmetry symmetry;
+
+    /**
+     * 128-bit hash of the canonical board and the number of lives.
+     */
+    private final Hash hash;
+
+    /**
+     * 128-bit hash of a canonical form.
+     *
+     * @param high First 64 bits.
+     * @param low Last 64 bits.
+     */
+    public record Hash(long high, long low) {
+
+        /**
+         * Returns the hash as 32 hexadecimal digits.
+         *
+         * @return Textual version of the hash.
+         */
+        @Override
+        public String toString() {
+            return String.format("%016x%016x", high, low);
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * @param size Size of the board.
+     * @param numLives Number of lives of the level.
+     * @param board Canonical board.
+     * @param symmetry Symmetry that turns the level into the canonical board.
+     */
+    private CanonicalForm(int size, int numLives, byte[] board, Symmetry symmetry) {
+        this.size = size;
+        this.numLives = numLives;
+        this.board = board;
+        this.symmetry = symmetry;
+        this.hash = hash(size, numLives, board);
+    }
+
+    /**
+     * Returns the canonical form of a level in its current state.
+     *
+     * @param level Level to transform. It is not modified.
+     * @return Canonical form of the level.
+     */
+    public static CanonicalForm of(Level level) {
+        int size = level.getSize();
+        byte[] original = new byte[size * size];
+        for (int index = 0; index < original.length; index++) {
+            original[index] = (byte) level.getElement(index).ordinal();
+        }
+
+        byte[] best = null;
+        Symmetry bestSymmetry = null;
+        byte[] image = new byte[original.length];
+        for (Symmetry candidate : Symmetry.values()) {
+            for (int row = 0; row < size; row++) {
+                for (int column = 0; column < size; column++) {
+                    image[candidate.row(row, column, size) * size + candidate.column(row, column, size)]
+                            = original[row * size + column];
+                }
+            }
+            if (best == null || Arrays.compare(image, best) < 0) {
+                best = image.clone();
+                bestSymmetry = candidate;
+            }
+        }
+        return new CanonicalForm(size, level.getNumLives(), best, bestSymmetry);
+    }
+
+    /**
+     * Returns the size of the board.
+     *
+     * @return Number of rows and columns.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the symmetry that turns the level into the canonical board.
+     *
+     * @return Symmetry from the level to the canonical board.
+     */
+    public Symmetry getSymmetry() {
+        return symmetry;
+    }
+
+    /**
+     * Returns the 128-bit hash of the canonical form. Levels with the same canonical form have the same hash.
+     *
+     * @return Hash of the canonical board and the number of lives.
+     */
+    public Hash getHash() {
+        return hash;
+    }
+
+    /**
+     * Takes some moves done in the level of this form to the level of another form with the same canonical
+     * board. Replaying them there has the same effect, e.g. both complete the level.
+     *
+     * @param moves Moves in the orientation of this level.
+     * @param target Canonical form of the level where the moves are replayed.
+     * @return Moves in the orientation of the target level.
+     * @throws IllegalArgumentException When the forms are different.
+     */
+    public List<Direction> mapMoves(List<Direction> moves, CanonicalForm target) {
+        if (!equals(target)) {
+            throw new IllegalArgumentException("The levels are not symmetric");
+        }
+        return symmetry.then(target.symmetry.inverse()).apply(moves);
+    }
+
+    /**
+     * Computes the hash of a canonical board: two multiply-xorshift lanes over 8 cells at a time.
+     *
+     * @param size Size of the board.
+     * @param numLives Number of lives.
+     * @param board Canonical board.
+     * @return 128-bit hash.
+     */
+    private static Hash hash(int size, int numLives, byte[] board) {
+        long high = HIGH_SEED ^ size;
+        long low = LOW_SEED ^ ((long) numLives << 32);
+        for (int start = 0; start < board.length; start += Long.BYTES) {
+            long word = 0;
+            for (int i = start; i < Math.min(start + Long.BYTES, board.length); i++) {
+                word = word << 8 | board[i];
+            }
+            high = mix(high ^ word) * 0x9E3779B97F4A7C15L;
+            low = mix(low + word) ^ Long.rotateLeft(high, 23);
+        }
+        return new Hash(mix(high ^ low >>> 1), mix(low ^ board.length));
+    }
+
+    /**
+     * Finalizer of SplitMix64.
+     *
+     * @param value Value to mix.
+     * @return Mixed value.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CanonicalForm that)) return false;
+        return size == that.size && numLives == that.numLives && Arrays.equals(board, that.board);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash.low());
+    }
+
+    /**
+     * Returns the canonical board, as in the level files.
+     *
+     * @return Textual version of the canonical board.
+     */
+    @Override
+    public String toString() {
+        StringBuilder str = new StringBuilder();
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                str.append(ELEMENTS[board[row * size + column]].getSymbol());
+            }
+            str.append(System.lineSeparator());
+        }
+        return str.toString();
+    }
+}
@@ -0,0 +1,16 @@
+package edu.uoc.nertia.model.levels;
+
+/**
+ * Snapshot of the part of a {@link Level} that changes while playing.
+ *
+ * @param playerIndex Index of the player's cell.
+ * @param collectedItems Copy of the mask of collected items.
+ * @param numMoves Number of moves.
+ * @param numLives Number of lives (as stored by {@link Level}).
+ * @param numGemsGot Number of gems collected.
+ * @param undoState State of the undo stack.
+ * @author agent
+ * @version 1.0
+ */
+record Checkpoint(int playerIndex, long[] collectedItems, int numMoves, int numLives, int numGemsGot, int[] undoState) {
+}
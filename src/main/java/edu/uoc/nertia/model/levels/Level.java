@@ -1,28 +1,37 @@
 package edu.uoc.nertia.model.levels;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
-import java.util.stream.Stream;
 
 import edu.uoc.nertia.model.exceptions.PositionException;
 import edu.uoc.nertia.model.cells.Cell;
-import edu.uoc.nertia.model.cells.CellFactory;
 import edu.uoc.nertia.model.cells.Element;
 import edu.uoc.nertia.model.exceptions.LevelException;
 import edu.uoc.nertia.model.stack.StackItem;
-import edu.uoc.nertia.model.stack.UndoStack;
 import edu.uoc.nertia.model.utils.Position;
 
 /**
  * Level class.
+ * <p>
+ * The parsed file is kept in a {@link LevelTemplate}, which is shared by all the sessions created with
+ * {@link #newSession()}. While the level is only played (moves, undos, checkpoints), the board is read from the
+ * template and the state is just the player's cell and the mask of collected items. Other changes of the board
+ * (e.g. {@link #setCell(Position, Element)} with a wall) copy the board first.
+ * </p>
  * @author David García Solórzano
  * @version 1.0
  */
-public class Level {
+public class Level implements Cloneable {
 
     /**
      * Minimum size of the board in one direction, the board will be sizexsize
@@ -34,6 +43,33 @@ public class Level {
      */
     private static final int UNLIMITED_LIVES = -1;
 
+    /**
+     * Cached copy of {@link Element#values()} used to decode the ordinals stored in {@link #board}.
+     */
+    private static final Element[] ELEMENTS = Element.values();
+
+    /**
+     * Value of {@link #playerIndex} when there is no player on the board.
+     */
+    private static final int NO_PLAYER = -1;
+
+    /**
+     * Debug mode: when assertions are enabled (i.e. {@code -ea}), {@link #getPlayerPosition()}
+     * checks that {@link #playerIndex} matches a full scan of the board.
+     */
+    private static final boolean CHECK_PLAYER_INDEX = Level.class.desiredAssertionStatus();
+
+    /**
+     * Value of {@link #itemIndex} for the cells that never had a gem or an extra life.
+     */
+    private static final int NO_ITEM = -1;
+
+    /**
+     * Seed of the Zobrist keys. Keys only depend on the cell and the element, so two levels loaded from
+     * the same file in the same state have the same {@link #stateHash()}.
+     */
+    private static final long ZOBRIST_SEED = 0x4E657274_69615A6FL;
+
     /**
      * Number of rows and columns in the game board. A board is a square of size x size.
      */
@@ -45,9 +81,75 @@ public class Level {
     private LevelDifficulty difficulty;
 
     /**
-     * 2D array representing each cell in the game board.
+     * Flat array with the ordinal of the {@link Element} of each cell in the game board.
+     * The cell {@code (row, column)} is stored at index {@code row * size + column}.
+     * While {@link #boardShared} is {@code true}, it is the board of the template and it is never written.
+     */
+    private byte[] board;
+
+    /**
+     * Whether {@link #board} is the one of the template. Then the player and the collected items are not in it,
+     * but in {@link #playerIndex} and {@link #collectedItems}.
+     */
+    private boolean boardShared;
+
+    /**
+     * Parsed file, shared by all the sessions of this level.
+     */
+    private final LevelTemplate template;
+
+    /**
+     * Index in {@link #board} of the cell where the player is, or {@link #NO_PLAYER}.
+     * It is kept up to date by {@link #setCell(Position, Element)} so that the player does not have to be searched.
+     */
+    private int playerIndex = NO_PLAYER;
+
+    /**
+     * Jump tables that tell where a slide from any cell stops.
+     */
+    private SlideTable slideTable;
+
+    /**
+     * Number of each cell in {@link #itemCells}, or {@link #NO_ITEM}. Gems and extra lives are numbered
+     * when the file is parsed (and whenever one is placed in a new cell).
+     */
+    private int[] itemIndex;
+
+    /**
+     * Cell of each gem or extra life.
+     */
+    private int[] itemCells;
+
+    /**
+     * Ordinal of the {@link Element} of each gem or extra life.
+     */
+    private byte[] itemKinds;
+
+    /**
+     * Number of gems and extra lives that have been numbered.
      */
-    private Cell[][] board;
+    private int numItems;
+
+    /**
+     * Whether {@link #itemIndex}, {@link #itemCells} and {@link #itemKinds} are the ones of the template,
+     * so they must be copied before they are written.
+     */
+    private boolean itemsShared;
+
+    /**
+     * Bit mask with one bit per numbered item: the bit is set when the item is not on the board (i.e. collected).
+     */
+    private long[] collectedItems;
+
+    /**
+     * Zobrist hash of the player's cell and the remaining gems and extra lives. See {@link #stateHash()}.
+     */
+    private long stateHash;
+
+    /**
+     * SHA-256 of the text of the level file, as read by {@link #parse(String)}.
+     */
+    private byte[] contentHash;
 
     /**
      * The number of moves performed by the player (excluding invalid moves).
@@ -64,6 +166,18 @@ public class Level {
      */
     private int numGemsGot = 0;
 
+    /**
+     * Moves that going back in the history has taken off {@link #numMoves}, but that still count in the score.
+     * See {@link LevelHistory#seekWithPenalty(int)}.
+     */
+    private int rewoundMoves;
+
+    /**
+     * Undos that count in the score besides the pops of the undo stack, because the player has gone back in the
+     * history. See {@link LevelHistory#seekWithPenalty(int)}.
+     */
+    private int rewoundUndos;
+
     /**
      * The number of gems initially on the game board when a {@link Level} instance was created.
      */
@@ -72,21 +186,174 @@ public class Level {
     /**
      * Data structure that allows us to undo moves and manage its information.
      */
-    private final UndoStack undoStack;
+    private UndoJournal undoStack;
+
+    /**
+     * Whether the moves are recorded so that they can be undone. It is fixed when the level is created.
+     */
+    private boolean undoable = true;
 
     /**
      * Constructor
      *
-     * @param fileName Name of the file that contains level's data.
+     * @param fileName Name of the file that contains level's data. It is looked up in the classpath first, as the
+     *                 levels bundled with the game. If it is not there, it is read from the file system (relative
+     *                 to the working directory), e.g. a generated level or a file given to the tools.
      * @throws LevelException When there is any error while parsing the file.
+     * @throws NullPointerException When the file is neither in the classpath nor in the file system.
      */
     public Level(String fileName) throws LevelException{
         size = parse(fileName);
-        numGemsInit = (int)
-                Arrays.stream(getBoard()).flatMap(Arrays::stream)
-                        .filter(cell -> cell.getElement() == Element.GEM)
-                        .count();
-        undoStack = new UndoStack();
+        numGemsInit = count(Element.GEM);
+        template = buildTemplate();
+        startSession();
+    }
+
+    /**
+     * Constructor used by {@link #fromText(String)}.
+     *
+     * @param inputStream Content of the level, in the format of the level files. It is closed.
+     * @throws LevelException When there is any error while parsing the content.
+     */
+    private Level(InputStream inputStream) throws LevelException {
+        size = parse(inputStream);
+        numGemsInit = count(Element.GEM);
+        template = buildTemplate();
+        startSession();
+    }
+
+    /**
+     * Indexes the items and the hash of the parsed board and builds the template of the level.
+     *
+     * @return Template of the parsed level.
+     */
+    private LevelTemplate buildTemplate() {
+        indexItems();
+        for (int i = 0; i < board.length; i++) {
+            stateHash ^= zobrist(i, board[i]);
+        }
+        return new LevelTemplate(size, difficulty, numLives, board, playerIndex,
+                itemIndex, itemCells, itemKinds, numItems, stateHash, numGemsInit);
+    }
+
+    /**
+     * Creates a new session of this level, i.e. the level as it was loaded, without reading the file again.
+     * It shares the {@link LevelTemplate} with this level, so it takes O(1) time and memory until its board is
+     * changed in a way that playing cannot do. It is undoable if this level is.
+     *
+     * @return New level in its initial state.
+     */
+    public Level newSession() {
+        return newSession(undoable);
+    }
+
+    /**
+     * Creates a new session of this level, as in {@link #newSession()}, with or without undo.
+     *
+     * @param undoable Whether the moves of the new session can be undone.
+     * @return New level in its initial state.
+     */
+    Level newSession(boolean undoable) {
+        Level level;
+        try {
+            level = (Level) super.clone();
+        } catch (CloneNotSupportedException e) {
+            //Level is Cloneable
+            throw new IllegalStateException(e);
+        }
+        level.undoable = undoable;
+        level.startSession();
+        return level;
+    }
+
+    /**
+     * Returns the parsed file of this level, which is shared by all its sessions.
+     *
+     * @return Template of the level.
+     */
+    public LevelTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * Leaves this level in its initial state, sharing the board, the items and the slide tables of the template.
+     */
+    private void startSession() {
+        board = template.getBoard();
+        boardShared = true;
+        slideTable = template.getSlideTable();
+        itemIndex = template.getItemIndex();
+        itemCells = template.getItemCells();
+        itemKinds = template.getItemKinds();
+        numItems = template.getNumItems();
+        itemsShared = true;
+        collectedItems = new long[(numItems + 63) >> 6];
+        playerIndex = template.getPlayerIndex();
+        stateHash = template.getStateHash();
+        setDifficulty(template.getDifficulty());
+        numLives = template.getRawNumLives();
+        numMoves = 0;
+        numGemsGot = 0;
+        rewoundMoves = 0;
+        rewoundUndos = 0;
+        undoStack = new UndoJournal();
+    }
+
+    /**
+     * Creates a level that does not record its moves, e.g. for simulations, replays and bots, which never undo.
+     * Moves are faster because nothing is pushed onto the undo stack, so {@link #undo()} always returns
+     * {@code false}.
+     * No move can be undone, so the score never has an undo penalty.
+     *
+     * @param fileName Name of the file that contains level's data, as in {@link #Level(String)}.
+     * @return Level without undo.
+     * @throws LevelException When there is any error while parsing the file.
+     */
+    public static Level withoutUndo(String fileName) throws LevelException {
+        Level level = new Level(fileName);
+        level.undoable = false;
+        return level;
+    }
+
+    /**
+     * Creates a level from the content of a level file, e.g. a generated one, without writing it to disk.
+     *
+     * @param text Content of the level, in the format of the level files.
+     * @return Level parsed from {@code text}.
+     * @throws LevelException When there is any error while parsing the text.
+     */
+    public static Level fromText(String text) throws LevelException {
+        return new Level(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Checks if the moves of this level can be undone.
+     *
+     * @return {@code false} if the level has been created with {@link #withoutUndo(String)}.
+     */
+    public boolean isUndoable() {
+        return undoable;
+    }
+
+    /**
+     * Opens a level file, either bundled with the game or from the file system.
+     * A file in the classpath wins over a file of the file system with the same name.
+     *
+     * @param fileName Name of the file.
+     * @return Stream of the file, or {@code null} if it does not exist.
+     * @throws LevelException When the file exists but cannot be opened.
+     */
+    static InputStream open(String fileName) throws LevelException {
+        InputStream inputStream = Level.class.getClassLoader().getResourceAsStream(fileName);
+        if (inputStream == null && Files.isRegularFile(Path.of(fileName))) {
+            //Levels that are not bundled (e.g. generated ones) are read from the file system.
+            try {
+                inputStream = Files.newInputStream(Path.of(fileName));
+            } catch (IOException e) {
+                throw new LevelException(LevelException.PARSING_LEVEL_FILE_ERROR);
+            }
+        }
+        return inputStream;
     }
 
     /**
@@ -99,11 +366,29 @@ public class Level {
      * or some board's requirement is not satisfied.     *
      */
     private int parse(String fileName) throws LevelException{
+        return parse(Objects.requireNonNull(open(fileName)));
+    }
+
+    /**
+     * Parses/Reads level's data from the given stream, as in {@link #parse(String)}.
+     *
+     * @param inputStream Content of the level, in the format of the level files. It is closed.
+     * @return The size of the board in one direction (i.e. row or column). The board is {@code size x size}.
+     * @throws LevelException When there is any error while parsing the content
+     * or some board's requirement is not satisfied.
+     */
+    private int parse(InputStream inputStream) throws LevelException {
         String line;
         int size = 0;
 
-        ClassLoader classLoader = getClass().getClassLoader();
-        InputStream inputStream = Objects.requireNonNull(classLoader.getResourceAsStream(fileName));
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            //Every Java platform must support SHA-256.
+            throw new IllegalStateException(e);
+        }
+        inputStream = new DigestInputStream(inputStream, digest);
 
         try(InputStreamReader streamReader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
             BufferedReader reader = new BufferedReader(streamReader)){
@@ -129,26 +414,35 @@ public class Level {
                 setDifficulty(LevelDifficulty.valueOf(line));
             }
 
-            board = new Cell[size][size];
+            board = new byte[size * size];
 
             for (int row = 0; row < size; row++) {
                 char[] rowChar = Objects.requireNonNull(getFirstNonEmptyLine(reader)).toCharArray();
                 for (int column = 0; column < size; column++) {
-                    board[row][column] = CellFactory.getCellInstance(row, column,rowChar[column]);
+                    Element element = Element.symbol2Element(rowChar[column]);
+                    if (element == null) {
+                        throw new IllegalArgumentException("Unknown element symbol: " + rowChar[column]);
+                    }
+                    board[row * size + column] = (byte) element.ordinal();
                 }
             }
 
             //Checks if there are more than one finish cell
-            if(Stream.of(board).flatMap(Arrays::stream).filter(x -> x.getElement() == Element.PLAYER).count()!=1){
+            if(count(Element.PLAYER) != 1){
                 throw new LevelException(LevelException.PLAYER_LEVEL_FILE_ERROR);
             }
+            playerIndex = findPlayerIndex();
 
             //Checks if there are one gem at least.
-            if(Stream.of(board).flatMap(Arrays::stream).filter(x -> x.getElement() == Element.GEM).count()<1){
+            if(count(Element.GEM) < 1){
                 throw new LevelException(LevelException.MIN_GEMS_ERROR);
             }
 
-        }catch (IllegalArgumentException | IOException | PositionException e){
+            //The rest of the file is read too, so that the hash covers the whole text.
+            reader.skip(Long.MAX_VALUE);
+            contentHash = digest.digest();
+
+        }catch (IllegalArgumentException | IOException e){
             throw new LevelException(LevelException.PARSING_LEVEL_FILE_ERROR);
         }
 
@@ -179,6 +473,315 @@ public class Level {
         } while (true);
     }
 
+    /**
+     * Counts how many cells of the board contain the given element.
+     *
+     * @param element Element to look for.
+     * @return Number of cells whose element is {@code element}.
+     */
+    private int count(Element element) {
+        byte ordinal = (byte) element.ordinal();
+        int num = 0;
+        for (byte value : board) {
+            if (value == ordinal) {
+                num++;
+            }
+        }
+        return num;
+    }
+
+    /**
+     * Searches the whole board for the player. It is only used when parsing the file
+     * and to check (when assertions are enabled) that {@link #playerIndex} is right.
+     *
+     * @return Index of the first cell that contains either {@link Element#PLAYER} or {@link Element#PLAYER_STOP},
+     * or {@link #NO_PLAYER} if there is not any.
+     */
+    private int findPlayerIndex() {
+        for(int i = 0; i < board.length; i++) {
+            if(isPlayer(elementAt(i)))
+                return i;
+        }
+        return NO_PLAYER;
+    }
+
+    /**
+     * Checks if the given element represents the player.
+     *
+     * @param element Element to check.
+     * @return {@code true} if the element is either {@link Element#PLAYER} or {@link Element#PLAYER_STOP}.
+     */
+    private static boolean isPlayer(Element element) {
+        return element == Element.PLAYER || element == Element.PLAYER_STOP;
+    }
+
+    /**
+     * Numbers the gems and extra lives of the board, row by row.
+     */
+    private void indexItems() {
+        itemIndex = new int[board.length];
+        Arrays.fill(itemIndex, NO_ITEM);
+        itemCells = new int[0];
+        itemKinds = new byte[0];
+        collectedItems = new long[0];
+        numItems = 0;
+        for (int i = 0; i < board.length; i++) {
+            if (SlideTable.isItem(board[i]))
+                addItem(i);
+        }
+    }
+
+    /**
+     * Gives the next number to the gem or extra life that is in the given cell.
+     *
+     * @param index Flat index of the cell.
+     * @return Number of the new item.
+     */
+    private int addItem(int index) {
+        ownItems();
+        if (numItems == itemCells.length) {
+            int capacity = Math.max(8, numItems * 2);
+            itemCells = Arrays.copyOf(itemCells, capacity);
+            itemKinds = Arrays.copyOf(itemKinds, capacity);
+            collectedItems = Arrays.copyOf(collectedItems, (capacity + 63) >> 6);
+        }
+        itemIndex[index] = numItems;
+        itemCells[numItems] = index;
+        itemKinds[numItems] = board[index];
+        return numItems++;
+    }
+
+    /**
+     * Copies the numbering of the items of the template before it is changed.
+     */
+    private void ownItems() {
+        if (itemsShared) {
+            itemIndex = itemIndex.clone();
+            itemCells = itemCells.clone();
+            itemKinds = itemKinds.clone();
+            itemsShared = false;
+        }
+    }
+
+    /**
+     * Copies the board of the template, with the player and the collected items of this session, before a change
+     * that the shared board cannot show. The slide tables keep sharing their entries until a line changes.
+     */
+    private void ownBoard() {
+        byte[] own = new byte[board.length];
+        for (int i = 0; i < own.length; i++) {
+            own[i] = (byte) elementAt(i).ordinal();
+        }
+        board = own;
+        boardShared = false;
+        slideTable = new SlideTable(slideTable, own);
+    }
+
+    /**
+     * Returns the element of a cell of the shared board as if the player were not there.
+     *
+     * @param index Flat index of the cell.
+     * @return {@link Element#EMPTY} or {@link Element#STOP} where the player started, {@link Element#EMPTY}
+     * where an item has been collected, and the element of the template otherwise.
+     */
+    private Element sharedElementAt(int index) {
+        Element element = ELEMENTS[board[index]];
+        if (element == Element.PLAYER)
+            return Element.EMPTY;
+        if (element == Element.PLAYER_STOP)
+            return Element.STOP;
+        if (SlideTable.isItem(element.ordinal()) && isCollected(index))
+            return Element.EMPTY;
+        return element;
+    }
+
+    /**
+     * Returns the element of a cell with the player on it.
+     *
+     * @param under Element of the cell without the player, either {@link Element#EMPTY} or {@link Element#STOP}.
+     * @return {@link Element#PLAYER} or {@link Element#PLAYER_STOP}.
+     */
+    private static Element withPlayer(Element under) {
+        return under == Element.STOP ? Element.PLAYER_STOP : Element.PLAYER;
+    }
+
+    /**
+     * Checks if a change of a cell can be shown without copying the shared board, i.e. it is a change that
+     * playing does: the player leaves or enters an empty or stop cell, or an item is collected or given back.
+     *
+     * @param index Flat index of the cell.
+     * @param element New element of the cell.
+     * @return {@code true} if only {@link #playerIndex} and {@link #collectedItems} have to change.
+     */
+    private boolean fitsSharedBoard(int index, Element element) {
+        Element under = sharedElementAt(index);
+        if (index == playerIndex)
+            return element == under || element == withPlayer(under);
+        if (isPlayer(element))
+            return playerIndex == NO_PLAYER && (under == Element.EMPTY || under == Element.STOP)
+                    && element == withPlayer(under);
+        if (element == under)
+            return true;
+        return SlideTable.isItem(board[index]) && (element == Element.EMPTY || element.ordinal() == board[index]);
+    }
+
+    /**
+     * Returns the Zobrist key of an element in a cell. Only the player and the collectibles take part in the
+     * state, so the rest of elements have no key. The player has the same key with or without a stop below.
+     *
+     * @param index Flat index of the cell.
+     * @param ordinal Ordinal of the element.
+     * @return Key of the element in that cell, or {@code 0}.
+     */
+    private static long zobrist(int index, int ordinal) {
+        int kind;
+        if (ordinal == Element.PLAYER.ordinal() || ordinal == Element.PLAYER_STOP.ordinal())
+            kind = 1;
+        else if (ordinal == Element.GEM.ordinal())
+            kind = 2;
+        else if (ordinal == Element.EXTRA_LIFE.ordinal())
+            kind = 3;
+        else
+            return 0L;
+        //SplitMix64 finalizer
+        long z = ZOBRIST_SEED + (((long) index << 2) | kind) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Returns the {@link Element} stored at the given index of {@link #board}.
+     *
+     * @param index Flat index of the cell, i.e. {@code row * size + column}.
+     * @return Element of the cell.
+     */
+    private Element elementAt(int index) {
+        if (!boardShared)
+            return ELEMENTS[board[index]];
+        Element under = sharedElementAt(index);
+        return index == playerIndex ? withPlayer(under) : under;
+    }
+
+    /**
+     * Returns the {@link Element} of the cell at the given index without checking bounds.
+     *
+     * @param index Flat index of the cell, i.e. {@code row * size + column}.
+     * @return Element of the cell.
+     */
+    Element getElement(int index) {
+        return elementAt(index);
+    }
+
+    /**
+     * Changes the element of the cell at the given index without checking bounds.
+     * It keeps the player's index and the slide tables up to date.
+     *
+     * @param index Flat index of the cell, i.e. {@code row * size + column}.
+     * @param element New element of the cell.
+     */
+    void setElement(int index, Element element) {
+        if (boardShared && !fitsSharedBoard(index, element))
+            ownBoard();
+        int previous = elementAt(index).ordinal();
+        if (!boardShared) {
+            board[index] = (byte) element.ordinal();
+            slideTable.update(index, previous, element.ordinal());
+        }
+        stateHash ^= zobrist(index, previous) ^ zobrist(index, element.ordinal());
+        if(isPlayer(element))
+            playerIndex = index;
+        else if(index == playerIndex)
+            playerIndex = NO_PLAYER;
+
+        int item = itemIndex[index];
+        if(SlideTable.isItem(element.ordinal())) {
+            if(item == NO_ITEM)
+                item = addItem(index);
+            if(itemKinds[item] != element.ordinal()) {
+                ownItems();
+                itemKinds[item] = (byte) element.ordinal();
+            }
+            collectedItems[item >> 6] &= ~(1L << item);
+        } else if(item != NO_ITEM) {
+            collectedItems[item >> 6] |= 1L << item;
+        }
+    }
+
+    /**
+     * Returns the number of the gem or extra life that is (or was) in the given cell.
+     *
+     * @param index Flat index of the cell.
+     * @return Number of the item, or {@code -1} if the cell never had one.
+     */
+    int getItem(int index) {
+        return itemIndex[index];
+    }
+
+    /**
+     * Checks if the cell had a gem or an extra life that is not on the board any more.
+     *
+     * @param index Flat index of the cell.
+     * @return {@code true} if the item of the cell has been collected.
+     */
+    boolean isCollected(int index) {
+        int item = itemIndex[index];
+        return item != NO_ITEM && (collectedItems[item >> 6] & (1L << item)) != 0;
+    }
+
+    /**
+     * Returns the number of gems and extra lives that have been numbered.
+     *
+     * @return Number of items. Items are numbered from 0.
+     */
+    int getNumItems() {
+        return numItems;
+    }
+
+    /**
+     * Returns one word of the mask of collected items. Together with the player's index,
+     * the mask identifies the state of the level.
+     *
+     * @param word Number of the word, i.e. items {@code 64 * word} to {@code 64 * word + 63}.
+     * @return Bits of the collected items of that word.
+     */
+    long getCollectedItems(int word) {
+        return word < collectedItems.length ? collectedItems[word] : 0L;
+    }
+
+    /**
+     * Returns the index of the cell where the player is.
+     *
+     * @return Flat index of the player's cell, or {@code -1} if there is no player.
+     */
+    int getPlayerIndex() {
+        return playerIndex;
+    }
+
+    /**
+     * Getter of the attribute {@code slideTable}.
+     *
+     * @return Jump tables of this level.
+     */
+    SlideTable getSlideTable() {
+        return slideTable;
+    }
+
+    /**
+     * Builds the {@link Position} that corresponds to the given index of {@link #board}.
+     *
+     * @param index Flat index of the cell, i.e. {@code row * size + column}.
+     * @return Position of the cell.
+     */
+    Position positionOf(int index) {
+        try {
+            return new Position(index / size, index % size);
+        } catch (PositionException e) {
+            //Indexes of the board are never negative
+            throw new IllegalStateException(e);
+        }
+    }
+
     public int getSize() {
         return size;
     }
@@ -228,6 +831,19 @@ public class Level {
             this.numGemsGot += numGemsGot;
     }
 
+    /**
+     * Updates the counters after collecting a gem or an extra life. Unlike
+     * {@link #increaseNumGemsGot(int)} and {@link #increaseNumLives(int)} it cannot fail.
+     *
+     * @param item Either {@link Element#GEM} or {@link Element#EXTRA_LIFE}.
+     */
+    void collect(Element item) {
+        if(item == Element.GEM)
+            numGemsGot++;
+        else
+            setNumLives(numLives + 1);
+    }
+
     public void decreaseNumGemsGot() {
         if(numGemsGot > 0)
             numGemsGot = numGemsGot - 1;
@@ -263,15 +879,29 @@ public class Level {
             return false;
     }
 
-    private Cell[][] getBoard() {
+    private byte[] getBoard() {
         return board;
     }
 
+    /**
+     * Returns a lightweight {@link Cell} with the current content of the position {@code (row, column)}.
+     * <p>
+     * The board does not keep {@link Cell} objects, so the returned cell is a snapshot:
+     * changing its element does not modify the board. Use {@link #setCell(Position, Element)} instead.
+     * </p>
+     *
+     * @param row Row of the cell.
+     * @param column Column of the cell.
+     * @return Snapshot of the cell.
+     * @throws LevelException When either the row or the column is out of the board.
+     */
     public Cell getCell(int row, int column) throws LevelException {
         if(row < 0 || row >= size || column < 0 || column >= size)
             throw new LevelException(LevelException.INCORRECT_CELL_POSITION);
-        else
-            return board[row][column];
+        else {
+            int index = row * size + column;
+            return new Cell(positionOf(index), elementAt(index));
+        }
     }
 
     public Cell getCell(Position position) throws LevelException {
@@ -279,64 +909,198 @@ public class Level {
     }
 
     public void setCell(Position position, Element element) throws LevelException {
-        if(position.getRow() < 0 || position.getRow() > size || position.getColumn() < 0 || position.getColumn() > size)
+        if(position.getRow() < 0 || position.getRow() >= size || position.getColumn() < 0 || position.getColumn() >= size)
             throw new LevelException(LevelException.INCORRECT_CELL_POSITION);
         if(element != null) {
-            board[position.getRow()][position.getColumn()].setElement(element);
+            setElement(position.getRow() * size + position.getColumn(), element);
         }
     }
 
     public Position getPlayerPosition() {
-        for(int i = 0; i < size; i++) {
-            for(int j = 0; j < size; j++)
-            {
-                if(board[i][j].getElement() == Element.PLAYER || board[i][j].getElement() == Element.PLAYER_STOP)
-                    return board[i][j].getPosition();
-            }
-        }
-        return null;
+        if(CHECK_PLAYER_INDEX && playerIndex != findPlayerIndex())
+            throw new IllegalStateException("Tracked player index " + playerIndex
+                    + " does not match the board (" + findPlayerIndex() + ")");
+        if(playerIndex == NO_PLAYER)
+            return null;
+        return positionOf(playerIndex);
+    }
+
+    /**
+     * Returns a 64-bit fingerprint of the state of the level: the player's cell and the gems and extra lives
+     * that are still on the board. It is updated in O(1) whenever a cell changes, so it stays consistent
+     * after moves, undos and reloads. Counters (moves, lives, score) are not part of it.
+     *
+     * @return Zobrist hash of the state.
+     */
+    public long stateHash() {
+        return stateHash;
+    }
+
+    /**
+     * Returns a hash of the text of the level file. Unlike {@link #stateHash()}, it does not change while
+     * playing, and any change of the file (e.g. an edited board) gives a different value.
+     *
+     * @return SHA-256 of the file, 32 bytes.
+     */
+    public byte[] getContentHash() {
+        return contentHash.clone();
     }
 
     public int getScore() {
-        return size * size + (10 * numGemsGot) - numMoves - (2 * undoStack.getNum());
+        return size * size + (10 * numGemsGot) - (numMoves + rewoundMoves) - (2 * (undoStack.getNum() + rewoundUndos));
+    }
+
+    /**
+     * Returns the number of undos done so far, i.e. the pops of the undo stack. A checkpoint brings it back too.
+     *
+     * @return Number of undos.
+     */
+    int getNumUndos() {
+        return undoStack.getNum();
+    }
+
+    /**
+     * Keeps in the score moves and undos that going back in the history has taken off the counters.
+     *
+     * @param numMoves Number of moves to keep.
+     * @param numUndos Number of undos to add to the penalty.
+     */
+    void keepInScore(int numMoves, int numUndos) {
+        rewoundMoves += numMoves;
+        rewoundUndos += numUndos;
     }
 
     public void push(StackItem item) {
-        undoStack.push(item);
+        if(!undoable)
+            return;
+        List<Position> lives = item.collectedLives() == null ? List.of() : item.collectedLives();
+        List<Position> gems = item.collectedGems() == null ? List.of() : item.collectedGems();
+        int[] items = new int[lives.size() + gems.size()];
+        int i = 0;
+        for(Position position : gems)
+            items[i++] = itemFor(position, Element.GEM);
+        for(Position position : lives)
+            items[i++] = itemFor(position, Element.EXTRA_LIFE);
+        Position origin = item.originPosition();
+        undoStack.push(origin.getRow() * size + origin.getColumn(),
+                item.originElement() == null ? -1 : item.originElement().ordinal(), items, items.length);
+    }
+
+    /**
+     * Returns the number of the item of the given cell, numbering it if needed.
+     * It is used when undo records come from outside the {@link MoveEngine}.
+     *
+     * @param position Position of the cell.
+     * @param kind Either {@link Element#GEM} or {@link Element#EXTRA_LIFE}.
+     * @return Number of the item.
+     */
+    private int itemFor(Position position, Element kind) {
+        int index = position.getRow() * size + position.getColumn();
+        int item = itemIndex[index];
+        if (item == NO_ITEM) {
+            if (boardShared)
+                ownBoard();
+            byte previous = board[index];
+            board[index] = (byte) kind.ordinal();
+            item = addItem(index);
+            board[index] = previous;
+            collectedItems[item >> 6] |= 1L << item;
+        }
+        if (itemKinds[item] != kind.ordinal()) {
+            ownItems();
+            itemKinds[item] = (byte) kind.ordinal();
+        }
+        return item;
+    }
+
+    /**
+     * Stores a move done by {@link MoveEngine} in the undo stack, unless the level is not undoable.
+     *
+     * @param origin Index of the cell where the player was.
+     * @param originElement Element of the origin cell.
+     * @param items Numbers of the collected items, i.e. the bits that the move has set in the mask.
+     * @param numItems Number of entries of {@code items} to store.
+     */
+    void record(int origin, Element originElement, int[] items, int numItems) {
+        if(undoable)
+            undoStack.push(origin, originElement.ordinal(), items, numItems);
+    }
+
+    /**
+     * Takes a snapshot of everything that changes while playing this level.
+     *
+     * @return Snapshot to be given to {@link #restore(Checkpoint)}.
+     */
+    Checkpoint checkpoint() {
+        return new Checkpoint(playerIndex, collectedItems.clone(),
+                numMoves, numLives, numGemsGot, undoStack.saveState());
+    }
+
+    /**
+     * Frees the undo records that were only kept for the snapshots taken after the given one, which must be the
+     * last snapshot still in use.
+     *
+     * @param checkpoint Last snapshot of this level that can still be restored.
+     */
+    void release(Checkpoint checkpoint) {
+        undoStack.release(checkpoint.undoState());
+    }
+
+    /**
+     * Brings this level back to a snapshot taken with {@link #checkpoint()}.
+     * Only the items whose bit differs are written, so the slide tables keep the lines that did not change.
+     *
+     * @param checkpoint Snapshot of this level.
+     */
+    void restore(Checkpoint checkpoint) {
+        long[] saved = checkpoint.collectedItems();
+        if(playerIndex != NO_PLAYER)
+            setElement(playerIndex, elementAt(playerIndex) == Element.PLAYER_STOP ? Element.STOP : Element.EMPTY);
+        for (int word = 0; word < saved.length; word++) {
+            for (long diff = saved[word] ^ collectedItems[word]; diff != 0; diff &= diff - 1) {
+                int item = (word << 6) + Long.numberOfTrailingZeros(diff);
+                setElement(itemCells[item], (saved[word] & (1L << item)) != 0 ? Element.EMPTY : ELEMENTS[itemKinds[item]]);
+            }
+        }
+        int player = checkpoint.playerIndex();
+        if(player != NO_PLAYER)
+            setElement(player, elementAt(player) == Element.STOP ? Element.PLAYER_STOP : Element.PLAYER);
+        numMoves = checkpoint.numMoves();
+        numLives = checkpoint.numLives();
+        numGemsGot = checkpoint.numGemsGot();
+        undoStack.restoreState(checkpoint.undoState());
     }
 
     public boolean undo() throws LevelException {
         if (undoStack.empty())
             return false;
-        StackItem stackItem = undoStack.pop();
-        increaseNumLives(stackItem.collectedLives().size());
-        increaseNumGemsGot(stackItem.collectedGems().size());
-        if(getCell(getPlayerPosition().getRow(), getPlayerPosition().getColumn()).getElement() == Element.PLAYER_STOP)
-            board[getPlayerPosition().getRow()][getPlayerPosition().getColumn()].setElement(Element.STOP);
-        else
-            board[getPlayerPosition().getRow()][getPlayerPosition().getColumn()].setElement(Element.EMPTY);
-        Cell newCell = new Cell(stackItem.originPosition(), stackItem.originElement());
-        board[stackItem.originPosition().getRow()][stackItem.originPosition().getColumn()] = newCell;
-        for(Position gemPos: stackItem.collectedGems())
-            board[gemPos.getRow()][gemPos.getColumn()].setElement(Element.GEM);
-        for(Position livePos: stackItem.collectedLives())
-            board[livePos.getRow()][livePos.getColumn()].setElement(Element.EXTRA_LIFE);
+        int record = undoStack.pop();
+        if(playerIndex != NO_PLAYER)
+            setElement(playerIndex, elementAt(playerIndex) == Element.PLAYER_STOP ? Element.STOP : Element.EMPTY);
+        if(undoStack.getOriginElement(record) >= 0)
+            setElement(undoStack.getOrigin(record), ELEMENTS[undoStack.getOriginElement(record)]);
+        for(int i = 0; i < undoStack.getNumItems(record); i++) {
+            int item = undoStack.getItem(record, i);
+            Element kind = ELEMENTS[itemKinds[item]];
+            setElement(itemCells[item], kind);
+            if(kind == Element.GEM)
+                decreaseNumGemsGot();
+            else
+                decreaseNumLives();
+        }
         return true;
     }
 
     @Override
     public String toString() {
-        String str = "";
+        StringBuilder str = new StringBuilder(size * (size + System.lineSeparator().length()));
         for(int i = 0; i < size; i++) {
             for (int j = 0; j < size; j++) {
-                try {
-                    str += getCell(i,j).getElement().toString();
-                } catch(Exception e) {
-                }
+                str.append(elementAt(i * size + j).getSymbol());
             }
             if(i+1 != size)
-                str += System.lineSeparator();
+                str.append(System.lineSeparator());
         }
-        return str;
+        return str.toString();
     }
 }
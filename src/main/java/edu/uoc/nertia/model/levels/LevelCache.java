@@ -0,0 +1,284 @@
+package edu.uoc.nertia.model.levels;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Bounded cache of parsed levels, shared by the whole process.
+ * <p>
+ * Levels are kept by file name and SHA-256 of the content of the file, so an edited file is parsed again. Every
+ * call to {@link #load(String, boolean)} reads and hashes the file, but only a miss parses it: a hit returns a new
+ * session of the cached level with {@link Level#newSession()}, which shares its {@link LevelTemplate}. When several
+ * threads ask for the same level at the same time, only the first one parses it and the others wait for its result.
+ * </p>
+ * <p>
+ * The cache is bounded by the memory of its templates, as estimated by {@link LevelTemplate}, and the least
+ * recently used levels are evicted first. Files that cannot be parsed are not cached.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class LevelCache {
+
+    /**
+     * Default maximum memory of the cached levels, in bytes.
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    /**
+     * Cache shared by the whole process.
+     */
+    private static final LevelCache SHARED = new LevelCache(DEFAULT_MAX_BYTES);
+
+    /**
+     * Maximum memory of the cached levels, in bytes.
+     */
+    private final long maxBytes;
+
+    /**
+     * Levels by key, from the least to the most recently used. Levels that are being parsed are also here.
+     */
+    private final LinkedHashMap<String, Entry> levels = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Memory of the parsed levels in {@link #levels}, in bytes.
+     */
+    private long bytes;
+
+    /**
+     * Number of loads answered from the cache, including the ones that waited for another thread.
+     */
+    private long hits;
+
+    /**
+     * Number of loads that parsed the file.
+     */
+    private long misses;
+
+    /**
+     * Number of levels removed to make room for others.
+     */
+    private long evictions;
+
+    /**
+     * Time spent parsing files, in nanoseconds.
+     */
+    private long loadNanos;
+
+    /**
+     * Constructor
+     *
+     * @param maxBytes Maximum memory of the cached levels, in bytes.
+     * @throws IllegalArgumentException When {@code maxBytes} is not positive.
+     */
+    public LevelCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("The maximum size must be positive");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cache shared by the whole process.
+     *
+     * @return Cache with {@link #DEFAULT_MAX_BYTES}.
+     */
+    public static LevelCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns a new session of a level, parsing its file only if it is not cached.
+     *
+     * @param fileName Name of the level file, as in {@link Level#Level(String)}.
+     * @param undoable Whether the moves of the level can be undone, as in {@link Level#withoutUndo(String)}.
+     * @return Level in its initial state.
+     * @throws LevelException When the level file is wrong.
+     */
+    public Level load(String fileName, boolean undoable) throws LevelException {
+        String hash = hash(fileName);
+        String key = fileName + "#" + hash;
+        Entry entry;
+        boolean owner = false;
+        synchronized (this) {
+            entry = levels.get(key);
+            if (entry == null) {
+                entry = new Entry();
+                levels.put(key, entry);
+                owner = true;
+                misses++;
+            } else {
+                hits++;
+            }
+        }
+        if (owner) {
+            parse(key, hash, fileName, entry);
+        }
+
+        try {
+            return entry.level.get().newSession(undoable);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof LevelException exception) {
+                throw exception;
+            }
+            if (e.getCause() instanceof RuntimeException exception) {
+                throw exception;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the number of cached levels, including the ones that are being parsed.
+     *
+     * @return Number of levels.
+     */
+    public synchronized int size() {
+        return levels.size();
+    }
+
+    /**
+     * Returns the estimated memory of the cached levels.
+     *
+     * @return Number of bytes.
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the time spent parsing files, i.e. the cost of the misses.
+     *
+     * @return Time in nanoseconds.
+     */
+    public synchronized long getLoadNanos() {
+        return loadNanos;
+    }
+
+    /**
+     * Removes every parsed level from the cache. The levels that are being parsed and the counters are kept.
+     */
+    public synchronized void clear() {
+        levels.values().removeIf(entry -> entry.level.isDone());
+        bytes = 0;
+    }
+
+    /**
+     * Parses a level for the threads waiting on an entry and keeps it if it fits.
+     *
+     * @param key Key of the entry.
+     * @param hash Hash of the file when the key was built.
+     * @param fileName Name of the level file.
+     * @param entry Entry that has been added by this thread.
+     */
+    private void parse(String key, String hash, String fileName, Entry entry) {
+        long start = System.nanoTime();
+        Level level;
+        try {
+            level = new Level(fileName);
+        } catch (LevelException | RuntimeException e) {
+            synchronized (this) {
+                loadNanos += System.nanoTime() - start;
+                levels.remove(key, entry);
+            }
+            entry.level.completeExceptionally(e);
+            return;
+        }
+        long footprint = level.getTemplate().footprint();
+        synchronized (this) {
+            loadNanos += System.nanoTime() - start;
+            //The file may have changed since it was hashed.
+            if (footprint > maxBytes || !HexFormat.of().formatHex(level.getContentHash()).equals(hash)) {
+                levels.remove(key);
+            } else {
+                entry.bytes = footprint;
+                bytes += footprint;
+                evict();
+            }
+        }
+        entry.level.complete(level);
+    }
+
+    /**
+     * Removes the least recently used parsed levels until the cache fits in {@link #maxBytes}.
+     */
+    private void evict() {
+        Iterator<Entry> iterator = levels.values().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.bytes > 0) {
+                iterator.remove();
+                bytes -= entry.bytes;
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * Returns the SHA-256 of the content of a level file, as in {@link Level#getContentHash()}.
+     *
+     * @param fileName Name of the level file.
+     * @return Hash in hexadecimal.
+     * @throws LevelException When the file cannot be read.
+     */
+    private static String hash(String fileName) throws LevelException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            //Every Java platform must support SHA-256.
+            throw new IllegalStateException(e);
+        }
+        try (InputStream inputStream = Objects.requireNonNull(Level.open(fileName))) {
+            byte[] buffer = new byte[8192];
+            for (int read = inputStream.read(buffer); read >= 0; read = inputStream.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new LevelException(LevelException.PARSING_LEVEL_FILE_ERROR);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Cached level, or the result of a parse in progress.
+     */
+    private static final class Entry {
+
+        /**
+         * Level in its initial state, which is never played: callers get new sessions of it.
+         */
+        private final CompletableFuture<Level> level = new CompletableFuture<>();
+
+        /**
+         * Estimated memory of the level, or {@code 0} while it is being parsed.
+         */
+        private long bytes;
+    }
+}
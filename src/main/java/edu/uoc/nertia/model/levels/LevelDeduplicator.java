@@ -0,0 +1,91 @@
+package edu.uoc.nertia.model.levels;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Finds the levels of a catalog that are rotations or reflections of each other, by their {@link CanonicalForm}.
+ * <p>
+ * Usage: {@code LevelDeduplicator <file or folder>...}. Folders are searched for {@code .txt} files. It prints
+ * each group of equivalent levels with the symmetry that turns the first one into each of the others, and the
+ * files that cannot be parsed.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public abstract class LevelDeduplicator {
+
+    /**
+     * Groups level files by canonical form, keeping the order of the files.
+     *
+     * @param fileNames Names of the level files, as in {@link Level#Level(String)}.
+     * @return Names of the files of each canonical form. Forms with only one file are included.
+     * @throws LevelException When a level file is wrong.
+     */
+    public static Map<CanonicalForm, List<String>> group(List<String> fileNames) throws LevelException {
+        Map<CanonicalForm, List<String>> groups = new LinkedHashMap<>();
+        for (String fileName : fileNames) {
+            groups.computeIfAbsent(CanonicalForm.of(new Level(fileName)), form -> new ArrayList<>()).add(fileName);
+        }
+        return groups;
+    }
+
+    /**
+     * Runs the tool.
+     *
+     * @param args Level files and folders.
+     * @throws IOException When a folder cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> fileNames = new ArrayList<>();
+        for (String arg : args) {
+            Path path = Path.of(arg);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.walk(path)) {
+                    files.filter(file -> Files.isRegularFile(file) && file.toString().endsWith(".txt"))
+                            .sorted()
+                            .forEach(file -> fileNames.add(file.toString()));
+                }
+            } else {
+                fileNames.add(arg);
+            }
+        }
+
+        Map<CanonicalForm, List<String>> groups = new LinkedHashMap<>();
+        Map<String, CanonicalForm> forms = new LinkedHashMap<>();
+        for (String fileName : fileNames) {
+            try {
+                CanonicalForm form = CanonicalForm.of(new Level(fileName));
+                forms.put(fileName, form);
+                groups.computeIfAbsent(form, key -> new ArrayList<>()).add(fileName);
+            } catch (LevelException | RuntimeException e) {
+                System.out.println("Cannot parse " + fileName + ": " + e.getMessage());
+            }
+        }
+
+        int duplicates = 0;
+        for (Map.Entry<CanonicalForm, List<String>> group : groups.entrySet()) {
+            List<String> names = group.getValue();
+            if (names.size() < 2) {
+                continue;
+            }
+            System.out.println(group.getKey().getHash() + " (" + names.size() + " levels)");
+            Symmetry first = forms.get(names.get(0)).getSymmetry();
+            for (String name : names) {
+                Symmetry toName = first.then(forms.get(name).getSymmetry().inverse());
+                System.out.println("    " + name + " = " + toName);
+            }
+            duplicates += names.size() - 1;
+        }
+        System.out.printf("%d levels, %d distinct, %d duplicates%n", forms.size(), groups.size(), duplicates);
+    }
+}
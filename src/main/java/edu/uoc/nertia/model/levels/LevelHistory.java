@@ -0,0 +1,247 @@
+package edu.uoc.nertia.model.levels;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.utils.Direction;
+import edu.uoc.nertia.model.utils.MoveResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * History of the actions (moves and undos) done in a {@link Level}, which allows going back and forth in time.
+ * <p>
+ * Every action is stored as one byte. Every {@code checkpointInterval} actions a {@link Checkpoint} of the level
+ * is taken, so seeking to any point restores the nearest previous checkpoint and replays at most
+ * {@code checkpointInterval - 1} actions. Memory grows by one byte per action plus one checkpoint per interval.
+ * </p>
+ * <p>
+ * Seeking does not forget the future: it is possible to go back and forth. However, doing a new action
+ * when the history is not at its end discards the actions after that point, together with their checkpoints and
+ * the undo records that only those checkpoints needed. A level must not have more than one history.
+ * </p>
+ * <p>
+ * {@link #seek(int)} brings back the score too, as when reviewing a game. Players should use
+ * {@link #seekWithPenalty(int)}, so that going back never costs less than undoing.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class LevelHistory {
+
+    /**
+     * Number of actions between two checkpoints when none is given.
+     */
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 64;
+
+    /**
+     * Code of an undo in {@link #actions}. Moves are stored as the ordinal of their {@link Direction}.
+     */
+    private static final byte UNDO = (byte) Direction.values().length;
+
+    /**
+     * Cached copy of {@link Direction#values()} to decode {@link #actions}.
+     */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * Level whose actions are recorded.
+     */
+    private final Level level;
+
+    /**
+     * Engine that applies the moves to {@link #level}.
+     */
+    private final MoveEngine engine;
+
+    /**
+     * Number of actions between two checkpoints.
+     */
+    private final int checkpointInterval;
+
+    /**
+     * Checkpoint {@code i} is the state of the level after {@code i * checkpointInterval} actions.
+     */
+    private final List<Checkpoint> checkpoints;
+
+    /**
+     * Recorded actions.
+     */
+    private byte[] actions;
+
+    /**
+     * Number of recorded actions.
+     */
+    private int size;
+
+    /**
+     * Number of actions applied to the level, i.e. where the level is in the history.
+     */
+    private int position;
+
+    /**
+     * Constructor. The current state of the level is the beginning of the history.
+     *
+     * @param level Level whose actions are recorded.
+     * @param engine Engine that applies the moves to {@code level}.
+     * @param checkpointInterval Number of actions between two checkpoints.
+     * @throws IllegalArgumentException When {@code checkpointInterval} is less than 1.
+     */
+    public LevelHistory(Level level, MoveEngine engine, int checkpointInterval) {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("The checkpoint interval must be greater than 0");
+        }
+        this.level = Objects.requireNonNull(level);
+        this.engine = Objects.requireNonNull(engine);
+        this.checkpointInterval = checkpointInterval;
+        this.checkpoints = new ArrayList<>();
+        this.checkpoints.add(level.checkpoint());
+        this.actions = new byte[checkpointInterval];
+    }
+
+    /**
+     * Moves the player and records the move if it changes the level (i.e. it is not {@link MoveResult#KO}).
+     *
+     * @param direction Direction to move the player in.
+     * @return Result of the move.
+     */
+    public MoveResult move(Direction direction) {
+        MoveResult result = engine.move(direction);
+        if (result != MoveResult.KO) {
+            record((byte) direction.ordinal());
+        }
+        return result;
+    }
+
+    /**
+     * Moves the player with an outcome that is already known, as in {@link MoveEngine#apply(MoveOutcome)}, and
+     * records the move like {@link #move(Direction)}.
+     *
+     * @param direction Direction to move the player in.
+     * @param outcome Outcome of that move in the current state of the level.
+     * @return Result of the move.
+     */
+    public MoveResult move(Direction direction, MoveOutcome outcome) {
+        MoveResult result = engine.apply(outcome);
+        if (result != MoveResult.KO) {
+            record((byte) direction.ordinal());
+        }
+        return result;
+    }
+
+    /**
+     * Undoes the last move and records the undo if there was a move to undo.
+     *
+     * @return {@code true} if one move has been undone, otherwise {@code false}.
+     * @throws LevelException When the level cannot be restored.
+     */
+    public boolean undo() throws LevelException {
+        if (level.undo()) {
+            record(UNDO);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of recorded actions.
+     *
+     * @return Number of actions.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of actions that are applied to the level.
+     *
+     * @return Position in the history, from 0 to {@link #size()}.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Leaves the level as it was after the given number of actions.
+     *
+     * @param target Number of actions, from 0 to {@link #size()}.
+     * @return {@code true} if the level has been moved to {@code target}, {@code false} if it is out of the history.
+     * @throws LevelException When the level cannot be restored.
+     */
+    public boolean seek(int target) throws LevelException {
+        if (target < 0 || target > size) {
+            return false;
+        }
+        int checkpoint = target / checkpointInterval;
+        level.restore(checkpoints.get(checkpoint));
+        for (int i = checkpoint * checkpointInterval; i < target; i++) {
+            apply(actions[i]);
+        }
+        position = target;
+        return true;
+    }
+
+    /**
+     * Seeks like {@link #seek(int)}, but going back keeps the undo penalty in the score, as if the moves in between
+     * had been undone one by one. The moves and undos that the level forgets still count, and each move that is
+     * gone back over counts as one more undo. Going forward counts the actions in between as if they were played.
+     *
+     * @param target Number of actions, from 0 to {@link #size()}.
+     * @return {@code true} if the level has been moved to {@code target}, {@code false} if it is out of the history.
+     * @throws LevelException When the level cannot be restored.
+     */
+    public boolean seekWithPenalty(int target) throws LevelException {
+        boolean back = target < position;
+        int numMoves = level.getNumMoves();
+        int numUndos = level.getNumUndos();
+        if (!seek(target)) {
+            return false;
+        }
+        if (back) {
+            int rewoundMoves = numMoves - level.getNumMoves();
+            level.keepInScore(rewoundMoves, numUndos - level.getNumUndos() + rewoundMoves);
+        }
+        return true;
+    }
+
+    /**
+     * Applies a recorded action to the level without recording it again.
+     *
+     * @param action Code of the action.
+     * @throws LevelException When the level cannot be restored.
+     */
+    private void apply(byte action) throws LevelException {
+        if (action == UNDO) {
+            level.undo();
+        } else {
+            engine.move(DIRECTIONS[action]);
+        }
+    }
+
+    /**
+     * Appends an action that has just been applied and takes a checkpoint when it is due.
+     * If the history was not at its end, the actions after the current position are discarded.
+     *
+     * @param action Code of the action.
+     */
+    private void record(byte action) {
+        if (position < size) {
+            size = position;
+            List<Checkpoint> future = checkpoints.subList(position / checkpointInterval + 1, checkpoints.size());
+            if (!future.isEmpty()) {
+                future.clear();
+                level.release(checkpoints.get(checkpoints.size() - 1));
+            }
+        }
+        if (size == actions.length) {
+            actions = Arrays.copyOf(actions, actions.length * 2);
+        }
+        actions[size++] = action;
+        position = size;
+        if (position % checkpointInterval == 0) {
+            checkpoints.add(level.checkpoint());
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package edu.uoc.nertia.model.levels;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.utils.Direction;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copy of a level that follows the actions of the player in the background, so that its states can be analysed
+ * without slowing down the game.
+ * <p>
+ * The mirror plays its own session of the level, because the slide tables of a level cannot be read by a thread
+ * while another one changes its board. The actions of the player are only queued in the caller's thread. A worker
+ * thread applies them to the copy in the same order and, after the last queued one, lets every {@link Listener}
+ * analyse the resulting state. The states of older actions are skipped.
+ * </p>
+ * <p>
+ * All the mirrors share a bounded pool of daemon threads, which stop when they are idle. The actions of a mirror
+ * are never applied by two threads at the same time. So a mirror that is not closed keeps no thread alive.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class LevelMirror implements AutoCloseable {
+
+    /**
+     * Seconds that an idle worker thread waits for new work before it stops.
+     */
+    private static final long KEEP_ALIVE = 30;
+
+    /**
+     * Worker threads shared by all the mirrors.
+     */
+    private static final ThreadPoolExecutor WORKERS = newWorkers();
+
+    /**
+     * Copy of the level, only used by the worker thread.
+     */
+    private final Level level;
+
+    /**
+     * History of the copy, only used by the worker thread.
+     */
+    private final LevelHistory history;
+
+    /**
+     * Listeners, in the order in which they analyse each state.
+     */
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Actions queued and not started yet, in order.
+     */
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    /**
+     * Whether a worker thread is applying the actions of {@link #tasks}.
+     */
+    private boolean draining;
+
+    /**
+     * Whether the mirror has been closed.
+     */
+    private boolean closed;
+
+    /**
+     * Number of actions queued so far.
+     */
+    private long version;
+
+    /**
+     * Number of the last action that the worker has finished.
+     */
+    private long finished;
+
+    /**
+     * Constructor. The copy starts in the initial state of the level.
+     *
+     * @param level Level played by the player. Only its template is used, so it can be in any state.
+     */
+    public LevelMirror(Level level) {
+        this.level = level.newSession(true);
+        this.history = new LevelHistory(this.level, new MoveEngine(this.level),
+                LevelHistory.DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * Creates the pool of {@link #WORKERS}: one daemon thread per processor at most.
+     *
+     * @return Pool of worker threads.
+     */
+    private static ThreadPoolExecutor newWorkers() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), task -> {
+                    Thread thread = new Thread(task, "level-mirror");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        workers.allowCoreThreadTimeOut(true);
+        return workers;
+    }
+
+    /**
+     * Adds a listener and queues the analysis of the current state, so that it also analyses that one.
+     *
+     * @param listener Listener to add.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        submit(null, true);
+    }
+
+    /**
+     * Removes a listener. An analysis that is running is not stopped.
+     *
+     * @param listener Listener to remove.
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Queues a move of the player. It must be called after every move, including invalid ones.
+     *
+     * @param direction Direction that the player has moved in.
+     */
+    public void moved(Direction direction) {
+        submit(() -> history.move(direction), false);
+    }
+
+    /**
+     * Queues an undo. It must be called after every undo that has undone a move.
+     */
+    public void undone() {
+        submit(history::undo, true);
+    }
+
+    /**
+     * Queues a seek in the history of the level. It must be called after every successful seek.
+     *
+     * @param action Number of actions, as in {@link LevelHistory#seek(int)}.
+     */
+    public void sought(int action) {
+        submit(() -> history.seek(action), true);
+    }
+
+    /**
+     * Checks if no action has been queued after the given one, i.e. if its analysis is still worth finishing.
+     *
+     * @param action Number of the action, as given to {@link Listener#analyse(Level, long)}.
+     * @return {@code true} if it is the last queued action.
+     */
+    public synchronized boolean isLatest(long action) {
+        return action == version;
+    }
+
+    /**
+     * Waits until every queued action has been applied and analysed, e.g. in tests.
+     *
+     * @param timeout Maximum time to wait, in milliseconds.
+     * @return {@code true} if the worker has finished, {@code false} if the time has run out.
+     * @throws InterruptedException When the thread is interrupted while waiting.
+     */
+    public boolean await(long timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        synchronized (this) {
+            while (finished != version) {
+                long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (left <= 0) {
+                    return false;
+                }
+                wait(left);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Discards the queued actions and ignores the next ones. An analysis that is running is not stopped.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        tasks.clear();
+        finished = version;
+        notifyAll();
+    }
+
+    /**
+     * Queues an action and the analysis of the resulting state.
+     *
+     * @param action Action to apply to the copy, or {@code null} to analyse the current state.
+     * @param restores Whether the action can bring gems back.
+     */
+    private void submit(Action action, boolean restores) {
+        long current;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            current = ++version;
+        }
+        for (Listener listener : listeners) {
+            listener.queued(restores);
+        }
+        enqueue(() -> {
+            try {
+                if (action != null) {
+                    action.apply();
+                }
+                for (Listener listener : listeners) {
+                    if (!isLatest(current)) {
+                        break;
+                    }
+                    listener.analyse(level, current);
+                }
+            } catch (LevelException | RuntimeException e) {
+                //The copy is out of step: the listeners keep what they had, e.g. an unknown state.
+            } finally {
+                synchronized (this) {
+                    finished = Math.max(finished, current);
+                    notifyAll();
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds a task to {@link #tasks} and, unless a worker thread is already applying them, hands them to one.
+     *
+     * @param task Task to run after the queued ones.
+     */
+    private void enqueue(Runnable task) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            tasks.add(task);
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        WORKERS.execute(this::drain);
+    }
+
+    /**
+     * Runs the queued tasks in order until there are none left. It is run by a worker thread.
+     */
+    private void drain() {
+        while (true) {
+            Runnable task;
+            synchronized (this) {
+                task = tasks.poll();
+                if (task == null) {
+                    draining = false;
+                    return;
+                }
+            }
+            task.run();
+        }
+    }
+
+    /**
+     * Component that analyses the states of a {@link LevelMirror}.
+     */
+    public interface Listener {
+
+        /**
+         * Called in the caller's thread when an action is queued, before it is applied.
+         *
+         * @param restores Whether the action can bring gems back, i.e. it is an undo, a seek or a new listener.
+         */
+        void queued(boolean restores);
+
+        /**
+         * Called in the worker thread with the state after the last queued action.
+         *
+         * @param level Copy of the level. It must not be changed.
+         * @param action Number of the action, for {@link LevelMirror#isLatest(long)}.
+         */
+        void analyse(Level level, long action);
+    }
+
+    /**
+     * Action applied to the copy of the level.
+     */
+    @FunctionalInterface
+    private interface Action {
+        void apply() throws LevelException;
+    }
+}
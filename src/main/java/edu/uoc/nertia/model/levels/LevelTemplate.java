@@ -0,0 +1,203 @@
+package edu.uoc.nertia.model.levels;
+
+import java.util.Arrays;
+
+/**
+ * Immutable result of parsing a level file, shared by all the {@link Level} sessions of that file.
+ * <p>
+ * It keeps the initial board, the numbering of its gems and extra lives and the slide tables of the whole board,
+ * which are computed once. A session created with {@link Level#newSession()} only keeps what changes while
+ * playing (the player's cell, the mask of collected items and the counters) and reads the rest from here, so
+ * creating or reloading a session does not read the file or copy the board. A session only copies the board when
+ * it is changed in a way that playing cannot do (e.g. {@link Level#setCell} with a wall).
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class LevelTemplate {
+
+    /**
+     * Number of rows and columns of the board.
+     */
+    private final int size;
+
+    /**
+     * Difficulty of the level.
+     */
+    private final LevelDifficulty difficulty;
+
+    /**
+     * Initial lives, as stored by {@link Level} (i.e. {@code -1} if they are unlimited).
+     */
+    private final int numLives;
+
+    /**
+     * Initial board, one {@link edu.uoc.nertia.model.cells.Element} ordinal per cell. It is never modified.
+     */
+    private final byte[] board;
+
+    /**
+     * Cell of the player in {@link #board}.
+     */
+    private final int playerIndex;
+
+    /**
+     * Number of the item of each cell, or {@code -1}.
+     */
+    private final int[] itemIndex;
+
+    /**
+     * Cell of each item.
+     */
+    private final int[] itemCells;
+
+    /**
+     * Element ordinal of each item.
+     */
+    private final byte[] itemKinds;
+
+    /**
+     * Zobrist hash of the initial state.
+     */
+    private final long stateHash;
+
+    /**
+     * Number of gems of the board.
+     */
+    private final int numGemsInit;
+
+    /**
+     * Slide tables of {@link #board}, with every line computed. They are never modified.
+     */
+    private final SlideTable slideTable;
+
+    /**
+     * Constructor. The arrays are not copied: they belong to the template from now on.
+     *
+     * @param size Number of rows and columns of the board.
+     * @param difficulty Difficulty of the level.
+     * @param numLives Initial lives, {@code -1} if they are unlimited.
+     * @param board Initial board.
+     * @param playerIndex Cell of the player.
+     * @param itemIndex Number of the item of each cell, or {@code -1}.
+     * @param itemCells Cell of each item. Only the first {@code numItems} entries are kept.
+     * @param itemKinds Element ordinal of each item. Only the first {@code numItems} entries are kept.
+     * @param numItems Number of items.
+     * @param stateHash Zobrist hash of the initial state.
+     * @param numGemsInit Number of gems of the board.
+     */
+    LevelTemplate(int size, LevelDifficulty difficulty, int numLives, byte[] board, int playerIndex,
+                  int[] itemIndex, int[] itemCells, byte[] itemKinds, int numItems, long stateHash, int numGemsInit) {
+        this.size = size;
+        this.difficulty = difficulty;
+        this.numLives = numLives;
+        this.board = board;
+        this.playerIndex = playerIndex;
+        this.itemIndex = itemIndex;
+        this.itemCells = Arrays.copyOf(itemCells, numItems);
+        this.itemKinds = Arrays.copyOf(itemKinds, numItems);
+        this.stateHash = stateHash;
+        this.numGemsInit = numGemsInit;
+        this.slideTable = new SlideTable(size, board);
+        this.slideTable.validateAll();
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public LevelDifficulty getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * Returns the initial lives of the level.
+     *
+     * @return Number of lives, or {@link Integer#MAX_VALUE} if they are unlimited.
+     */
+    public int getNumLives() {
+        return numLives < 0 ? Integer.MAX_VALUE : numLives;
+    }
+
+    public int getNumGemsInit() {
+        return numGemsInit;
+    }
+
+    /**
+     * Returns the initial lives as stored by {@link Level}.
+     *
+     * @return Number of lives, or {@code -1} if they are unlimited.
+     */
+    int getRawNumLives() {
+        return numLives;
+    }
+
+    /**
+     * Returns the initial board. It must not be modified.
+     *
+     * @return Board of the level.
+     */
+    byte[] getBoard() {
+        return board;
+    }
+
+    int getPlayerIndex() {
+        return playerIndex;
+    }
+
+    /**
+     * Returns the number of the item of each cell. It must not be modified.
+     *
+     * @return Item numbers by cell.
+     */
+    int[] getItemIndex() {
+        return itemIndex;
+    }
+
+    /**
+     * Returns the cell of each item. It must not be modified.
+     *
+     * @return Cells by item number.
+     */
+    int[] getItemCells() {
+        return itemCells;
+    }
+
+    /**
+     * Returns the element ordinal of each item. It must not be modified.
+     *
+     * @return Element ordinals by item number.
+     */
+    byte[] getItemKinds() {
+        return itemKinds;
+    }
+
+    int getNumItems() {
+        return itemCells.length;
+    }
+
+    long getStateHash() {
+        return stateHash;
+    }
+
+    /**
+     * Returns an estimate of the memory used by this template, e.g. to bound a cache of templates.
+     *
+     * @return Number of bytes.
+     */
+    long footprint() {
+        return board.length + (long) Integer.BYTES * (itemIndex.length + itemCells.length) + itemKinds.length
+                + slideTable.footprint();
+    }
+
+    /**
+     * Returns the slide tables of the initial board. They must only be read, or copied with
+     * {@link SlideTable#SlideTable(SlideTable, byte[])}.
+     *
+     * @return Slide tables.
+     */
+    SlideTable getSlideTable() {
+        return slideTable;
+    }
+}
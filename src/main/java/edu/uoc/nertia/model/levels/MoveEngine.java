@@ -0,0 +1,312 @@
+package edu.uoc.nertia.model.levels;
+
+import edu.uoc.nertia.model.cells.Element;
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.utils.Direction;
+import edu.uoc.nertia.model.utils.MoveResult;
+import edu.uoc.nertia.model.utils.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Applies the moves of the player to a {@link Level}.
+ * <p>
+ * Slides are resolved with the level's {@link SlideTable}, so a move costs O(1) plus the number of
+ * collectibles that lie on its path, instead of walking the board cell by cell.
+ * </p>
+ * <p>
+ * This is the engine API of the level: it works with flat cell indexes ({@code row * size + column})
+ * instead of {@link Position} objects and returns {@link #OUT_OF_BOARD} instead of throwing exceptions.
+ * A move does not allocate anything: its undo record is packed in the level's undo stack.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class MoveEngine {
+
+    /**
+     * Index returned when the requested cell is out of the board.
+     */
+    public static final int OUT_OF_BOARD = -1;
+
+    /**
+     * Level whose board is modified by the moves.
+     */
+    private final Level level;
+
+    /**
+     * Reusable buffer with the indexes of the collectibles on the path of the current move.
+     * A path is never longer than a row or a column. Once collected, cells are replaced by their item numbers.
+     */
+    private final int[] path;
+
+    /**
+     * Constructor
+     *
+     * @param level Level in which the moves are done.
+     */
+    public MoveEngine(Level level) {
+        this.level = Objects.requireNonNull(level);
+        this.path = new int[level.getSize()];
+    }
+
+    /**
+     * Returns the number of rows and columns of the board.
+     *
+     * @return Size of the board.
+     */
+    public int getSize() {
+        return level.getSize();
+    }
+
+    /**
+     * Returns the index of the cell where the player is.
+     *
+     * @return Index of the player's cell, or {@link #OUT_OF_BOARD} if there is no player.
+     */
+    public int getPlayerIndex() {
+        return level.getPlayerIndex();
+    }
+
+    /**
+     * Returns the index of the cell {@code (row, column)}.
+     *
+     * @param row Row of the cell.
+     * @param column Column of the cell.
+     * @return Index of the cell, or {@link #OUT_OF_BOARD} if it is not in the board.
+     */
+    public int indexOf(int row, int column) {
+        int size = level.getSize();
+        if (row < 0 || row >= size || column < 0 || column >= size) {
+            return OUT_OF_BOARD;
+        }
+        return row * size + column;
+    }
+
+    /**
+     * Returns the index of the cell next to {@code index} in the given direction.
+     *
+     * @param index Index of a cell of the board.
+     * @param direction Direction of the neighbour.
+     * @return Index of the neighbour, or {@link #OUT_OF_BOARD} if it is not in the board.
+     */
+    public int neighbour(int index, Direction direction) {
+        int size = level.getSize();
+        if (index < 0 || index >= size * size) {
+            return OUT_OF_BOARD;
+        }
+        return indexOf(index / size + direction.getRowOffset(), index % size + direction.getColumnOffset());
+    }
+
+    /**
+     * Returns the element of the cell at the given index.
+     *
+     * @param index Index of the cell.
+     * @return Element of the cell, or {@code null} if the index is {@link #OUT_OF_BOARD}.
+     */
+    public Element getElement(int index) {
+        int size = level.getSize();
+        if (index < 0 || index >= size * size) {
+            return null;
+        }
+        return level.getElement(index);
+    }
+
+    /**
+     * Returns where a slide would stop, without changing the level. It follows the same rules as
+     * {@link #move(Direction)}, so it can be used to explore the level (e.g. by a solver).
+     *
+     * @param origin Index of the cell where the slide starts.
+     * @param direction Direction of the slide.
+     * @return Index of the cell where the player would end up ({@code origin} if the slide is blocked),
+     * or {@link #OUT_OF_BOARD} if the player would die or {@code origin} is not in the board.
+     */
+    public int slide(int origin, Direction direction) {
+        if (origin < 0 || origin >= level.getSize() * level.getSize()) {
+            return OUT_OF_BOARD;
+        }
+        int entry = level.getSlideTable().slide(direction, origin);
+        return SlideTable.kindOf(entry) == SlideTable.MINE ? OUT_OF_BOARD : SlideTable.stopOf(entry);
+    }
+
+    /**
+     * Returns the gems and extra lives that a slide would collect, without changing the level.
+     * A slide that ends in a mine collects nothing, because whatever is collected on the way is given back.
+     *
+     * @param origin Index of the cell where the slide starts.
+     * @param direction Direction of the slide.
+     * @param items Buffer that receives the indexes of the collected cells. It must hold {@link #getSize()} entries.
+     * @return Number of entries of {@code items} that have been filled.
+     */
+    public int collectibles(int origin, Direction direction, int[] items) {
+        int stop = slide(origin, direction);
+        if (stop == OUT_OF_BOARD) {
+            return 0;
+        }
+        return gather(direction, origin, stop, items);
+    }
+
+    /**
+     * Returns what {@link #move(Direction)} would do, without changing the board or the counters of the level.
+     * Nothing is written and rolled back, so asking for the four directions costs four table lookups plus the
+     * collectibles on their paths.
+     *
+     * @param direction Direction to move the player in.
+     * @return Outcome of the move.
+     */
+    public MoveOutcome peek(Direction direction) {
+        int origin = level.getPlayerIndex();
+        int entry = level.getSlideTable().slide(direction, origin);
+        int stop = SlideTable.stopOf(entry);
+        int kind = SlideTable.kindOf(entry);
+        boolean unlimited = level.getNumLives() == Integer.MAX_VALUE;
+
+        if (kind == SlideTable.MINE) {
+            return new MoveOutcome(MoveResult.DIE, level.positionOf(origin), List.of(), List.of(), unlimited ? 0 : -1);
+        }
+        if (kind == SlideTable.WALL && stop == origin) {
+            return new MoveOutcome(MoveResult.KO, level.positionOf(origin), List.of(), List.of(), 0);
+        }
+
+        int[] items = new int[level.getSize()];
+        int numItems = gather(direction, origin, stop, items);
+        List<Position> gems = new ArrayList<>(numItems);
+        List<Position> lives = new ArrayList<>(0);
+        for (int i = 0; i < numItems; i++) {
+            if (level.getElement(items[i]) == Element.GEM) {
+                gems.add(level.positionOf(items[i]));
+            } else {
+                lives.add(level.positionOf(items[i]));
+            }
+        }
+        return new MoveOutcome(MoveResult.OK, level.positionOf(stop), gems, lives, unlimited ? 0 : lives.size());
+    }
+
+    /**
+     * Fills a buffer with the collectibles between two cells of the same line.
+     *
+     * @param direction Direction of the slide.
+     * @param origin Index of the cell where the slide starts (excluded).
+     * @param stop Index of the cell where the slide stops (included).
+     * @param items Buffer that receives the indexes of the collectibles.
+     * @return Number of collectibles.
+     */
+    private int gather(Direction direction, int origin, int stop, int[] items) {
+        if (stop == origin) {
+            return 0;
+        }
+        SlideTable table = level.getSlideTable();
+        int step = direction.getRowOffset() * level.getSize() + direction.getColumnOffset();
+        int numItems = 0;
+        for (int item = table.nextItem(direction, origin);
+             item != SlideTable.NONE && (item - stop) * step <= 0;
+             item = table.nextItem(direction, item)) {
+            if (!level.isCollected(item)) {
+                items[numItems++] = item;
+            }
+        }
+        return numItems;
+    }
+
+    /**
+     * Moves the player in the given direction. If the move ends in:
+     * <ul>
+     * <li>a mine, then the board is left as it was, the player loses one life and it returns {@link MoveResult#DIE}</li>
+     * <li>another kind of cell, then it returns {@link MoveResult#OK}</li>
+     * </ul>
+     * If the first cell is a wall, then it returns {@link MoveResult#KO} (i.e. INVALID move).
+     *
+     * @param direction Direction to move the player in.
+     * @return Result of the move.
+     */
+    public MoveResult move(Direction direction) {
+        SlideTable table = level.getSlideTable();
+        int origin = level.getPlayerIndex();
+        Element originElement = level.getElement(origin);
+        int entry = table.slide(direction, origin);
+        int stop = SlideTable.stopOf(entry);
+        int kind = SlideTable.kindOf(entry);
+
+        if (kind == SlideTable.MINE) {
+            //Whatever was collected on the way is given back, so the board does not change.
+            level.decreaseNumLives();
+            level.increaseNumMoves();
+            return MoveResult.DIE;
+        }
+
+        if (kind == SlideTable.WALL && stop == origin) {
+            return MoveResult.KO;
+        }
+
+        int numItems = gather(direction, origin, stop, path);
+
+        if (stop != origin) {
+            level.setElement(origin, originElement == Element.PLAYER_STOP ? Element.STOP : Element.EMPTY);
+            for (int i = 0; i < numItems; i++) {
+                level.collect(level.getElement(path[i]));
+                level.setElement(path[i], Element.EMPTY);
+                path[i] = level.getItem(path[i]);
+            }
+            level.setElement(stop, kind == SlideTable.STOP ? Element.PLAYER_STOP : Element.PLAYER);
+        }
+
+        level.increaseNumMoves();
+        level.record(origin, originElement, path, numItems);
+        return MoveResult.OK;
+    }
+
+    /**
+     * Moves the player like {@link #move(Direction)}, but with an outcome that is already known, e.g. one computed
+     * in the background by {@link MovePredictor}. The slide is not resolved again.
+     *
+     * @param outcome Outcome of the move, as returned by {@link #peek(Direction)} in the current state of the level.
+     * @return Result of the move.
+     */
+    public MoveResult apply(MoveOutcome outcome) {
+        if (outcome.result() == MoveResult.DIE) {
+            level.decreaseNumLives();
+            level.increaseNumMoves();
+            return MoveResult.DIE;
+        }
+
+        if (outcome.result() == MoveResult.KO) {
+            return MoveResult.KO;
+        }
+
+        int origin = level.getPlayerIndex();
+        Element originElement = level.getElement(origin);
+        int stop = indexOf(outcome.destination().getRow(), outcome.destination().getColumn());
+        int numItems = 0;
+
+        if (stop != origin) {
+            level.setElement(origin, originElement == Element.PLAYER_STOP ? Element.STOP : Element.EMPTY);
+            numItems = collect(outcome.collectedGems(), numItems);
+            numItems = collect(outcome.collectedLives(), numItems);
+            level.setElement(stop, level.getElement(stop) == Element.STOP ? Element.PLAYER_STOP : Element.PLAYER);
+        }
+
+        level.increaseNumMoves();
+        level.record(origin, originElement, path, numItems);
+        return MoveResult.OK;
+    }
+
+    /**
+     * Collects the given cells and appends their item numbers to {@link #path}.
+     *
+     * @param cells Cells of the gems or extra lives to collect.
+     * @param numItems Number of entries of {@link #path} that are already filled.
+     * @return Number of entries of {@link #path} that are filled afterwards.
+     */
+    private int collect(List<Position> cells, int numItems) {
+        for (Position cell : cells) {
+            int index = indexOf(cell.getRow(), cell.getColumn());
+            level.collect(level.getElement(index));
+            level.setElement(index, Element.EMPTY);
+            path[numItems++] = level.getItem(index);
+        }
+        return numItems;
+    }
+}
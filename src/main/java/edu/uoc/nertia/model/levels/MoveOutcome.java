@@ -0,0 +1,30 @@
+package edu.uoc.nertia.model.levels;
+
+import edu.uoc.nertia.model.utils.MoveResult;
+import edu.uoc.nertia.model.utils.Position;
+
+import java.util.List;
+
+/**
+ * What a move would do, as returned by {@link MoveEngine#peek(edu.uoc.nertia.model.utils.Direction)}.
+ *
+ * @param result Result that the move would return.
+ * @param destination Cell where the player would end up. It is the current one when the move is blocked or dies.
+ * @param collectedGems Cells of the gems that would be collected, in the order of the slide.
+ * @param collectedLives Cells of the extra lives that would be collected, in the order of the slide.
+ * @param livesDelta Change of the number of lives, i.e. {@code -1} when dying and the number of extra lives
+ *                   otherwise ({@code 0} when the lives are unlimited).
+ * @author agent
+ * @version 1.0
+ */
+public record MoveOutcome(MoveResult result, Position destination, List<Position> collectedGems,
+                          List<Position> collectedLives, int livesDelta) {
+
+    /**
+     * Constructor. The lists are copied, so the outcome cannot change.
+     */
+    public MoveOutcome {
+        collectedGems = List.copyOf(collectedGems);
+        collectedLives = List.copyOf(collectedLives);
+    }
+}
@@ -0,0 +1,131 @@
+package edu.uoc.nertia.model.levels;
+
+import edu.uoc.nertia.model.utils.Direction;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Computes, in the background, the outcomes of the four moves from the current state of a level, so that they are
+ * already known when the player presses a key.
+ * <p>
+ * The predictor listens to a {@link LevelMirror}: after the last queued action, its worker thread stores the
+ * result of {@link MoveEngine#peek(Direction)} in the four directions. Outcomes are cached by
+ * {@link Level#stateHash()} in a bounded LRU map, so going back to a state (e.g. after an undo) finds them too.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class MovePredictor {
+
+    /**
+     * Default maximum number of states whose outcomes are kept.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * Cached copy of {@link Direction#values()}.
+     */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * Outcomes of the four directions by state hash, from the least to the most recently used.
+     */
+    private final Map<Long, MoveOutcome[]> outcomes;
+
+    /**
+     * Number of lookups that have found the outcome.
+     */
+    private long hits;
+
+    /**
+     * Number of lookups that have not found the outcome.
+     */
+    private long misses;
+
+    /**
+     * Constructor. The outcomes of the current state of the mirror are computed right away.
+     *
+     * @param mirror Copy of the level that follows the player.
+     * @param capacity Maximum number of states whose outcomes are kept.
+     * @throws IllegalArgumentException When {@code capacity} is less than 1.
+     */
+    public MovePredictor(LevelMirror mirror, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+        this.outcomes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, MoveOutcome[]> eldest) {
+                return size() > capacity;
+            }
+        };
+        mirror.addListener(new LevelMirror.Listener() {
+            @Override
+            public void queued(boolean restores) {
+            }
+
+            @Override
+            public void analyse(Level level, long action) {
+                predict(level);
+            }
+        });
+    }
+
+    /**
+     * Returns the precomputed outcome of a move. It never waits for the worker.
+     *
+     * @param stateHash Hash of the state of the level, as returned by {@link Level#stateHash()}.
+     * @param direction Direction of the move.
+     * @return Outcome of the move, or {@code null} if it has not been computed (yet).
+     */
+    public synchronized MoveOutcome lookup(long stateHash, Direction direction) {
+        MoveOutcome[] state = outcomes.get(stateHash);
+        if (state == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return state[direction.ordinal()];
+    }
+
+    /**
+     * Returns the number of states whose outcomes are kept.
+     *
+     * @return Number of states.
+     */
+    public synchronized int size() {
+        return outcomes.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Stores the outcomes of the current state of the copy of the level, unless they are already known.
+     *
+     * @param level Copy of the level.
+     */
+    private void predict(Level level) {
+        long stateHash = level.stateHash();
+        synchronized (this) {
+            if (outcomes.containsKey(stateHash)) {
+                return;
+            }
+        }
+        MoveEngine engine = new MoveEngine(level);
+        MoveOutcome[] state = new MoveOutcome[DIRECTIONS.length];
+        for (Direction direction : DIRECTIONS) {
+            state[direction.ordinal()] = engine.peek(direction);
+        }
+        synchronized (this) {
+            outcomes.put(stateHash, state);
+        }
+    }
+}
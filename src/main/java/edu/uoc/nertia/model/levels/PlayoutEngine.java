@@ -0,0 +1,436 @@
+package edu.uoc.nertia.model.levels;
+
+import edu.uoc.nertia.model.cells.Element;
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.utils.Direction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs Monte Carlo playouts (random games) of a level to estimate how hard it is for a player who does not plan.
+ * <p>
+ * The moves of the level are resolved once, when the engine is built: each stop that can be reached from the
+ * player is a node and each of its four slides is either another node (and the items on the way), a death or a
+ * blocked move. Gems and extra lives are not blocks, so the slides never change during a game. A playout only
+ * keeps the node of the player, the mask of collected items and its counters, so every thread plays on its own
+ * cheap copy of the board and a move is a lookup in shared read-only tables that allocates nothing and records no
+ * undo. The results are the same as playing with {@link MoveEngine#move(Direction)}.
+ * </p>
+ * <p>
+ * Usage: {@code PlayoutEngine <level file> [playouts] [RANDOM|BIASED] [max moves]}, which prints the statistics
+ * with one thread and with all the cores.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class PlayoutEngine {
+
+    /**
+     * Default maximum number of moves of a playout.
+     */
+    public static final int DEFAULT_MAX_MOVES = 1000;
+
+    /**
+     * Target of a slide that is blocked by a wall.
+     */
+    private static final int BLOCKED = -1;
+
+    /**
+     * Target of a slide that ends in a mine.
+     */
+    private static final int DEATH = -2;
+
+    /**
+     * Cached copy of {@link Direction#values()}.
+     */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * Number of directions.
+     */
+    private static final int NUM_DIRECTIONS = DIRECTIONS.length;
+
+    /**
+     * Target node of each slide ({@code node * 4 + direction}), {@link #BLOCKED} or {@link #DEATH}.
+     */
+    private final int[] targets;
+
+    /**
+     * First entry of {@link #items} of each slide. The entries of a slide end where the next one starts.
+     */
+    private final int[] firstItems;
+
+    /**
+     * Items collected by the slides: the item number shifted one bit to the left, plus 1 for an extra life.
+     */
+    private final int[] items;
+
+    /**
+     * Valid (i.e. not blocked) directions of each node, in its first {@link #numValid} entries of four.
+     */
+    private final int[] valid;
+
+    /**
+     * Number of valid directions of each node.
+     */
+    private final int[] numValid;
+
+    /**
+     * Number of words of the mask of collected items.
+     */
+    private final int numWords;
+
+    /**
+     * Gems that remain in the level.
+     */
+    private final int numGems;
+
+    /**
+     * Lives of the player, or {@code -1} if they are unlimited.
+     */
+    private final int numLives;
+
+    /**
+     * Constructor. The current state of the level is the start of every playout and the level is not modified.
+     *
+     * @param level Level to play.
+     * @throws IllegalStateException When the level has no player or it has already been lost.
+     */
+    public PlayoutEngine(Level level) {
+        if (level.getPlayerIndex() < 0 || level.hasLost()) {
+            throw new IllegalStateException("The level cannot be played");
+        }
+        MoveEngine engine = new MoveEngine(level);
+        SlideTable table = level.getSlideTable();
+        int[] nodeOf = new int[level.getSize() * level.getSize()];
+        Arrays.fill(nodeOf, -1);
+        int[] cells = new int[nodeOf.length];
+        int numNodes = 0;
+        cells[numNodes] = level.getPlayerIndex();
+        nodeOf[cells[numNodes++]] = 0;
+
+        int[] targets = new int[nodeOf.length * NUM_DIRECTIONS];
+        int[] firstItems = new int[targets.length + 1];
+        int[] path = new int[level.getSize()];
+        List<Integer> items = new ArrayList<>();
+        for (int node = 0; node < numNodes; node++) {
+            int cell = cells[node];
+            for (Direction direction : DIRECTIONS) {
+                int slide = node * NUM_DIRECTIONS + direction.ordinal();
+                firstItems[slide] = items.size();
+                int entry = table.slide(direction, cell);
+                int stop = SlideTable.stopOf(entry);
+                if (SlideTable.kindOf(entry) == SlideTable.MINE) {
+                    targets[slide] = DEATH;
+                } else if (SlideTable.kindOf(entry) == SlideTable.WALL && stop == cell) {
+                    targets[slide] = BLOCKED;
+                } else {
+                    if (nodeOf[stop] < 0) {
+                        cells[numNodes] = stop;
+                        nodeOf[stop] = numNodes++;
+                    }
+                    targets[slide] = nodeOf[stop];
+                    int numItems = engine.collectibles(cell, direction, path);
+                    for (int i = 0; i < numItems; i++) {
+                        int life = level.getElement(path[i]) == Element.EXTRA_LIFE ? 1 : 0;
+                        items.add(level.getItem(path[i]) << 1 | life);
+                    }
+                }
+            }
+        }
+        firstItems[numNodes * NUM_DIRECTIONS] = items.size();
+
+        this.targets = Arrays.copyOf(targets, numNodes * NUM_DIRECTIONS);
+        this.firstItems = Arrays.copyOf(firstItems, numNodes * NUM_DIRECTIONS + 1);
+        this.items = items.stream().mapToInt(Integer::intValue).toArray();
+        this.valid = new int[numNodes * NUM_DIRECTIONS];
+        this.numValid = new int[numNodes];
+        for (int node = 0; node < numNodes; node++) {
+            for (int direction = 0; direction < NUM_DIRECTIONS; direction++) {
+                if (this.targets[node * NUM_DIRECTIONS + direction] != BLOCKED) {
+                    valid[node * NUM_DIRECTIONS + numValid[node]++] = direction;
+                }
+            }
+        }
+        this.numWords = (level.getNumItems() + 63) >>> 6;
+        this.numGems = level.getNumGemsInit() - level.getNumGemsGot();
+        this.numLives = level.getNumLives() == Integer.MAX_VALUE ? -1 : level.getNumLives();
+    }
+
+    /**
+     * Returns the number of stops that the player can reach without dying.
+     *
+     * @return Number of nodes.
+     */
+    public int getNumNodes() {
+        return numValid.length;
+    }
+
+    /**
+     * Runs playouts in parallel. Each thread has its own copy of the state and its own random generator.
+     *
+     * @param numPlayouts Number of playouts.
+     * @param maxMoves Maximum number of moves of a playout.
+     * @param policy How the player chooses its moves.
+     * @param parallelism Number of threads.
+     * @param seed Seed of the random generators. The statistics only depend on it and on {@code parallelism}.
+     * @return Statistics of the playouts.
+     * @throws IllegalArgumentException When a number is not positive.
+     * @throws InterruptedException When the thread is interrupted while waiting.
+     */
+    public PlayoutStats run(long numPlayouts, int maxMoves, PlayoutPolicy policy, int parallelism, long seed)
+            throws InterruptedException {
+        if (numPlayouts < 1 || maxMoves < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("The number of playouts, moves and threads must be positive");
+        }
+        SplittableRandom seeds = new SplittableRandom(seed);
+        PlayoutStats stats = new PlayoutStats();
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<PlayoutStats>> futures = new ArrayList<>(parallelism);
+            for (int i = 0; i < parallelism; i++) {
+                long share = numPlayouts / parallelism + (i < numPlayouts % parallelism ? 1 : 0);
+                SplittableRandom random = seeds.split();
+                futures.add(pool.submit(() -> new Playout(random).play(share, maxMoves, policy)));
+            }
+            for (Future<PlayoutStats> future : futures) {
+                try {
+                    stats.merge(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        stats.setTiming(System.nanoTime() - start, parallelism);
+        return stats;
+    }
+
+    /**
+     * Plays a given sequence of moves from the start of the level, like {@link MoveEngine#move(Direction)}: blocked
+     * moves are not played and the moves after the end of the game are ignored. It is used to check the tables.
+     *
+     * @param moves Moves of the player.
+     * @return Gems that remain, lives of the player ({@code -1} if they are unlimited) and number of moves played.
+     */
+    int[] replay(List<Direction> moves) {
+        return new Playout(null).replay(moves);
+    }
+
+    /**
+     * State of a game on the tables of the engine. It belongs to a single thread.
+     */
+    private final class Playout {
+
+        /**
+         * Random generator of the thread.
+         */
+        private final SplittableRandom random;
+
+        /**
+         * Mask of collected items.
+         */
+        private final long[] collected = new long[numWords];
+
+        /**
+         * Candidate directions of the biased policy.
+         */
+        private final int[] candidates = new int[NUM_DIRECTIONS];
+
+        /**
+         * Node of the player.
+         */
+        private int node;
+
+        /**
+         * Lives of the player, or {@code -1} if they are unlimited.
+         */
+        private int lives;
+
+        /**
+         * Gems that remain on the board.
+         */
+        private int gems;
+
+        /**
+         * Constructor
+         *
+         * @param random Random generator of the thread.
+         */
+        private Playout(SplittableRandom random) {
+            this.random = random;
+        }
+
+        /**
+         * Plays some games from the start of the level.
+         *
+         * @param count Number of games.
+         * @param maxMoves Maximum number of moves of a game.
+         * @param policy How the player chooses its moves.
+         * @return Statistics of the games.
+         */
+        private PlayoutStats play(long count, int maxMoves, PlayoutPolicy policy) {
+            PlayoutStats stats = new PlayoutStats();
+            for (long game = 0; game < count && !Thread.currentThread().isInterrupted(); game++) {
+                reset();
+                int moves = 0;
+                int deaths = 0;
+                int firstDeath = -1;
+                while (gems > 0 && lives != 0 && moves < maxMoves && numValid[node] > 0) {
+                    int direction = policy == PlayoutPolicy.BIASED ? biased() : valid[node * NUM_DIRECTIONS
+                            + random.nextInt(numValid[node])];
+                    moves++;
+                    if (!move(direction)) {
+                        deaths++;
+                        firstDeath = firstDeath < 0 ? moves : firstDeath;
+                    }
+                }
+                stats.add(gems == 0, lives == 0, moves, deaths, firstDeath);
+            }
+            return stats;
+        }
+
+        /**
+         * Plays the given moves from the start of the level, as {@link PlayoutEngine#replay(List)} describes.
+         *
+         * @param directions Moves of the player.
+         * @return Gems that remain, lives of the player and number of moves played.
+         */
+        private int[] replay(List<Direction> directions) {
+            reset();
+            int moves = 0;
+            for (Direction direction : directions) {
+                if (gems == 0 || lives == 0) {
+                    break;
+                }
+                if (targets[node * NUM_DIRECTIONS + direction.ordinal()] != BLOCKED) {
+                    moves++;
+                    move(direction.ordinal());
+                }
+            }
+            return new int[]{gems, lives, moves};
+        }
+
+        /**
+         * Puts the player back at the start of the level.
+         */
+        private void reset() {
+            node = 0;
+            lives = numLives;
+            gems = numGems;
+            Arrays.fill(collected, 0L);
+        }
+
+        /**
+         * Chooses a move like {@link PlayoutPolicy#BIASED}.
+         *
+         * @return Ordinal of the direction. The node must have some valid direction.
+         */
+        private int biased() {
+            int numGreedy = 0;
+            int numSafe = 0;
+            for (int i = 0; i < numValid[node]; i++) {
+                int direction = valid[node * NUM_DIRECTIONS + i];
+                int slide = node * NUM_DIRECTIONS + direction;
+                if (targets[slide] == DEATH) {
+                    continue;
+                }
+                if (collectsGem(slide)) {
+                    //Gem moves are kept at the front and safe ones at the back.
+                    candidates[numSafe++] = candidates[numGreedy];
+                    candidates[numGreedy++] = direction;
+                } else {
+                    candidates[numSafe++] = direction;
+                }
+            }
+            if (numGreedy > 0) {
+                return candidates[random.nextInt(numGreedy)];
+            }
+            if (numSafe > 0) {
+                return candidates[random.nextInt(numSafe)];
+            }
+            return valid[node * NUM_DIRECTIONS + random.nextInt(numValid[node])];
+        }
+
+        /**
+         * Checks if a slide collects some gem that is still on the board.
+         *
+         * @param slide Index of the slide in the tables.
+         * @return {@code true} if it collects a gem.
+         */
+        private boolean collectsGem(int slide) {
+            for (int i = firstItems[slide]; i < firstItems[slide + 1]; i++) {
+                int item = items[i] >>> 1;
+                if ((items[i] & 1) == 0 && (collected[item >>> 6] & 1L << item) == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Moves the player. Like {@link MoveEngine#move(Direction)}, dying leaves the board as it was.
+         *
+         * @param direction Ordinal of a valid direction.
+         * @return {@code false} if the player has died.
+         */
+        private boolean move(int direction) {
+            int slide = node * NUM_DIRECTIONS + direction;
+            int target = targets[slide];
+            if (target == DEATH) {
+                lives -= lives > 0 ? 1 : 0;
+                return false;
+            }
+            for (int i = firstItems[slide]; i < firstItems[slide + 1]; i++) {
+                int item = items[i] >>> 1;
+                long bit = 1L << item;
+                if ((collected[item >>> 6] & bit) == 0) {
+                    collected[item >>> 6] |= bit;
+                    if ((items[i] & 1) == 0) {
+                        gems--;
+                    } else if (lives > 0) {
+                        lives++;
+                    }
+                }
+            }
+            node = target;
+            return true;
+        }
+    }
+
+    /**
+     * Runs the playouts of a level with one thread and with all the cores.
+     *
+     * @param args Level file and, optionally, the number of playouts, the policy and the maximum number of moves.
+     * @throws LevelException When the level file is wrong.
+     * @throws InterruptedException When the thread is interrupted.
+     */
+    public static void main(String[] args) throws LevelException, InterruptedException {
+        if (args.length < 1) {
+            System.out.println("Usage: PlayoutEngine <level file> [playouts] [RANDOM|BIASED] [max moves]");
+            return;
+        }
+        long numPlayouts = args.length > 1 ? Long.parseLong(args[1]) : 1_000_000;
+        PlayoutPolicy policy = args.length > 2 ? PlayoutPolicy.valueOf(args[2]) : PlayoutPolicy.RANDOM;
+        int maxMoves = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_MAX_MOVES;
+
+        PlayoutEngine engine = new PlayoutEngine(new Level(args[0]));
+        int cores = Runtime.getRuntime().availableProcessors();
+        //The first batch warms up the JIT compiler.
+        engine.run(Math.min(numPlayouts, 100_000), maxMoves, policy, 1, 0);
+        for (int parallelism : cores > 1 ? new int[]{1, cores} : new int[]{1}) {
+            System.out.println(args[0] + " " + policy + ": " + engine.run(numPlayouts, maxMoves, policy,
+                    parallelism, System.nanoTime()));
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package edu.uoc.nertia.model.levels;
+
+/**
+ * How the simulated player of {@link PlayoutEngine} chooses its moves.
+ * Moves into a wall (i.e. {@link edu.uoc.nertia.model.utils.MoveResult#KO}) are never chosen.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public enum PlayoutPolicy {
+
+    /**
+     * Any valid move, with the same probability.
+     */
+    RANDOM,
+
+    /**
+     * A careful player: a move that collects a gem if there is one, otherwise a move that does not die.
+     * It only dies when every valid move ends in a mine.
+     */
+    BIASED
+}
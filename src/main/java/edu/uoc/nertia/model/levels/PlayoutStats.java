@@ -0,0 +1,206 @@
+package edu.uoc.nertia.model.levels;
+
+import java.util.Arrays;
+
+/**
+ * Statistics of a batch of playouts run by {@link PlayoutEngine}.
+ * <p>
+ * A playout ends when the player has collected every gem (a win), when it has no lives left (a loss)
+ * or when it reaches the maximum number of moves or cannot move anymore (neither of them).
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class PlayoutStats {
+
+    /**
+     * Number of buckets of the distribution of lives lost. The last one also counts the playouts that
+     * have lost more lives.
+     */
+    public static final int MAX_LIVES_LOST = 16;
+
+    /**
+     * Number of playouts.
+     */
+    private long numPlayouts;
+
+    /**
+     * Number of playouts that have collected every gem.
+     */
+    private long numWins;
+
+    /**
+     * Number of playouts that have lost every life.
+     */
+    private long numLosses;
+
+    /**
+     * Number of moves of all the playouts, blocked ones excluded.
+     */
+    private long numMoves;
+
+    /**
+     * Number of playouts in which the player has died at least once.
+     */
+    private long numDeathPlayouts;
+
+    /**
+     * Sum of the number of moves (the deadly one included) until the first death.
+     */
+    private long movesToFirstDeath;
+
+    /**
+     * Number of playouts by number of lives lost.
+     */
+    private final long[] livesLost = new long[MAX_LIVES_LOST];
+
+    /**
+     * Time taken by the batch, in nanoseconds.
+     */
+    private long nanos;
+
+    /**
+     * Number of threads that have run the batch.
+     */
+    private int parallelism = 1;
+
+    /**
+     * Adds the result of a playout.
+     *
+     * @param won Whether the player has collected every gem.
+     * @param lost Whether the player has no lives left.
+     * @param moves Number of moves.
+     * @param deaths Number of lives lost.
+     * @param firstDeath Number of moves until the first death, or {@code -1} if the player has not died.
+     */
+    void add(boolean won, boolean lost, int moves, int deaths, int firstDeath) {
+        numPlayouts++;
+        numWins += won ? 1 : 0;
+        numLosses += lost ? 1 : 0;
+        numMoves += moves;
+        if (firstDeath >= 0) {
+            numDeathPlayouts++;
+            movesToFirstDeath += firstDeath;
+        }
+        livesLost[Math.min(deaths, MAX_LIVES_LOST - 1)]++;
+    }
+
+    /**
+     * Adds the playouts of another batch, e.g. the one of another thread.
+     *
+     * @param other Statistics to add.
+     */
+    void merge(PlayoutStats other) {
+        numPlayouts += other.numPlayouts;
+        numWins += other.numWins;
+        numLosses += other.numLosses;
+        numMoves += other.numMoves;
+        numDeathPlayouts += other.numDeathPlayouts;
+        movesToFirstDeath += other.movesToFirstDeath;
+        for (int i = 0; i < MAX_LIVES_LOST; i++) {
+            livesLost[i] += other.livesLost[i];
+        }
+    }
+
+    /**
+     * Sets how the batch has been run.
+     *
+     * @param nanos Time taken, in nanoseconds.
+     * @param parallelism Number of threads.
+     */
+    void setTiming(long nanos, int parallelism) {
+        this.nanos = nanos;
+        this.parallelism = parallelism;
+    }
+
+    public long getNumPlayouts() {
+        return numPlayouts;
+    }
+
+    public long getNumWins() {
+        return numWins;
+    }
+
+    public long getNumLosses() {
+        return numLosses;
+    }
+
+    public long getNumMoves() {
+        return numMoves;
+    }
+
+    /**
+     * Returns the fraction of playouts that have collected every gem.
+     *
+     * @return Win rate, from 0 to 1 (0 if there are no playouts).
+     */
+    public double getWinRate() {
+        return numPlayouts == 0 ? 0 : (double) numWins / numPlayouts;
+    }
+
+    /**
+     * Returns the mean number of moves until the first death, counting the deadly move.
+     *
+     * @return Mean of the playouts in which the player has died, or {@link Double#NaN} if it has never died.
+     */
+    public double getMeanMovesToFirstDeath() {
+        return numDeathPlayouts == 0 ? Double.NaN : (double) movesToFirstDeath / numDeathPlayouts;
+    }
+
+    /**
+     * Returns the number of playouts that have lost the given number of lives.
+     *
+     * @param lives Number of lives lost. The last bucket also counts the playouts that have lost more.
+     * @return Number of playouts.
+     * @throws IllegalArgumentException When {@code lives} is not from 0 to {@link #MAX_LIVES_LOST} - 1.
+     */
+    public long getNumLivesLost(int lives) {
+        if (lives < 0 || lives >= MAX_LIVES_LOST) {
+            throw new IllegalArgumentException("The number of lives lost must be from 0 to " + (MAX_LIVES_LOST - 1));
+        }
+        return livesLost[lives];
+    }
+
+    /**
+     * Returns the distribution of lives lost per playout.
+     *
+     * @return Fraction of the playouts by number of lives lost, with {@link #MAX_LIVES_LOST} entries.
+     */
+    public double[] getLivesLostDistribution() {
+        double[] distribution = new double[MAX_LIVES_LOST];
+        for (int i = 0; i < MAX_LIVES_LOST && numPlayouts > 0; i++) {
+            distribution[i] = (double) livesLost[i] / numPlayouts;
+        }
+        return distribution;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Returns the throughput of the batch divided by the number of threads.
+     *
+     * @return Playouts per second per core.
+     */
+    public double getPlayoutsPerSecondPerCore() {
+        return numPlayouts / (Math.max(nanos, 1) / 1e9) / parallelism;
+    }
+
+    @Override
+    public String toString() {
+        int last = MAX_LIVES_LOST - 1;
+        while (last > 0 && livesLost[last] == 0) {
+            last--;
+        }
+        return String.format("%d playouts, win rate %.4f, %d losses, mean moves to first death %.2f, "
+                        + "lives lost %s, %.0f playouts/s per core (%d threads)",
+                numPlayouts, getWinRate(), numLosses, getMeanMovesToFirstDeath(),
+                Arrays.toString(Arrays.copyOf(livesLost, last + 1)), getPlayoutsPerSecondPerCore(), parallelism);
+    }
+}
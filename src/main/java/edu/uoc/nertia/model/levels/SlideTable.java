@@ -0,0 +1,300 @@
+package edu.uoc.nertia.model.levels;
+
+import edu.uoc.nertia.model.cells.Element;
+import edu.uoc.nertia.model.utils.Direction;
+
+/**
+ * Per-direction jump tables of a {@link Level}.
+ * <p>
+ * For every cell and {@link Direction} it stores where a slide that starts in that cell stops and why
+ * (the edge of the board, a wall, a stop cell or a mine), together with the next collectible
+ * (gem or extra life) that lies in that direction. Tables are computed lazily one row or column at a time
+ * and a change in a cell only invalidates its row and its column.
+ * </p>
+ * <p>
+ * A table can share its entries with the one of a {@link LevelTemplate}. They are copied the first time a change
+ * invalidates a line, so the template's table is only read.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class SlideTable {
+
+    /**
+     * The slide stops at the last cell before the edge of the board.
+     */
+    static final int EDGE = 0;
+
+    /**
+     * The slide stops at the cell before a wall.
+     */
+    static final int WALL = 1;
+
+    /**
+     * The slide stops on a stop cell.
+     */
+    static final int STOP = 2;
+
+    /**
+     * The slide ends in a mine, i.e. the player dies.
+     */
+    static final int MINE = 3;
+
+    /**
+     * Index that means "there is no cell".
+     */
+    static final int NONE = -1;
+
+    /**
+     * Kind of block of each {@link Element} (by ordinal), or {@link #NONE} if the player can go through it.
+     */
+    private static final int[] BLOCK = new int[Element.values().length];
+
+    /**
+     * Whether each {@link Element} (by ordinal) is a collectible, i.e. a gem or an extra life.
+     */
+    private static final boolean[] ITEM = new boolean[Element.values().length];
+
+    static {
+        for (Element element : Element.values()) {
+            BLOCK[element.ordinal()] = switch (element) {
+                case WALL -> WALL;
+                case MINE -> MINE;
+                case STOP, PLAYER_STOP -> STOP;
+                default -> NONE;
+            };
+            ITEM[element.ordinal()] = element == Element.GEM || element == Element.EXTRA_LIFE;
+        }
+    }
+
+    /**
+     * Number of rows and columns of the board.
+     */
+    private final int size;
+
+    /**
+     * Board of the level. See {@link Level}.
+     */
+    private final byte[] board;
+
+    /**
+     * Slide entries by direction ordinal and cell index: {@code stop << 2 | kind}.
+     */
+    private int[][] slides;
+
+    /**
+     * Next collectible by direction ordinal and cell index, or {@link #NONE}.
+     */
+    private int[][] items;
+
+    /**
+     * Whether the LEFT/RIGHT entries of each row are up to date.
+     */
+    private boolean[] rowValid;
+
+    /**
+     * Whether the UP/DOWN entries of each column are up to date.
+     */
+    private boolean[] columnValid;
+
+    /**
+     * Whether the arrays above belong to another table, so they must be copied before a line is invalidated.
+     */
+    private boolean shared;
+
+    /**
+     * Constructor
+     *
+     * @param size Number of rows and columns of the board.
+     * @param board Board of the level, one {@link Element} ordinal per cell.
+     */
+    SlideTable(int size, byte[] board) {
+        this.size = size;
+        this.board = board;
+        int directions = Direction.values().length;
+        slides = new int[directions][board.length];
+        items = new int[directions][board.length];
+        rowValid = new boolean[size];
+        columnValid = new boolean[size];
+    }
+
+    /**
+     * Constructor of a table that shares the entries of another one until a line is invalidated.
+     *
+     * @param source Table whose entries are shared. It is not modified.
+     * @param board Board of the new table. It must have the same blocks as the board of {@code source}.
+     */
+    SlideTable(SlideTable source, byte[] board) {
+        this.size = source.size;
+        this.board = board;
+        this.slides = source.slides;
+        this.items = source.items;
+        this.rowValid = source.rowValid;
+        this.columnValid = source.columnValid;
+        this.shared = true;
+    }
+
+    /**
+     * Returns the stop cell of a slide entry.
+     *
+     * @param entry Value returned by {@link #slide(Direction, int)}.
+     * @return Index of the cell where the slide stops.
+     */
+    static int stopOf(int entry) {
+        return entry >> 2;
+    }
+
+    /**
+     * Returns the kind of a slide entry.
+     *
+     * @param entry Value returned by {@link #slide(Direction, int)}.
+     * @return One of {@link #EDGE}, {@link #WALL}, {@link #STOP} or {@link #MINE}.
+     */
+    static int kindOf(int entry) {
+        return entry & 3;
+    }
+
+    /**
+     * Checks if the given element ordinal is a collectible.
+     *
+     * @param ordinal Ordinal of an {@link Element}.
+     * @return {@code true} if it is a gem or an extra life.
+     */
+    static boolean isItem(int ordinal) {
+        return ITEM[ordinal];
+    }
+
+    /**
+     * Returns where a slide from {@code index} towards {@code direction} stops.
+     *
+     * @param direction Direction of the slide.
+     * @param index Index of the cell where the slide starts.
+     * @return Entry to decode with {@link #stopOf(int)} and {@link #kindOf(int)}.
+     */
+    int slide(Direction direction, int index) {
+        validate(direction, index);
+        return slides[direction.ordinal()][index];
+    }
+
+    /**
+     * Returns the first collectible after {@code index} towards {@code direction}, regardless of walls.
+     * A table shared with a {@link LevelTemplate} still returns the items that have been collected since,
+     * so callers must skip them (see {@link Level#isCollected(int)}).
+     *
+     * @param direction Direction of the slide.
+     * @param index Index of the cell where the search starts (excluded).
+     * @return Index of the collectible or {@link #NONE}.
+     */
+    int nextItem(Direction direction, int index) {
+        validate(direction, index);
+        return items[direction.ordinal()][index];
+    }
+
+    /**
+     * Invalidates the row and the column of a cell if its change affects slides or collectibles.
+     * Moving the player around (e.g. {@code EMPTY} to {@code PLAYER}) does not invalidate anything.
+     *
+     * @param index Index of the cell that changes.
+     * @param previous Ordinal of the element that was in the cell.
+     * @param current Ordinal of the new element of the cell.
+     */
+    void update(int index, int previous, int current) {
+        if (BLOCK[previous] != BLOCK[current] || ITEM[previous] != ITEM[current]) {
+            if (shared) {
+                unshare();
+            }
+            rowValid[index / size] = false;
+            columnValid[index % size] = false;
+        }
+    }
+
+    /**
+     * Computes every line, e.g. before the table is shared, so that reading it never writes anything.
+     */
+    void validateAll() {
+        for (int line = 0; line < size; line++) {
+            validate(Direction.RIGHT, line * size);
+            validate(Direction.DOWN, line);
+        }
+    }
+
+    /**
+     * Returns an estimate of the memory used by the arrays of this table.
+     *
+     * @return Number of bytes.
+     */
+    long footprint() {
+        return 2L * Integer.BYTES * slides.length * board.length + rowValid.length + columnValid.length;
+    }
+
+    /**
+     * Copies the shared arrays, so that the lines of this table can be invalidated and computed again.
+     */
+    private void unshare() {
+        slides = slides.clone();
+        items = items.clone();
+        for (int direction = 0; direction < slides.length; direction++) {
+            slides[direction] = slides[direction].clone();
+            items[direction] = items[direction].clone();
+        }
+        rowValid = rowValid.clone();
+        columnValid = columnValid.clone();
+        shared = false;
+    }
+
+    /**
+     * Computes the line of {@code index} in the axis of {@code direction} if it is not up to date.
+     *
+     * @param direction Direction of the slide.
+     * @param index Index of a cell of the line.
+     */
+    private void validate(Direction direction, int index) {
+        if (direction.getRowOffset() == 0) {
+            int row = index / size;
+            if (!rowValid[row]) {
+                int first = row * size;
+                int last = first + size - 1;
+                sweep(Direction.RIGHT, last, first, 1);
+                sweep(Direction.LEFT, first, last, -1);
+                rowValid[row] = true;
+            }
+        } else {
+            int column = index % size;
+            if (!columnValid[column]) {
+                int last = (size - 1) * size + column;
+                sweep(Direction.DOWN, last, column, size);
+                sweep(Direction.UP, column, last, -size);
+                columnValid[column] = true;
+            }
+        }
+    }
+
+    /**
+     * Fills the entries of one line for one direction, starting at the cell next to the edge.
+     *
+     * @param direction Direction of the slides.
+     * @param end Cell of the line that is next to the edge in {@code direction}.
+     * @param begin Cell at the other end of the line.
+     * @param step Index offset of one step towards {@code direction}.
+     */
+    private void sweep(Direction direction, int end, int begin, int step) {
+        int[] slide = slides[direction.ordinal()];
+        int[] item = items[direction.ordinal()];
+
+        slide[end] = end << 2 | EDGE;
+        item[end] = NONE;
+
+        for (int cell = end - step; cell != begin - step; cell -= step) {
+            int next = cell + step;
+            int block = BLOCK[board[next]];
+            slide[cell] = switch (block) {
+                case WALL -> cell << 2 | WALL;
+                case MINE -> cell << 2 | MINE;
+                case STOP -> next << 2 | STOP;
+                default -> slide[next];
+            };
+            item[cell] = ITEM[board[next]] ? next : item[next];
+        }
+    }
+}
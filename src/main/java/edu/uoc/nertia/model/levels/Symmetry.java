@@ -0,0 +1,142 @@
+package edu.uoc.nertia.model.levels;
+
+import edu.uoc.nertia.model.utils.Direction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The 8 symmetries of a square board: 4 rotations and 4 reflections.
+ * <p>
+ * Each one is stored as a 2x2 matrix with one {@code 1} or {@code -1} per row. It maps a cell {@code (row, column)}
+ * to {@code (rowRow * row + rowColumn * column, columnRow * row + columnColumn * column)}, moved back into the board
+ * (adding {@code size - 1} to negative coordinates), and it maps a direction by its offsets in the same way.
+ * So the slides of a level and of its transformed copy correspond one to one.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public enum Symmetry {
+
+    IDENTITY(1, 0, 0, 1),
+    ROTATE_90(0, 1, -1, 0),
+    ROTATE_180(-1, 0, 0, -1),
+    ROTATE_270(0, -1, 1, 0),
+    FLIP_HORIZONTAL(1, 0, 0, -1),
+    FLIP_VERTICAL(-1, 0, 0, 1),
+    TRANSPOSE(0, 1, 1, 0),
+    ANTI_TRANSPOSE(0, -1, -1, 0);
+
+    private final int rowRow;
+    private final int rowColumn;
+    private final int columnRow;
+    private final int columnColumn;
+
+    /**
+     * Image of each direction, by ordinal.
+     */
+    private final Direction[] directions;
+
+    Symmetry(int rowRow, int rowColumn, int columnRow, int columnColumn) {
+        this.rowRow = rowRow;
+        this.rowColumn = rowColumn;
+        this.columnRow = columnRow;
+        this.columnColumn = columnColumn;
+
+        Direction[] values = Direction.values();
+        directions = new Direction[values.length];
+        for (Direction source : values) {
+            int rowOffset = rowRow * source.getRowOffset() + rowColumn * source.getColumnOffset();
+            int columnOffset = columnRow * source.getRowOffset() + columnColumn * source.getColumnOffset();
+            for (Direction target : values) {
+                if (target.getRowOffset() == rowOffset && target.getColumnOffset() == columnOffset) {
+                    directions[source.ordinal()] = target;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the row where a cell goes.
+     *
+     * @param row Row of the cell.
+     * @param column Column of the cell.
+     * @param size Size of the board.
+     * @return Row of the image.
+     */
+    public int row(int row, int column, int size) {
+        return rowRow * row + rowColumn * column + (rowRow + rowColumn < 0 ? size - 1 : 0);
+    }
+
+    /**
+     * Returns the column where a cell goes.
+     *
+     * @param row Row of the cell.
+     * @param column Column of the cell.
+     * @param size Size of the board.
+     * @return Column of the image.
+     */
+    public int column(int row, int column, int size) {
+        return columnRow * row + columnColumn * column + (columnRow + columnColumn < 0 ? size - 1 : 0);
+    }
+
+    /**
+     * Returns the direction that a direction becomes.
+     *
+     * @param direction Direction to transform.
+     * @return Image of the direction.
+     */
+    public Direction apply(Direction direction) {
+        return directions[direction.ordinal()];
+    }
+
+    /**
+     * Returns the directions that a sequence of moves becomes, e.g. to replay a solution on a transformed level.
+     *
+     * @param moves Directions to transform.
+     * @return Images of the directions, in the same order.
+     */
+    public List<Direction> apply(List<Direction> moves) {
+        List<Direction> images = new ArrayList<>(moves.size());
+        for (Direction direction : moves) {
+            images.add(apply(direction));
+        }
+        return images;
+    }
+
+    /**
+     * Returns the symmetry that undoes this one.
+     *
+     * @return Inverse symmetry. Its matrix is the transpose of this one.
+     */
+    public Symmetry inverse() {
+        for (Symmetry symmetry : values()) {
+            if (symmetry.rowRow == rowRow && symmetry.rowColumn == columnRow
+                    && symmetry.columnRow == rowColumn && symmetry.columnColumn == columnColumn) {
+                return symmetry;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Returns the symmetry that applies this one and then another one.
+     *
+     * @param next Symmetry applied after this one.
+     * @return Composition of both.
+     */
+    public Symmetry then(Symmetry next) {
+        int rr = next.rowRow * rowRow + next.rowColumn * columnRow;
+        int rc = next.rowRow * rowColumn + next.rowColumn * columnColumn;
+        int cr = next.columnRow * rowRow + next.columnColumn * columnRow;
+        int cc = next.columnRow * rowColumn + next.columnColumn * columnColumn;
+        for (Symmetry symmetry : values()) {
+            if (symmetry.rowRow == rr && symmetry.rowColumn == rc
+                    && symmetry.columnRow == cr && symmetry.columnColumn == cc) {
+                return symmetry;
+            }
+        }
+        throw new IllegalStateException();
+    }
+}
@@ -0,0 +1,249 @@
+package edu.uoc.nertia.model.levels;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+/**
+ * Journal of the moves of a {@link Level} that can be undone.
+ * <p>
+ * Moves are packed one after another in a growable {@code int[]}. Each record is laid out as:
+ * </p>
+ * <pre>
+ * previous record | origin | origin element ordinal | number of items | item...
+ * </pre>
+ * <p>
+ * The origin is the flat index of the cell where the player was, and the items are the numbers of the collected
+ * gems and extra lives, as numbered by the level.
+ * </p>
+ * <p>
+ * Popping a record normally frees its space. Records that existed when {@link #saveState()} was called are
+ * never overwritten, so a saved state can always be brought back with {@link #restoreState(int[])}. The space of
+ * those records is only reused once the states that need them are given up with {@link #release(int[])}.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class UndoJournal {
+
+    /**
+     * Ints used by a record besides its items: previous record, origin, origin element and number of items.
+     */
+    private static final int HEADER = 4;
+
+    /**
+     * Initial capacity of {@link #records}.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Value of {@link #top} when the journal is empty.
+     */
+    private static final int NO_RECORD = -1;
+
+    /**
+     * Packed records.
+     */
+    private int[] records;
+
+    /**
+     * Number of ints of {@link #records} in use.
+     */
+    private int length;
+
+    /**
+     * Offset of the last record, or {@link #NO_RECORD}.
+     */
+    private int top;
+
+    /**
+     * Records below this offset are kept when they are popped. See {@link #saveState()}.
+     */
+    private int floor;
+
+    /**
+     * Number of records in the journal.
+     */
+    private int size;
+
+    /**
+     * Number of pops done so far.
+     */
+    private int num;
+
+    /**
+     * Constructor
+     */
+    UndoJournal() {
+        records = new int[INITIAL_CAPACITY];
+        top = NO_RECORD;
+    }
+
+    /**
+     * Returns the number of pops done so far.
+     *
+     * @return Number of pops.
+     */
+    int getNum() {
+        return num;
+    }
+
+    /**
+     * Checks if the journal is empty.
+     *
+     * @return {@code true} if there are no moves to undo.
+     */
+    boolean empty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds a move to the journal.
+     *
+     * @param origin Index of the cell where the player was.
+     * @param originElement Ordinal of the element of the origin cell, or {@code -1} if it is unknown.
+     * @param items Numbers of the collected items.
+     * @param numItems Number of entries of {@code items} to store.
+     */
+    void push(int origin, int originElement, int[] items, int numItems) {
+        ensureCapacity(length + HEADER + numItems);
+        records[length] = top;
+        records[length + 1] = origin;
+        records[length + 2] = originElement;
+        records[length + 3] = numItems;
+        System.arraycopy(items, 0, records, length + HEADER, numItems);
+        top = length;
+        length += HEADER + numItems;
+        size++;
+    }
+
+    /**
+     * Removes the last move and counts it as a pop.
+     * The returned record can be read until the next push.
+     *
+     * @return Offset of the record, to be used with {@link #getOrigin(int)}, {@link #getOriginElement(int)},
+     * {@link #getNumItems(int)} and {@link #getItem(int, int)}.
+     * @throws EmptyStackException When the journal is empty.
+     */
+    int pop() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        num++;
+        int record = top;
+        top = records[record];
+        if (record >= floor) {
+            //Everything after a record above the floor has already been popped.
+            length = record;
+        }
+        size--;
+        return record;
+    }
+
+    /**
+     * Returns the index of the origin cell of a record.
+     *
+     * @param record Offset returned by {@link #pop()}.
+     * @return Index of the origin cell.
+     */
+    int getOrigin(int record) {
+        return records[record + 1];
+    }
+
+    /**
+     * Returns the ordinal of the origin element of a record.
+     *
+     * @param record Offset returned by {@link #pop()}.
+     * @return Ordinal of the element, or {@code -1} if it was unknown.
+     */
+    int getOriginElement(int record) {
+        return records[record + 2];
+    }
+
+    /**
+     * Returns the number of collected items of a record.
+     *
+     * @param record Offset returned by {@link #pop()}.
+     * @return Number of items.
+     */
+    int getNumItems(int record) {
+        return records[record + 3];
+    }
+
+    /**
+     * Returns one collected item of a record.
+     *
+     * @param record Offset returned by {@link #pop()}.
+     * @param i Number of the item, from 0 to {@link #getNumItems(int)} - 1.
+     * @return Number of the item in the level.
+     */
+    int getItem(int record, int i) {
+        return records[record + HEADER + i];
+    }
+
+    /**
+     * Saves the current state of the journal (records and number of pops) so that it can be brought back
+     * later with {@link #restoreState(int[])}. From now on, the current records are never overwritten.
+     *
+     * @return Opaque state.
+     */
+    int[] saveState() {
+        floor = length;
+        return new int[]{top, size, num, length};
+    }
+
+    /**
+     * Brings back a state returned by {@link #saveState()}.
+     * New records are written after every saved record, so any other saved state stays valid.
+     *
+     * @param state State returned by {@link #saveState()}.
+     */
+    void restoreState(int[] state) {
+        top = state[0];
+        size = state[1];
+        num = state[2];
+        length = floor;
+    }
+
+    /**
+     * Gives up every state saved after the given one, so that the records that only they needed can be reused.
+     * <p>
+     * The records pushed since the last {@link #restoreState(int[])} are above the floor, and they only link to
+     * each other or to records of the given state. So they are moved down to the end of that state.
+     * </p>
+     *
+     * @param state Last state returned by {@link #saveState()} that may still be restored.
+     */
+    void release(int[] state) {
+        int newFloor = state[3];
+        int shift = floor - newFloor;
+        if (shift <= 0) {
+            return;
+        }
+        int record = top;
+        while (record >= floor) {
+            int previous = records[record];
+            if (previous >= floor) {
+                records[record] = previous - shift;
+            }
+            record = previous;
+        }
+        System.arraycopy(records, floor, records, newFloor, length - floor);
+        if (top >= floor) {
+            top -= shift;
+        }
+        length -= shift;
+        floor = newFloor;
+    }
+
+    /**
+     * Grows {@link #records} so that it can hold at least {@code capacity} ints.
+     *
+     * @param capacity Minimum capacity.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > records.length) {
+            records = Arrays.copyOf(records, Math.max(capacity, records.length * 2));
+        }
+    }
+}
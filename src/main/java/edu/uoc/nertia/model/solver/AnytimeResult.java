@@ -0,0 +1,23 @@
+package edu.uoc.nertia.model.solver;
+
+/**
+ * Outcome of an {@link AnytimeSolver} search, either final or one of its improving solutions.
+ *
+ * @param solution Best solution found so far, or {@code null} if none has been found.
+ * @param lowerBound No solution has fewer moves than this.
+ * @param optimal Whether it is proven that no solution is shorter. If there is no solution, it means
+ *                that it is proven that the level cannot be completed.
+ * @author agent
+ * @version 1.0
+ */
+public record AnytimeResult(Solution solution, int lowerBound, boolean optimal) {
+
+    /**
+     * Returns the number of moves of the best solution, i.e. an upper bound of the optimum.
+     *
+     * @return Number of moves, or {@code -1} if there is no solution.
+     */
+    public int upperBound() {
+        return solution == null ? -1 : solution.numMoves();
+    }
+}
@@ -0,0 +1,239 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.levels.Level;
+import edu.uoc.nertia.model.levels.MoveEngine;
+import edu.uoc.nertia.model.utils.Direction;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Solver with a time budget that returns a valid solution quickly and keeps improving it.
+ * <p>
+ * It starts with a greedy solution over the {@link StopGraph}: the player always goes for the nearest gem.
+ * Then it runs the same A* search as {@link Solver}, with two additions: branches that cannot beat the best
+ * solution are pruned, and the greedy solution is tried from time to time from the expanded states. Every better
+ * solution is given to a callback. The lowest priority of the A* queue never decreases and no solution is shorter,
+ * so it is reported as the lower bound. When it meets the best solution (or the search ends), the best solution
+ * is proven optimal.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public abstract class AnytimeSolver {
+
+    /**
+     * Cached copy of {@link Direction#values()}.
+     */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * Number of expansions between two checks of the clock.
+     */
+    private static final int CLOCK_INTERVAL = 1 << 10;
+
+    /**
+     * Number of expansions between two greedy completions.
+     */
+    private static final int GREEDY_INTERVAL = 1 << 12;
+
+    /**
+     * Solves a level within a time budget. The level is not modified.
+     *
+     * @param level Level to solve, from its current state.
+     * @param budget Time after which the best solution found is returned.
+     * @return Best solution found, with its bounds.
+     * @throws IllegalArgumentException When the level has more than {@link StopGraph#MAX_GEMS} gems.
+     */
+    public static AnytimeResult solve(Level level, Duration budget) {
+        return solve(level, budget, result -> { });
+    }
+
+    /**
+     * Solves a level within a time budget. The level is not modified.
+     *
+     * @param level Level to solve, from its current state.
+     * @param budget Time after which the best solution found is returned.
+     * @param callback Called, in the calling thread, with every solution that is better than the previous one.
+     * @return Best solution found, with its bounds.
+     * @throws IllegalArgumentException When the level has more than {@link StopGraph#MAX_GEMS} gems.
+     */
+    public static AnytimeResult solve(Level level, Duration budget, Consumer<AnytimeResult> callback) {
+        if (level.hasLost() || level.getPlayerPosition() == null) {
+            return new AnytimeResult(null, 0, true);
+        }
+        return solve(new StopGraph(new MoveEngine(level)), budget, callback);
+    }
+
+    /**
+     * Searches a graph within a time budget.
+     *
+     * @param graph Graph of the level.
+     * @param budget Time after which the best solution found is returned.
+     * @param callback Called with every solution that is better than the previous one.
+     * @return Best solution found, with its bounds.
+     */
+    public static AnytimeResult solve(StopGraph graph, Duration budget, Consumer<AnytimeResult> callback) {
+        Objects.requireNonNull(callback);
+        long deadline = System.nanoTime() + budget.toNanos();
+        long goal = graph.getAllGems();
+        int estimate = Solver.estimate(graph, 0, 0L);
+        if (estimate == StopGraph.UNREACHABLE) {
+            return new AnytimeResult(null, 0, true);
+        }
+
+        List<Direction> best = greedy(graph, 0, 0L);
+        if (best != null) {
+            if (best.size() == estimate) {
+                return report(callback, best, estimate, true);
+            }
+            report(callback, best, estimate, false);
+        }
+
+        StateTable states = new StateTable();
+        BucketQueue open = new BucketQueue();
+        open.push(states.add(0, 0L, 0, StateTable.NO_STATE, 0), estimate);
+        int lowerBound = estimate;
+        for (int expansions = 1; !open.isEmpty(); expansions++) {
+            int priority = open.peekPriority();
+            lowerBound = priority;
+            if (best != null && priority >= best.size()) {
+                break;
+            }
+            if (expansions % CLOCK_INTERVAL == 0 && System.nanoTime() - deadline >= 0) {
+                return new AnytimeResult(best == null ? null : new Solution(best), lowerBound, false);
+            }
+            int id = open.pop();
+            int node = states.getNode(id);
+            long gems = states.getGems(id);
+            int cost = states.getCost(id);
+            if (cost + Solver.estimate(graph, node, gems) != priority) {
+                continue;
+            }
+            if (gems == goal) {
+                //A* expands the goal with the lowest cost, so it beats or equals any previous solution.
+                best = Solver.pathTo(states, id);
+                break;
+            }
+            if (expansions % GREEDY_INTERVAL == 0) {
+                List<Direction> rest = greedy(graph, node, gems);
+                if (rest != null && (best == null || cost + rest.size() < best.size())) {
+                    best = new ArrayList<>(Solver.pathTo(states, id));
+                    best.addAll(rest);
+                    report(callback, best, lowerBound, false);
+                }
+            }
+            for (Direction direction : DIRECTIONS) {
+                int target = graph.getTarget(node, direction);
+                if (target == StopGraph.NO_NODE) {
+                    continue;
+                }
+                long collected = gems | graph.getGems(node, direction);
+                int remaining = Solver.estimate(graph, target, collected);
+                if (remaining == StopGraph.UNREACHABLE || (best != null && cost + 1 + remaining >= best.size())) {
+                    continue;
+                }
+                int next = states.find(target, collected);
+                if (next == StateTable.NO_STATE) {
+                    next = states.add(target, collected, cost + 1, id, direction.ordinal());
+                } else if (cost + 1 < states.getCost(next)) {
+                    states.update(next, cost + 1, id, direction.ordinal());
+                } else {
+                    continue;
+                }
+                open.push(next, cost + 1 + remaining);
+            }
+        }
+
+        //The search is over: nothing shorter than the best solution is left.
+        if (best == null) {
+            return new AnytimeResult(null, lowerBound, true);
+        }
+        return report(callback, best, best.size(), true);
+    }
+
+    /**
+     * Builds a greedy solution: the player repeatedly takes the shortest way to the nearest slide that collects
+     * some gem, never going where a remaining gem cannot be collected any more.
+     *
+     * @param graph Graph of the level.
+     * @param node Node where the player is.
+     * @param gems Bit mask of the collected gems.
+     * @return Directions that collect every gem, or {@code null} if the greedy player gets stuck.
+     */
+    static List<Direction> greedy(StopGraph graph, int node, long gems) {
+        int numNodes = graph.getNumNodes();
+        int[] queue = new int[numNodes];
+        int[] parents = new int[numNodes];
+        byte[] directions = new byte[numNodes];
+        List<Direction> moves = new ArrayList<>();
+        long goal = graph.getAllGems();
+
+        while (gems != goal) {
+            Arrays.fill(parents, StopGraph.NO_NODE);
+            parents[node] = node;
+            queue[0] = node;
+            int tail = 1;
+            int from = StopGraph.NO_NODE;
+            Direction last = null;
+            for (int head = 0; head < tail && from == StopGraph.NO_NODE; head++) {
+                int current = queue[head];
+                for (Direction direction : DIRECTIONS) {
+                    int target = graph.getTarget(current, direction);
+                    if (target == StopGraph.NO_NODE) {
+                        continue;
+                    }
+                    long collected = gems | graph.getGems(current, direction);
+                    if (Solver.estimate(graph, target, collected) == StopGraph.UNREACHABLE) {
+                        continue;
+                    }
+                    if (collected != gems) {
+                        from = current;
+                        last = direction;
+                        break;
+                    }
+                    if (parents[target] == StopGraph.NO_NODE) {
+                        parents[target] = current;
+                        directions[target] = (byte) direction.ordinal();
+                        queue[tail++] = target;
+                    }
+                }
+            }
+            if (from == StopGraph.NO_NODE) {
+                return null;
+            }
+
+            int start = moves.size();
+            moves.add(last);
+            for (int current = from; current != node; current = parents[current]) {
+                moves.add(DIRECTIONS[directions[current]]);
+            }
+            Collections.reverse(moves.subList(start, moves.size()));
+            gems |= graph.getGems(from, last);
+            node = graph.getTarget(from, last);
+        }
+        return moves;
+    }
+
+    /**
+     * Gives a solution to the callback.
+     *
+     * @param callback Callback of the search.
+     * @param moves Moves of the solution.
+     * @param lowerBound Current lower bound.
+     * @param optimal Whether the solution is proven optimal.
+     * @return The reported result.
+     */
+    private static AnytimeResult report(Consumer<AnytimeResult> callback, List<Direction> moves,
+                                        int lowerBound, boolean optimal) {
+        AnytimeResult result = new AnytimeResult(new Solution(moves), lowerBound, optimal);
+        callback.accept(result);
+        return result;
+    }
+}
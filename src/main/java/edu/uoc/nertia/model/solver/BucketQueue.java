@@ -0,0 +1,101 @@
+package edu.uoc.nertia.model.solver;
+
+import java.util.Arrays;
+
+/**
+ * Priority queue of state ids with small integer priorities (e.g. the number of moves of a path plus an estimate).
+ * <p>
+ * There is one bucket per priority, so pushing and popping cost O(1) amortized. Popping always returns an id of
+ * the lowest priority, and ids with the same priority come out last in, first out (i.e. deepest first).
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class BucketQueue {
+
+    /**
+     * Ids by priority.
+     */
+    private int[][] buckets;
+
+    /**
+     * Number of ids in each bucket.
+     */
+    private int[] counts;
+
+    /**
+     * Lowest priority that may have ids.
+     */
+    private int min;
+
+    /**
+     * Number of ids in the queue.
+     */
+    private int size;
+
+    /**
+     * Constructor
+     */
+    BucketQueue() {
+        buckets = new int[16][];
+        counts = new int[16];
+        min = 0;
+        size = 0;
+    }
+
+    /**
+     * Checks if the queue is empty.
+     *
+     * @return {@code true} if there are no ids.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds an id.
+     *
+     * @param id Id of a state.
+     * @param priority Priority of the id. It must not be negative.
+     */
+    void push(int id, int priority) {
+        if (priority >= buckets.length) {
+            int capacity = Math.max(priority + 1, buckets.length * 2);
+            buckets = Arrays.copyOf(buckets, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        int[] bucket = buckets[priority];
+        if (bucket == null) {
+            bucket = buckets[priority] = new int[64];
+        } else if (counts[priority] == bucket.length) {
+            bucket = buckets[priority] = Arrays.copyOf(bucket, bucket.length * 2);
+        }
+        bucket[counts[priority]++] = id;
+        min = Math.min(min, priority);
+        size++;
+    }
+
+    /**
+     * Returns the lowest priority of the queue.
+     *
+     * @return Priority of the id that {@link #pop()} would return. The queue must not be empty.
+     */
+    int peekPriority() {
+        while (counts[min] == 0) {
+            min++;
+        }
+        return min;
+    }
+
+    /**
+     * Removes an id of the lowest priority.
+     *
+     * @return Id of a state. The queue must not be empty.
+     */
+    int pop() {
+        int priority = peekPriority();
+        size--;
+        return buckets[priority][--counts[priority]];
+    }
+}
@@ -0,0 +1,21 @@
+package edu.uoc.nertia.model.solver;
+
+/**
+ * Result of solving a level from its initial state, as stored by {@link SolutionCache}.
+ *
+ * @param solution Optimal solution, or {@code null} if the level cannot be completed.
+ * @param numStates Number of states reached by the search.
+ * @author agent
+ * @version 1.0
+ */
+public record CachedSolution(Solution solution, long numStates) {
+
+    /**
+     * Returns the optimal number of moves.
+     *
+     * @return Number of moves, or {@code -1} if the level cannot be completed.
+     */
+    public int numMoves() {
+        return solution == null ? -1 : solution.numMoves();
+    }
+}
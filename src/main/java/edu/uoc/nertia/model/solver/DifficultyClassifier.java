@@ -0,0 +1,269 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.levels.Level;
+import edu.uoc.nertia.model.levels.LevelDifficulty;
+import edu.uoc.nertia.model.levels.MoveEngine;
+import edu.uoc.nertia.model.utils.Direction;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Derives the {@link LevelDifficulty} of levels from measured properties instead of the header typed by hand.
+ * <p>
+ * Each property gives some points: the optimal number of moves (0 to 2), the cells of the optimal solution next
+ * to a mine (0 to 2), the branching factor of the {@link StopGraph} (0 or 1) and the size of the explored solution
+ * space (0 to 2). Up to {@link #EASY_POINTS} points is {@link LevelDifficulty#EASY}, up to {@link #MEDIUM_POINTS}
+ * is {@link LevelDifficulty#MEDIUM} and the rest (as well as levels that cannot be completed or whose search
+ * reaches its limit) is {@link LevelDifficulty#HARD}.
+ * </p>
+ * <p>
+ * Usage: {@code DifficultyClassifier [--write] <file or folder>...}. Folders are searched for {@code .txt} files,
+ * which are classified in parallel. It prints a report and, with {@code --write}, rewrites the difficulty line of
+ * the files whose header is wrong.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public abstract class DifficultyClassifier {
+
+    /**
+     * Default maximum number of states of the search of a level.
+     */
+    public static final int DEFAULT_MAX_STATES = 1 << 20;
+
+    /**
+     * Maximum points of an easy level.
+     */
+    public static final int EASY_POINTS = 2;
+
+    /**
+     * Maximum points of a medium level.
+     */
+    public static final int MEDIUM_POINTS = 4;
+
+    /**
+     * Cached copy of {@link Direction#values()}.
+     */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * Measures the properties of a level from its current state.
+     *
+     * @param level Level to measure. It is not modified.
+     * @param maxStates Maximum number of states of the search.
+     * @return Metrics of the level.
+     * @throws IllegalArgumentException When the level has more than {@link StopGraph#MAX_GEMS} gems.
+     */
+    public static DifficultyMetrics measure(Level level, int maxStates) {
+        if (level.hasLost() || level.getPlayerPosition() == null) {
+            return new DifficultyMetrics(-1, 0, 0, 0, false);
+        }
+        MoveEngine engine = new MoveEngine(level);
+        StopGraph graph = new StopGraph(engine);
+
+        int numSlides = 0;
+        for (int node = 0; node < graph.getNumNodes(); node++) {
+            for (Direction direction : DIRECTIONS) {
+                numSlides += graph.getTarget(node, direction) != StopGraph.NO_NODE ? 1 : 0;
+            }
+        }
+        double branchingFactor = (double) numSlides / graph.getNumNodes();
+
+        StateTable states = new StateTable();
+        Solution solution = Solver.solve(graph, states, maxStates);
+        boolean limitReached = states.size() > maxStates;
+        if (solution == null) {
+            return new DifficultyMetrics(-1, branchingFactor, 0, states.size(), limitReached);
+        }
+
+        int mineAdjacentStops = 0;
+        int node = 0;
+        for (int move = 0; move <= solution.numMoves(); move++) {
+            int cell = graph.getCell(node);
+            for (Direction direction : DIRECTIONS) {
+                if (engine.slide(cell, direction) == MoveEngine.OUT_OF_BOARD) {
+                    mineAdjacentStops++;
+                    break;
+                }
+            }
+            if (move < solution.numMoves()) {
+                node = graph.getTarget(node, solution.moves().get(move));
+            }
+        }
+        return new DifficultyMetrics(solution.numMoves(), branchingFactor, mineAdjacentStops, states.size(), false);
+    }
+
+    /**
+     * Derives the difficulty of some metrics.
+     *
+     * @param metrics Metrics of a level.
+     * @return Difficulty of the level.
+     */
+    public static LevelDifficulty classify(DifficultyMetrics metrics) {
+        if (metrics.optimalMoves() < 0) {
+            return LevelDifficulty.HARD;
+        }
+        int points = metrics.optimalMoves() <= 5 ? 0 : metrics.optimalMoves() <= 12 ? 1 : 2;
+        points += metrics.mineAdjacentStops() == 0 ? 0 : metrics.mineAdjacentStops() <= 2 ? 1 : 2;
+        points += metrics.branchingFactor() > 3 ? 1 : 0;
+        points += metrics.numStates() < 100 ? 0 : metrics.numStates() < 10_000 ? 1 : 2;
+        return points <= EASY_POINTS ? LevelDifficulty.EASY
+                : points <= MEDIUM_POINTS ? LevelDifficulty.MEDIUM : LevelDifficulty.HARD;
+    }
+
+    /**
+     * Classifies a level file.
+     *
+     * @param fileName Name of the level file, as in {@link Level#Level(String)}.
+     * @param maxStates Maximum number of states of the search.
+     * @return Report of the level.
+     * @throws LevelException When the level file is wrong.
+     */
+    public static DifficultyReport classify(String fileName, int maxStates) throws LevelException {
+        Level level = new Level(fileName);
+        DifficultyMetrics metrics = measure(level, maxStates);
+        return new DifficultyReport(fileName, level.getDifficulty(), classify(metrics), metrics, null);
+    }
+
+    /**
+     * Classifies level files in parallel. A file that cannot be classified (e.g. it is wrong or it has more than
+     * {@link StopGraph#MAX_GEMS} gems) gets an {@link DifficultyReport#unclassifiable(String, String)} report,
+     * so the rest of the batch is still classified.
+     *
+     * @param fileNames Names of the level files.
+     * @param parallelism Number of threads.
+     * @param maxStates Maximum number of states of the search of each level.
+     * @return Reports in the same order as the files.
+     * @throws InterruptedException When the thread is interrupted while waiting.
+     */
+    public static List<DifficultyReport> classify(List<String> fileNames, int parallelism, int maxStates)
+            throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<DifficultyReport>> futures = new ArrayList<>(fileNames.size());
+            for (String fileName : fileNames) {
+                futures.add(pool.submit(() -> {
+                    try {
+                        return classify(fileName, maxStates);
+                    } catch (LevelException | RuntimeException e) {
+                        String error = e.getMessage() != null ? e.getMessage() : e.toString();
+                        return DifficultyReport.unclassifiable(fileName, error);
+                    }
+                }));
+            }
+            List<DifficultyReport> reports = new ArrayList<>(fileNames.size());
+            for (Future<DifficultyReport> future : futures) {
+                try {
+                    reports.add(future.get());
+                } catch (ExecutionException e) {
+                    //Errors (e.g. out of memory) are not reported as rows.
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return reports;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Rewrites the difficulty line of a level file, i.e. the third line that is neither blank nor a comment.
+     * The rest of the file is kept as it is.
+     *
+     * @param file Level file.
+     * @param difficulty New difficulty.
+     * @return {@code true} if the file has been changed, {@code false} if it already had that difficulty.
+     * @throws IOException When the file cannot be read or written, or it has no difficulty line.
+     */
+    public static boolean rewriteHeader(Path file, LevelDifficulty difficulty) throws IOException {
+        String text = Files.readString(file, StandardCharsets.UTF_8);
+        int start = 0;
+        int headerLines = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            end = end < 0 ? text.length() : end;
+            String line = text.substring(start, end).stripTrailing();
+            if (!line.isBlank() && !line.startsWith("/") && ++headerLines == 3) {
+                if (line.equals(difficulty.name())) {
+                    return false;
+                }
+                int lineEnd = start + line.length();
+                Files.writeString(file, text.substring(0, start) + difficulty.name() + text.substring(lineEnd),
+                        StandardCharsets.UTF_8);
+                return true;
+            }
+            start = end + 1;
+        }
+        throw new IOException("The level file has no difficulty line: " + file);
+    }
+
+    /**
+     * Runs the classifier.
+     *
+     * @param args {@code --write} (optional), followed by level files and folders.
+     * @throws IOException When a folder cannot be read or a file cannot be rewritten.
+     * @throws InterruptedException When the thread is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        boolean write = false;
+        List<String> fileNames = new ArrayList<>();
+        for (String arg : args) {
+            Path path = Path.of(arg);
+            if (arg.equals("--write")) {
+                write = true;
+            } else if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.walk(path)) {
+                    files.filter(file -> Files.isRegularFile(file) && file.toString().endsWith(".txt"))
+                            .sorted()
+                            .forEach(file -> fileNames.add(file.toString()));
+                }
+            } else {
+                fileNames.add(arg);
+            }
+        }
+
+        long start = System.nanoTime();
+        List<DifficultyReport> reports = classify(fileNames, Runtime.getRuntime().availableProcessors(),
+                DEFAULT_MAX_STATES);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%-40s %-8s %-8s %6s %9s %6s %10s%n",
+                "level", "header", "derived", "moves", "branching", "mines", "states");
+        int wrong = 0;
+        int unclassifiable = 0;
+        for (DifficultyReport report : reports) {
+            if (!report.isClassified()) {
+                unclassifiable++;
+                System.out.printf("%-40s cannot be classified: %s%n", Path.of(report.fileName()).getFileName(),
+                        report.error());
+                continue;
+            }
+            DifficultyMetrics metrics = report.metrics();
+            System.out.printf("%-40s %-8s %-8s %6s %9.2f %6d %10s%s%n", Path.of(report.fileName()).getFileName(),
+                    report.declared(), report.derived(), metrics.optimalMoves() < 0 ? "-" : metrics.optimalMoves(),
+                    metrics.branchingFactor(), metrics.mineAdjacentStops(),
+                    metrics.numStates() + (metrics.limitReached() ? "+" : ""), report.matches() ? "" : "  *");
+            if (!report.matches()) {
+                wrong++;
+                if (write) {
+                    rewriteHeader(Path.of(report.fileName()), report.derived());
+                }
+            }
+        }
+        System.out.printf("%d levels in %.2f s (%.0f levels/min), %d wrong headers%s, %d unclassifiable%n",
+                reports.size(), seconds, reports.size() / Math.max(seconds, 1e-9) * 60, wrong,
+                write ? " rewritten" : "", unclassifiable);
+    }
+}
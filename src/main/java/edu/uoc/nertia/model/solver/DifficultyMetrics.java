@@ -0,0 +1,19 @@
+package edu.uoc.nertia.model.solver;
+
+/**
+ * Properties of a level measured by {@link DifficultyClassifier}.
+ *
+ * @param optimalMoves Minimum number of moves, or {@code -1} if the level cannot be completed or the search
+ *                     reached its limit.
+ * @param branchingFactor Average number of slides that can be done from a cell where the player rests
+ *                        (slides that are blocked or end in a mine are not counted).
+ * @param mineAdjacentStops Number of cells of the optimal solution (the start included) with a slide that ends
+ *                          in a mine, i.e. where a wrong move costs a life.
+ * @param numStates Number of states reached by the search, i.e. the size of the explored solution space.
+ * @param limitReached Whether the search was stopped by its limit of states.
+ * @author agent
+ * @version 1.0
+ */
+public record DifficultyMetrics(int optimalMoves, double branchingFactor, int mineAdjacentStops, long numStates,
+                                boolean limitReached) {
+}
@@ -0,0 +1,48 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.levels.LevelDifficulty;
+
+/**
+ * Difficulty of a level file, as written in its header and as derived by {@link DifficultyClassifier}.
+ *
+ * @param fileName Name of the level file.
+ * @param declared Difficulty written in the file, or {@code null} if the file cannot be classified.
+ * @param derived Difficulty derived from the metrics, or {@code null} if the file cannot be classified.
+ * @param metrics Measured properties of the level, or {@code null} if the file cannot be classified.
+ * @param error Why the file cannot be classified (e.g. it is wrong or it has too many gems), or {@code null}.
+ * @author agent
+ * @version 1.0
+ */
+public record DifficultyReport(String fileName, LevelDifficulty declared, LevelDifficulty derived,
+                               DifficultyMetrics metrics, String error) {
+
+    /**
+     * Creates the report of a file that cannot be classified.
+     *
+     * @param fileName Name of the level file.
+     * @param error Why the file cannot be classified.
+     * @return Report without difficulties nor metrics.
+     */
+    public static DifficultyReport unclassifiable(String fileName, String error) {
+        return new DifficultyReport(fileName, null, null, null, error);
+    }
+
+    /**
+     * Checks if the file has been classified.
+     *
+     * @return {@code true} if the report has difficulties and metrics.
+     */
+    public boolean isClassified() {
+        return error == null;
+    }
+
+    /**
+     * Checks if the header of the file is right.
+     *
+     * @return {@code true} if the file has been classified and the declared and the derived difficulties are
+     * the same.
+     */
+    public boolean matches() {
+        return isClassified() && declared == derived;
+    }
+}
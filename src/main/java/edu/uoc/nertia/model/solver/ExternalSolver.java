@@ -0,0 +1,410 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.levels.Level;
+import edu.uoc.nertia.model.levels.MoveEngine;
+import edu.uoc.nertia.model.utils.Direction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Optimal solver that keeps the search on disk, for levels whose states do not fit in memory.
+ * <p>
+ * It runs a breadth-first search over the states {@code (node, collected gems)} of a {@link StopGraph}
+ * with delayed duplicate detection. The successors of a layer are collected in a buffer that is sorted and
+ * written to a run file whenever it gets full. The runs are then merged with the sorted file of visited states:
+ * successors that are not visited become the next layer and are merged into a new visited file. Duplicates are
+ * thus removed by sequential merges instead of a lookup per state, so the heap only holds the buffer.
+ * </p>
+ * <p>
+ * Files are packed records written with {@link StateWriter} through NIO channels in a temporary folder that is
+ * deleted afterwards. Layers are kept until the end to rebuild the solution backwards, one scan per move.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class ExternalSolver {
+
+    /**
+     * Default memory given to the buffer of successors.
+     */
+    public static final long DEFAULT_HEAP_BUDGET = 256L << 20;
+
+    /**
+     * Cached copy of {@link Direction#values()}.
+     */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * Sorted ranges shorter than this are sorted by insertion.
+     */
+    private static final int INSERTION_SORT = 16;
+
+    /**
+     * Folder where the temporary folder of each search is created.
+     */
+    private final Path directory;
+
+    /**
+     * Number of states of the buffer of successors.
+     */
+    private final int bufferStates;
+
+    /**
+     * Buffer of the nodes of the successors. It grows up to {@link #bufferStates}.
+     */
+    private int[] nodes;
+
+    /**
+     * Buffer of the gems of the successors.
+     */
+    private long[] gems;
+
+    /**
+     * Number of states found by the last search.
+     */
+    private long numStates;
+
+    /**
+     * Constructor
+     *
+     * @param directory Folder for the temporary files.
+     * @param heapBudget Bytes of heap for the buffer of successors. About half of it is used by the buffer,
+     *                   which leaves room for the I/O buffers of the merges.
+     * @throws IllegalArgumentException When {@code heapBudget} is too small.
+     */
+    public ExternalSolver(Path directory, long heapBudget) {
+        long states = heapBudget / 2 / StateWriter.RECORD_BYTES;
+        if (states < DIRECTIONS.length) {
+            throw new IllegalArgumentException("The heap budget is too small");
+        }
+        this.directory = Objects.requireNonNull(directory);
+        this.bufferStates = (int) Math.min(states, Integer.MAX_VALUE - 8);
+    }
+
+    /**
+     * Returns the shortest solution of a level from its current state. The level is not modified.
+     *
+     * @param level Level to solve.
+     * @return Solution with the minimum number of moves, or {@code null} if the level cannot be completed.
+     * @throws IOException When the temporary files cannot be written or read.
+     * @throws IllegalArgumentException When the level has more than {@link StopGraph#MAX_GEMS} gems.
+     */
+    public Solution solve(Level level) throws IOException {
+        if (level.hasLost() || level.getPlayerPosition() == null) {
+            return null;
+        }
+        return solve(new StopGraph(new MoveEngine(level)));
+    }
+
+    /**
+     * Returns the shortest path in a graph from node 0 to a state that has every gem.
+     *
+     * @param graph Graph of the level.
+     * @return Solution with the minimum number of moves, or {@code null} if there is none.
+     * @throws IOException When the temporary files cannot be written or read.
+     */
+    public Solution solve(StopGraph graph) throws IOException {
+        numStates = 1;
+        long goal = graph.getAllGems();
+        if (goal == 0L) {
+            return new Solution(List.of());
+        }
+        if (Solver.estimate(graph, 0, 0L) == StopGraph.UNREACHABLE) {
+            return null;
+        }
+
+        Path folder = Files.createTempDirectory(directory, "nertia-solver");
+        try {
+            return search(graph, folder, goal);
+        } finally {
+            nodes = null;
+            gems = null;
+            try (var files = Files.list(folder)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(folder);
+        }
+    }
+
+    /**
+     * Returns the number of states found by the last search, including the first one.
+     *
+     * @return Number of states.
+     */
+    public long getNumStates() {
+        return numStates;
+    }
+
+    /**
+     * Runs the search in the given folder.
+     *
+     * @param graph Graph of the level.
+     * @param folder Folder for the files of this search.
+     * @param goal Bit mask of every gem.
+     * @return Solution with the minimum number of moves, or {@code null} if there is none.
+     * @throws IOException When the files cannot be written or read.
+     */
+    private Solution search(StopGraph graph, Path folder, long goal) throws IOException {
+        try (StateWriter writer = new StateWriter(layerFile(folder, 0))) {
+            writer.write(0, 0L);
+        }
+        Files.copy(layerFile(folder, 0), visitedFile(folder, 0));
+
+        nodes = new int[Math.min(bufferStates, 1 << 12)];
+        gems = new long[nodes.length];
+        for (int depth = 0; ; depth++) {
+            List<Path> runs = expand(graph, folder, depth);
+
+            Path visited = visitedFile(folder, depth);
+            int foundNode = StopGraph.NO_NODE;
+            long size;
+            try (StateWriter layer = new StateWriter(layerFile(folder, depth + 1));
+                 StateWriter union = new StateWriter(visitedFile(folder, depth + 1));
+                 StateReader old = new StateReader(visited);
+                 RunMerger successors = new RunMerger(runs)) {
+                boolean hasOld = old.next();
+                while (foundNode == StopGraph.NO_NODE && successors.next()) {
+                    int node = successors.getNode();
+                    long collected = successors.getGems();
+                    while (hasOld && compare(old.getNode(), old.getGems(), node, collected) < 0) {
+                        union.write(old.getNode(), old.getGems());
+                        hasOld = old.next();
+                    }
+                    if (hasOld && old.getNode() == node && old.getGems() == collected) {
+                        continue;
+                    }
+                    layer.write(node, collected);
+                    union.write(node, collected);
+                    if (collected == goal) {
+                        foundNode = node;
+                    }
+                }
+                while (hasOld) {
+                    union.write(old.getNode(), old.getGems());
+                    hasOld = old.next();
+                }
+                size = layer.getCount();
+            }
+            for (Path run : runs) {
+                Files.delete(run);
+            }
+            Files.delete(visited);
+            numStates += size;
+
+            if (foundNode != StopGraph.NO_NODE) {
+                return new Solution(pathTo(graph, folder, depth + 1, foundNode, goal));
+            }
+            if (size == 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Expands a layer and writes its successors to sorted run files without duplicates.
+     *
+     * @param graph Graph of the level.
+     * @param folder Folder of the search.
+     * @param depth Number of the layer.
+     * @return Run files.
+     * @throws IOException When the files cannot be written or read.
+     */
+    private List<Path> expand(StopGraph graph, Path folder, int depth) throws IOException {
+        List<Path> runs = new ArrayList<>();
+        int size = 0;
+        try (StateReader layer = new StateReader(layerFile(folder, depth))) {
+            while (layer.next()) {
+                int node = layer.getNode();
+                for (Direction direction : DIRECTIONS) {
+                    int target = graph.getTarget(node, direction);
+                    if (target == StopGraph.NO_NODE) {
+                        continue;
+                    }
+                    long collected = layer.getGems() | graph.getGems(node, direction);
+                    if (Solver.estimate(graph, target, collected) == StopGraph.UNREACHABLE) {
+                        continue;
+                    }
+                    if (size == nodes.length && size < bufferStates) {
+                        nodes = Arrays.copyOf(nodes, (int) Math.min(bufferStates, size * 2L));
+                        gems = Arrays.copyOf(gems, nodes.length);
+                    } else if (size == nodes.length) {
+                        runs.add(writeRun(folder, depth, runs.size(), nodes, gems, size));
+                        size = 0;
+                    }
+                    nodes[size] = target;
+                    gems[size++] = collected;
+                }
+            }
+        }
+        runs.add(writeRun(folder, depth, runs.size(), nodes, gems, size));
+        return runs;
+    }
+
+    /**
+     * Sorts the buffer and writes it, without duplicates, to a run file.
+     *
+     * @param folder Folder of the search.
+     * @param depth Number of the layer being expanded.
+     * @param run Number of the run.
+     * @param nodes Buffer of nodes.
+     * @param gems Buffer of gems.
+     * @param size Number of states in the buffer.
+     * @return Path of the run file.
+     * @throws IOException When the file cannot be written.
+     */
+    private static Path writeRun(Path folder, int depth, int run, int[] nodes, long[] gems, int size)
+            throws IOException {
+        sort(nodes, gems, 0, size - 1);
+        Path path = folder.resolve("run" + depth + "-" + run + ".bin");
+        try (StateWriter writer = new StateWriter(path)) {
+            for (int i = 0; i < size; i++) {
+                if (i == 0 || nodes[i] != nodes[i - 1] || gems[i] != gems[i - 1]) {
+                    writer.write(nodes[i], gems[i]);
+                }
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Rebuilds the solution backwards: for each move, the previous layer is scanned for a state that leads to
+     * the current one.
+     *
+     * @param graph Graph of the level.
+     * @param folder Folder of the search.
+     * @param depth Number of the layer of the goal.
+     * @param node Node of the goal.
+     * @param gems Gems of the goal.
+     * @return Directions in order.
+     * @throws IOException When the files cannot be read.
+     */
+    private static List<Direction> pathTo(StopGraph graph, Path folder, int depth, int node, long gems)
+            throws IOException {
+        Direction[] moves = new Direction[depth];
+        for (int d = depth - 1; d >= 0; d--) {
+            boolean found = false;
+            try (StateReader layer = new StateReader(layerFile(folder, d))) {
+                while (!found && layer.next()) {
+                    for (Direction direction : DIRECTIONS) {
+                        if (graph.getTarget(layer.getNode(), direction) == node
+                                && (layer.getGems() | graph.getGems(layer.getNode(), direction)) == gems) {
+                            moves[d] = direction;
+                            node = layer.getNode();
+                            gems = layer.getGems();
+                            found = true;
+                            break;
+                        }
+                    }
+                }
+            }
+            if (!found) {
+                throw new IllegalStateException("Layer " + d + " does not lead to layer " + (d + 1));
+            }
+        }
+        return List.of(moves);
+    }
+
+    /**
+     * Compares two states in the order of the files: by gems and then by node.
+     *
+     * @param node1 Node of the first state.
+     * @param gems1 Gems of the first state.
+     * @param node2 Node of the second state.
+     * @param gems2 Gems of the second state.
+     * @return Negative, zero or positive as the first state is before, equal to or after the second one.
+     */
+    static int compare(int node1, long gems1, int node2, long gems2) {
+        int result = Long.compare(gems1, gems2);
+        return result != 0 ? result : Integer.compare(node1, node2);
+    }
+
+    /**
+     * Sorts a range of states (quicksort with insertion sort for short ranges).
+     *
+     * @param nodes Nodes of the states.
+     * @param gems Gems of the states.
+     * @param low First index of the range.
+     * @param high Last index of the range.
+     */
+    private static void sort(int[] nodes, long[] gems, int low, int high) {
+        while (high - low >= INSERTION_SORT) {
+            int middle = (low + high) >>> 1;
+            int pivotNode = nodes[middle];
+            long pivotGems = gems[middle];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (compare(nodes[i], gems[i], pivotNode, pivotGems) < 0) {
+                    i++;
+                }
+                while (compare(nodes[j], gems[j], pivotNode, pivotGems) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(nodes, gems, i++, j--);
+                }
+            }
+            //Recurse into the smaller half to bound the stack depth.
+            if (j - low < high - i) {
+                sort(nodes, gems, low, j);
+                low = i;
+            } else {
+                sort(nodes, gems, i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && compare(nodes[j], gems[j], nodes[j - 1], gems[j - 1]) < 0; j--) {
+                swap(nodes, gems, j, j - 1);
+            }
+        }
+    }
+
+    /**
+     * Swaps two states.
+     *
+     * @param nodes Nodes of the states.
+     * @param gems Gems of the states.
+     * @param i Index of one state.
+     * @param j Index of the other state.
+     */
+    private static void swap(int[] nodes, long[] gems, int i, int j) {
+        int node = nodes[i];
+        nodes[i] = nodes[j];
+        nodes[j] = node;
+        long collected = gems[i];
+        gems[i] = gems[j];
+        gems[j] = collected;
+    }
+
+    /**
+     * Returns the file of a layer.
+     *
+     * @param folder Folder of the search.
+     * @param depth Number of the layer.
+     * @return Path of the file.
+     */
+    private static Path layerFile(Path folder, int depth) {
+        return folder.resolve("layer" + depth + ".bin");
+    }
+
+    /**
+     * Returns the file of the states visited up to a layer.
+     *
+     * @param folder Folder of the search.
+     * @param depth Number of the layer.
+     * @return Path of the file.
+     */
+    private static Path visitedFile(Path folder, int depth) {
+        return folder.resolve("visited" + depth + ".bin");
+    }
+}
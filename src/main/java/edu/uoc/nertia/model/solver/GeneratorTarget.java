@@ -0,0 +1,43 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.levels.LevelDifficulty;
+
+/**
+ * Kind of levels that {@link LevelGenerator} has to produce.
+ *
+ * @param size Number of rows and columns of the boards.
+ * @param numLives Number of lives of the levels.
+ * @param minGems Minimum number of gems.
+ * @param maxGems Maximum number of gems.
+ * @param minMoves Minimum number of moves of the optimal solution.
+ * @param maxMoves Maximum number of moves of the optimal solution.
+ * @param difficulty Difficulty derived by {@link DifficultyClassifier}, or {@code null} for any.
+ * @author agent
+ * @version 1.0
+ */
+public record GeneratorTarget(int size, int numLives, int minGems, int maxGems, int minMoves, int maxMoves,
+                              LevelDifficulty difficulty) {
+
+    /**
+     * Constructor
+     *
+     * @throws IllegalArgumentException When the values cannot give any level.
+     */
+    public GeneratorTarget {
+        if (size < 3 || minGems < 1 || minGems > maxGems || maxGems > StopGraph.MAX_GEMS
+                || maxGems > size * size - 1 || minMoves > maxMoves || numLives == 0) {
+            throw new IllegalArgumentException("Wrong generator target");
+        }
+    }
+
+    /**
+     * Checks if some metrics meet the target.
+     *
+     * @param metrics Metrics of a level.
+     * @return {@code true} if the level can be completed within the moves and has the difficulty.
+     */
+    public boolean accepts(DifficultyMetrics metrics) {
+        return metrics.optimalMoves() >= Math.max(minMoves, 0) && metrics.optimalMoves() <= maxMoves
+                && (difficulty == null || DifficultyClassifier.classify(metrics) == difficulty);
+    }
+}
@@ -0,0 +1,157 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.levels.Level;
+import edu.uoc.nertia.model.utils.Direction;
+
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded LRU cache of hints, i.e. the first move of an optimal solution, keyed by {@link Level#stateHash()}.
+ * <p>
+ * There is one cache per level file, shared by every game that plays it: the state hash does not depend on
+ * the session, so a state solved for one player is answered from the cache for the others. Hints are looked
+ * up and stored under a lock, but the solver runs outside it, so a slow solve does not block other players.
+ * When the content of the file changes, its cache is replaced by an empty one.
+ * </p>
+ * <p>
+ * The state hash does not include the lives, so lost and completed levels are answered without the cache:
+ * otherwise, the {@code null} hint of a player who has lost would be returned to everyone in the same state.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class HintCache {
+
+    /**
+     * Default maximum number of states kept per level.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 12;
+
+    /**
+     * Caches of the levels, by file name. Each one belongs to the content in {@link #contentHash}.
+     */
+    private static final Map<String, HintCache> LEVELS = new ConcurrentHashMap<>();
+
+    /**
+     * Hints by state hash, from the least to the most recently used. {@code null} values mean that the
+     * state cannot be completed (or it is already completed).
+     */
+    private final LinkedHashMap<Long, Direction> hints;
+
+    /**
+     * SHA-256 of the content of the level file, in hexadecimal, or {@code null} if the cache is not shared.
+     */
+    private final String contentHash;
+
+    /**
+     * Number of hints answered from the cache.
+     */
+    private long hits;
+
+    /**
+     * Number of hints that needed the solver.
+     */
+    private long misses;
+
+    /**
+     * Constructor
+     *
+     * @param capacity Maximum number of states kept.
+     * @throws IllegalArgumentException When the capacity is not positive.
+     */
+    public HintCache(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param capacity Maximum number of states kept.
+     * @param contentHash SHA-256 of the content of the level file, in hexadecimal, or {@code null}.
+     * @throws IllegalArgumentException When the capacity is not positive.
+     */
+    private HintCache(int capacity, String contentHash) {
+        this.contentHash = contentHash;
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+        hints = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Direction> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the cache shared by the games that play a level.
+     * If the file has been edited since its cache was created, a new one replaces it.
+     *
+     * @param fileName Name of the file of the level.
+     * @param level Level loaded from that file. Only its {@link Level#getContentHash()} is used.
+     * @return Cache of the level, with {@link #DEFAULT_CAPACITY}.
+     */
+    public static HintCache forLevel(String fileName, Level level) {
+        String hash = HexFormat.of().formatHex(level.getContentHash());
+        return LEVELS.compute(fileName, (name, cache) -> cache != null && hash.equals(cache.contentHash) ? cache
+                : new HintCache(DEFAULT_CAPACITY, hash));
+    }
+
+    /**
+     * Returns the next move of an optimal solution of the level from its current state.
+     *
+     * @param level Level in its current state. It is not modified.
+     * @return Direction to move in, or {@code null} if the level cannot be completed or is already completed.
+     */
+    public Direction hint(Level level) {
+        if (level.hasLost() || level.hasWon()) {
+            return null;
+        }
+        Long key = level.stateHash();
+        synchronized (this) {
+            if (hints.containsKey(key)) {
+                hits++;
+                return hints.get(key);
+            }
+            misses++;
+        }
+
+        Solution solution = Solver.solve(level);
+        Direction direction = solution == null || solution.numMoves() == 0 ? null : solution.moves().get(0);
+        synchronized (this) {
+            hints.put(key, direction);
+        }
+        return direction;
+    }
+
+    /**
+     * Returns the number of states in the cache.
+     *
+     * @return Number of cached hints.
+     */
+    public synchronized int size() {
+        return hints.size();
+    }
+
+    /**
+     * Returns the number of hints answered from the cache.
+     *
+     * @return Number of hits.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of hints that needed the solver.
+     *
+     * @return Number of misses.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,148 @@
+package edu.uoc.nertia.model.solver;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * States found at the same depth of a breadth-first search, with the index of their parent in the previous layer
+ * and the direction of the slide from it.
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class Layer {
+
+    /**
+     * Node of each state.
+     */
+    private int[] nodes;
+
+    /**
+     * Collected gems of each state.
+     */
+    private long[] gems;
+
+    /**
+     * Index of the parent of each state in the previous layer.
+     */
+    private int[] parents;
+
+    /**
+     * Direction ordinal of the slide from the parent.
+     */
+    private byte[] directions;
+
+    /**
+     * Number of states.
+     */
+    private int size;
+
+    /**
+     * Constructor
+     *
+     * @param capacity Initial number of states that can be stored without growing.
+     */
+    Layer(int capacity) {
+        capacity = Math.max(capacity, 1);
+        nodes = new int[capacity];
+        gems = new long[capacity];
+        parents = new int[capacity];
+        directions = new byte[capacity];
+        size = 0;
+    }
+
+    /**
+     * Appends a state.
+     *
+     * @param node Node of the state.
+     * @param gems Collected gems of the state.
+     * @param parent Index of the parent in the previous layer.
+     * @param direction Direction ordinal of the slide from the parent.
+     * @return Index of the state in this layer.
+     */
+    int add(int node, long gems, int parent, int direction) {
+        if (size == nodes.length) {
+            int capacity = size * 2;
+            nodes = Arrays.copyOf(nodes, capacity);
+            this.gems = Arrays.copyOf(this.gems, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            directions = Arrays.copyOf(directions, capacity);
+        }
+        nodes[size] = node;
+        this.gems[size] = gems;
+        parents[size] = parent;
+        directions[size] = (byte) direction;
+        return size++;
+    }
+
+    /**
+     * Joins several layers into one.
+     *
+     * @param parts Layers to join, in order.
+     * @return Layer with the states of every part.
+     */
+    static Layer concat(List<Layer> parts) {
+        int total = 0;
+        for (Layer part : parts) {
+            total += part.size;
+        }
+        Layer layer = new Layer(total);
+        for (Layer part : parts) {
+            System.arraycopy(part.nodes, 0, layer.nodes, layer.size, part.size);
+            System.arraycopy(part.gems, 0, layer.gems, layer.size, part.size);
+            System.arraycopy(part.parents, 0, layer.parents, layer.size, part.size);
+            System.arraycopy(part.directions, 0, layer.directions, layer.size, part.size);
+            layer.size += part.size;
+        }
+        return layer;
+    }
+
+    /**
+     * Returns the number of states.
+     *
+     * @return Number of states.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the node of a state.
+     *
+     * @param i Index of the state.
+     * @return Number of the node.
+     */
+    int getNode(int i) {
+        return nodes[i];
+    }
+
+    /**
+     * Returns the collected gems of a state.
+     *
+     * @param i Index of the state.
+     * @return Bit mask of gems.
+     */
+    long getGems(int i) {
+        return gems[i];
+    }
+
+    /**
+     * Returns the parent of a state.
+     *
+     * @param i Index of the state.
+     * @return Index of the parent in the previous layer.
+     */
+    int getParent(int i) {
+        return parents[i];
+    }
+
+    /**
+     * Returns the direction of the slide that leads to a state.
+     *
+     * @param i Index of the state.
+     * @return Direction ordinal.
+     */
+    int getDirection(int i) {
+        return directions[i];
+    }
+}
@@ -0,0 +1,234 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.levels.CanonicalForm;
+import edu.uoc.nertia.model.levels.Level;
+import edu.uoc.nertia.model.levels.LevelDifficulty;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates random levels in the format of the level files and keeps the ones that meet a {@link GeneratorTarget}.
+ * <p>
+ * A candidate is a random board with exactly one player and some gems on empty cells. It is parsed by
+ * {@link Level} (so it meets the same rules as the bundled levels), measured by
+ * {@link DifficultyClassifier#measure(Level, int)} with a small limit of states, which also tells if it can be
+ * completed, and kept if the target accepts its metrics. Its difficulty line is the derived one. Levels that are
+ * rotations or reflections of a kept one ({@link CanonicalForm}) are discarded.
+ * </p>
+ * <p>
+ * The work is spread over several threads, each with its own random generator, until the
+ * requested number of levels is reached. Usage:
+ * {@code LevelGenerator <count> <size> <folder> [EASY|MEDIUM|HARD]}, which writes {@code level1.txt},
+ * {@code level2.txt}... in the folder.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class LevelGenerator {
+
+    /**
+     * Maximum number of states of the search of a candidate.
+     */
+    public static final int MAX_STATES = 1 << 14;
+
+    /**
+     * Symbols of the terrain and how often they appear.
+     */
+    private static final String TERRAIN = "--------------SS##X";
+
+    /**
+     * Kind of levels to generate.
+     */
+    private final GeneratorTarget target;
+
+    /**
+     * Number of threads.
+     */
+    private final int parallelism;
+
+    /**
+     * Number of candidates built by the last call to {@link #generate(int, long)}.
+     */
+    private final AtomicLong numCandidates = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param target Kind of levels to generate.
+     * @param parallelism Number of threads.
+     * @throws IllegalArgumentException When {@code parallelism} is less than 1.
+     */
+    public LevelGenerator(GeneratorTarget target, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be positive");
+        }
+        this.target = target;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Generates levels.
+     *
+     * @param count Number of levels.
+     * @param seed Seed of the random generators. The levels depend on it and on the scheduling of the threads.
+     * @return Content of the level files.
+     * @throws InterruptedException When the thread is interrupted while waiting.
+     */
+    public List<String> generate(int count, long seed) throws InterruptedException {
+        numCandidates.set(0);
+        List<String> levels = new ArrayList<>(count);
+        Set<CanonicalForm> forms = ConcurrentHashMap.newKeySet();
+        AtomicInteger remaining = new AtomicInteger(count);
+        SplittableRandom seeds = new SplittableRandom(seed);
+
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < parallelism; i++) {
+                SplittableRandom random = seeds.split();
+                futures.add(pool.submit(() -> work(random, remaining, forms)));
+            }
+            for (Future<List<String>> future : futures) {
+                try {
+                    levels.addAll(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return levels;
+    }
+
+    /**
+     * Returns the number of candidates built by the last generation, kept or not.
+     *
+     * @return Number of candidates.
+     */
+    public long getNumCandidates() {
+        return numCandidates.get();
+    }
+
+    /**
+     * Builds candidates until enough levels have been kept by all the threads.
+     *
+     * @param random Random generator of the thread.
+     * @param remaining Number of levels that are still needed.
+     * @param forms Canonical forms of the kept levels.
+     * @return Levels kept by this thread.
+     */
+    private List<String> work(SplittableRandom random, AtomicInteger remaining, Set<CanonicalForm> forms) {
+        List<String> levels = new ArrayList<>();
+        char[] board = new char[target.size() * target.size()];
+        while (remaining.get() > 0 && !Thread.currentThread().isInterrupted()) {
+            numCandidates.incrementAndGet();
+            fill(random, board);
+            Level level;
+            try {
+                level = Level.fromText(toText(board, LevelDifficulty.EASY));
+            } catch (LevelException e) {
+                continue;
+            }
+            if (level.getNumGemsInit() < target.minGems()) {
+                continue;
+            }
+            DifficultyMetrics metrics = DifficultyClassifier.measure(level, MAX_STATES);
+            if (!target.accepts(metrics) || !forms.add(CanonicalForm.of(level))) {
+                continue;
+            }
+            if (remaining.getAndDecrement() > 0) {
+                levels.add(toText(board, DifficultyClassifier.classify(metrics)));
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * Fills a board with random terrain, one player and some gems on empty cells.
+     *
+     * @param random Random generator.
+     * @param board Symbols of the board, row by row.
+     */
+    private void fill(SplittableRandom random, char[] board) {
+        for (int i = 0; i < board.length; i++) {
+            board[i] = TERRAIN.charAt(random.nextInt(TERRAIN.length()));
+        }
+        board[random.nextInt(board.length)] = '@';
+        int numGems = random.nextInt(target.minGems(), target.maxGems() + 1);
+        for (int gems = 0, attempts = 0; gems < numGems && attempts < 4 * board.length; attempts++) {
+            int cell = random.nextInt(board.length);
+            if (board[cell] == '-') {
+                board[cell] = '*';
+                gems++;
+            }
+        }
+    }
+
+    /**
+     * Builds the content of a level file.
+     *
+     * @param board Symbols of the board, row by row.
+     * @param difficulty Difficulty line.
+     * @return Content of a level file.
+     */
+    private String toText(char[] board, LevelDifficulty difficulty) {
+        int size = target.size();
+        StringBuilder text = new StringBuilder();
+        text.append("//Lives\n").append(target.numLives()).append("\n//Size\n").append(size).append('\n')
+                .append(difficulty).append('\n');
+        for (int row = 0; row < size; row++) {
+            text.append(board, row * size, size).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Runs the generator.
+     *
+     * @param args Number of levels, size of the boards, output folder and, optionally, their difficulty.
+     * @throws IOException When the files cannot be written.
+     * @throws InterruptedException When the thread is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 3) {
+            System.out.println("Usage: LevelGenerator <count> <size> <folder> [EASY|MEDIUM|HARD]");
+            return;
+        }
+        int count = Integer.parseInt(args[0]);
+        int size = Integer.parseInt(args[1]);
+        Path folder = Path.of(args[2]);
+        LevelDifficulty difficulty = args.length > 3 ? LevelDifficulty.valueOf(args[3]) : null;
+        int maxGems = Math.min(StopGraph.MAX_GEMS, Math.max(2, size * size / 12));
+        GeneratorTarget target = new GeneratorTarget(size, 3, 1, maxGems, 2, Integer.MAX_VALUE, difficulty);
+
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        LevelGenerator generator = new LevelGenerator(target, parallelism);
+        long start = System.nanoTime();
+        List<String> levels = generator.generate(count, System.nanoTime());
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Files.createDirectories(folder);
+        for (int i = 0; i < levels.size(); i++) {
+            Files.writeString(folder.resolve("level" + (i + 1) + ".txt"), levels.get(i), StandardCharsets.UTF_8);
+        }
+        System.out.printf("%d levels (%d candidates) in %.2f s with %d threads: %.0f levels/min%n", levels.size(),
+                generator.getNumCandidates(), seconds, parallelism, levels.size() / Math.max(seconds, 1e-9) * 60);
+    }
+}
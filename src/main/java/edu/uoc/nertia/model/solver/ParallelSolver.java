@@ -0,0 +1,282 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.levels.Level;
+import edu.uoc.nertia.model.levels.MoveEngine;
+import edu.uoc.nertia.model.utils.Direction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Optimal solver that spreads the search over several threads.
+ * <p>
+ * It runs a level-synchronous breadth-first search over the states {@code (node, collected gems)} of a
+ * {@link StopGraph}: every layer (all the states at the same number of moves) is split into ranges that the
+ * threads of a {@link ForkJoinPool} expand, stealing ranges from each other when they run out of work.
+ * Visited states are shared through a {@link StripedStateSet}. As in {@link Solver}, the first layer with a state
+ * that has every gem gives the minimum number of moves, and states from which some gem cannot be collected are pruned.
+ * </p>
+ * <p>
+ * It pays off for big levels (e.g. 40x40 with dozens of gems). For small ones {@link Solver} is faster.
+ * A solver can be reused, but not by several threads at the same time.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class ParallelSolver implements AutoCloseable {
+
+    /**
+     * Number of states of a layer that a task expands without splitting.
+     */
+    private static final int THRESHOLD = 1 << 10;
+
+    /**
+     * Cached copy of {@link Direction#values()}.
+     */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * Pool that runs the search.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Number of states found by the last search.
+     */
+    private long numStates;
+
+    /**
+     * Whether the last search was stopped by its limit of states.
+     */
+    private boolean limitReached;
+
+    /**
+     * Constructor
+     *
+     * @param parallelism Number of threads.
+     * @throws IllegalArgumentException When {@code parallelism} is less than 1.
+     */
+    public ParallelSolver(int parallelism) {
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Returns the number of threads of the solver.
+     *
+     * @return Number of threads.
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Returns the shortest solution of a level from its current state. The level is not modified.
+     *
+     * @param level Level to solve.
+     * @return Solution with the minimum number of moves, or {@code null} if the level cannot be completed.
+     * @throws IllegalArgumentException When the level has more than {@link StopGraph#MAX_GEMS} gems.
+     */
+    public Solution solve(Level level) {
+        if (level.hasLost() || level.getPlayerPosition() == null) {
+            return null;
+        }
+        return solve(new StopGraph(new MoveEngine(level)), Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns the shortest path in a graph from node 0 to a state that has every gem.
+     *
+     * @param graph Graph of the level.
+     * @param maxStates The search stops (and returns {@code null}) once it has found more states than this.
+     *                  It is checked after each layer.
+     * @return Solution with the minimum number of moves, or {@code null} if there is none or the limit is reached.
+     */
+    public Solution solve(StopGraph graph, long maxStates) {
+        numStates = 1;
+        limitReached = false;
+        long goal = graph.getAllGems();
+        if (goal == 0L) {
+            return new Solution(List.of());
+        }
+        if (Solver.estimate(graph, 0, 0L) == StopGraph.UNREACHABLE) {
+            return null;
+        }
+
+        StripedStateSet visited = new StripedStateSet(pool.getParallelism());
+        visited.add(0, 0L);
+        List<Layer> layers = new ArrayList<>();
+        Layer layer = new Layer(1);
+        layer.add(0, 0L, 0, 0);
+        layers.add(layer);
+        AtomicBoolean found = new AtomicBoolean();
+
+        while (layer.size() > 0) {
+            layer = Layer.concat(pool.invoke(new Expansion(graph, layer, 0, layer.size(), visited, goal, found)));
+            layers.add(layer);
+            numStates += layer.size();
+            if (found.get()) {
+                for (int i = 0; i < layer.size(); i++) {
+                    if (layer.getGems(i) == goal) {
+                        return new Solution(pathTo(layers, i));
+                    }
+                }
+            }
+            if (numStates > maxStates) {
+                limitReached = true;
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of states found by the last search, including the first one.
+     *
+     * @return Number of states.
+     */
+    public long getNumStates() {
+        return numStates;
+    }
+
+    /**
+     * Checks if the last search was stopped by its limit of states.
+     *
+     * @return {@code true} if the last search did not finish.
+     */
+    public boolean isLimitReached() {
+        return limitReached;
+    }
+
+    /**
+     * Stops the threads of the solver.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Rebuilds the directions that lead from the first layer to a state of the last one.
+     *
+     * @param layers Layers of the search.
+     * @param index Index of the state in the last layer.
+     * @return Directions in order.
+     */
+    private static List<Direction> pathTo(List<Layer> layers, int index) {
+        Direction[] moves = new Direction[layers.size() - 1];
+        for (int depth = layers.size() - 1; depth > 0; depth--) {
+            Layer layer = layers.get(depth);
+            moves[depth - 1] = DIRECTIONS[layer.getDirection(index)];
+            index = layer.getParent(index);
+        }
+        return List.of(moves);
+    }
+
+    /**
+     * Expands a range of a layer into the states of the next one.
+     */
+    private static final class Expansion extends RecursiveTask<List<Layer>> {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Graph of the level.
+         */
+        private final StopGraph graph;
+
+        /**
+         * Layer being expanded.
+         */
+        private final Layer layer;
+
+        /**
+         * First index of the range.
+         */
+        private final int from;
+
+        /**
+         * Index after the last one of the range.
+         */
+        private final int to;
+
+        /**
+         * States found so far.
+         */
+        private final StripedStateSet visited;
+
+        /**
+         * Bit mask of every gem.
+         */
+        private final long goal;
+
+        /**
+         * Set when a state with every gem is found.
+         */
+        private final AtomicBoolean found;
+
+        /**
+         * Constructor
+         *
+         * @param graph Graph of the level.
+         * @param layer Layer being expanded.
+         * @param from First index of the range.
+         * @param to Index after the last one of the range.
+         * @param visited States found so far.
+         * @param goal Bit mask of every gem.
+         * @param found Set when a state with every gem is found.
+         */
+        private Expansion(StopGraph graph, Layer layer, int from, int to,
+                          StripedStateSet visited, long goal, AtomicBoolean found) {
+            this.graph = graph;
+            this.layer = layer;
+            this.from = from;
+            this.to = to;
+            this.visited = visited;
+            this.goal = goal;
+            this.found = found;
+        }
+
+        /**
+         * Expands the range, splitting it in halves while it is bigger than {@link #THRESHOLD}.
+         *
+         * @return Parts of the next layer found by this range.
+         */
+        @Override
+        protected List<Layer> compute() {
+            if (to - from > THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                Expansion left = new Expansion(graph, layer, from, middle, visited, goal, found);
+                left.fork();
+                List<Layer> parts = new Expansion(graph, layer, middle, to, visited, goal, found).compute();
+                List<Layer> joined = new ArrayList<>(left.join());
+                joined.addAll(parts);
+                return joined;
+            }
+
+            Layer next = new Layer((to - from) * 2);
+            for (int i = from; i < to; i++) {
+                int node = layer.getNode(i);
+                long gems = layer.getGems(i);
+                for (Direction direction : DIRECTIONS) {
+                    int target = graph.getTarget(node, direction);
+                    if (target == StopGraph.NO_NODE) {
+                        continue;
+                    }
+                    long collected = gems | graph.getGems(node, direction);
+                    if (Solver.estimate(graph, target, collected) != StopGraph.UNREACHABLE
+                            && visited.add(target, collected)) {
+                        next.add(target, collected, i, direction.ordinal());
+                        if (collected == goal) {
+                            found.set(true);
+                        }
+                    }
+                }
+            }
+            return List.of(next);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package edu.uoc.nertia.model.solver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Merges several sorted files of states into one sorted stream without duplicates.
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class RunMerger implements Closeable {
+
+    /**
+     * Readers of the files.
+     */
+    private final StateReader[] readers;
+
+    /**
+     * Whether each reader is on a state (i.e. it has not reached the end of its file).
+     */
+    private final boolean[] active;
+
+    /**
+     * Node of the current state.
+     */
+    private int node;
+
+    /**
+     * Collected gems of the current state.
+     */
+    private long gems;
+
+    /**
+     * Whether a state has already been returned.
+     */
+    private boolean started;
+
+    /**
+     * Constructor
+     *
+     * @param runs Files sorted with {@link ExternalSolver#compare(int, long, int, long)}.
+     * @throws IOException When a file cannot be opened or read.
+     */
+    RunMerger(List<Path> runs) throws IOException {
+        readers = new StateReader[runs.size()];
+        active = new boolean[runs.size()];
+        try {
+            for (int i = 0; i < readers.length; i++) {
+                readers[i] = new StateReader(runs.get(i));
+                active[i] = readers[i].next();
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Moves to the next state, skipping the ones equal to the current state.
+     *
+     * @return {@code true} if there is a state, {@code false} when every file has ended.
+     * @throws IOException When a file cannot be read.
+     */
+    boolean next() throws IOException {
+        int min = -1;
+        for (int i = 0; i < readers.length; i++) {
+            while (active[i] && started && readers[i].getNode() == node && readers[i].getGems() == gems) {
+                active[i] = readers[i].next();
+            }
+            if (active[i] && (min < 0 || ExternalSolver.compare(readers[i].getNode(), readers[i].getGems(),
+                    readers[min].getNode(), readers[min].getGems()) < 0)) {
+                min = i;
+            }
+        }
+        if (min < 0) {
+            return false;
+        }
+        node = readers[min].getNode();
+        gems = readers[min].getGems();
+        started = true;
+        return true;
+    }
+
+    /**
+     * Returns the node of the current state.
+     *
+     * @return Number of the node.
+     */
+    int getNode() {
+        return node;
+    }
+
+    /**
+     * Returns the collected gems of the current state.
+     *
+     * @return Bit mask of gems.
+     */
+    long getGems() {
+        return gems;
+    }
+
+    /**
+     * Closes every file.
+     *
+     * @throws IOException When a file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        for (StateReader reader : readers) {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+    }
+}
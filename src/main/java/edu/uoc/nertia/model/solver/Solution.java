@@ -0,0 +1,33 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.utils.Direction;
+
+import java.util.List;
+
+/**
+ * Sequence of moves that completes a level.
+ *
+ * @param moves Directions to move the player in, in order. It cannot be modified.
+ * @author agent
+ * @version 1.0
+ */
+public record Solution(List<Direction> moves) {
+
+    /**
+     * Constructor
+     *
+     * @param moves Directions to move the player in, in order.
+     */
+    public Solution {
+        moves = List.copyOf(moves);
+    }
+
+    /**
+     * Returns the number of moves of the solution.
+     *
+     * @return Number of moves.
+     */
+    public int numMoves() {
+        return moves.size();
+    }
+}
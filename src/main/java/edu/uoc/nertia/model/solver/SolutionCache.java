@@ -0,0 +1,317 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.levels.Level;
+import edu.uoc.nertia.model.levels.MoveEngine;
+import edu.uoc.nertia.model.utils.Direction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent cache of the solutions of level files, keyed by {@link Level#getContentHash()}.
+ * <p>
+ * It is made of two files in a directory. {@link #DATA_FILE} has the solutions, one after another:
+ * the number of states, the number of moves ({@code -1} if there is no solution) and one letter per move
+ * ({@code L}, {@code U}, {@code R}, {@code D}). {@link #INDEX_FILE} has a header and fixed records of
+ * {@link #INDEX_RECORD_BYTES} bytes (the content hash and the offset and length of the solution).
+ * </p>
+ * <p>
+ * Opening the cache only reads the header of the index, so it does not depend on the number of entries. The
+ * first lookup maps the index once and builds a hash table of the locations of the solutions, so lookups take
+ * O(1) time. Solutions are only read when they are looked up. Adding a solution appends it to both files and to
+ * the table, so the index is never mapped again.
+ * </p>
+ * <p>
+ * Entries are only appended and the files are never compacted. An edited level gets a new hash, and adding a
+ * hash again supersedes its old entry, but the old entries keep their space in both files. Each entry takes
+ * {@link #INDEX_RECORD_BYTES} bytes of index and a few bytes per move of data, and levels are seldom edited, so
+ * the files stay small. Deleting them empties the cache.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class SolutionCache implements Closeable {
+
+    /**
+     * Name of the index file.
+     */
+    public static final String INDEX_FILE = "solutions.idx";
+
+    /**
+     * Name of the data file.
+     */
+    public static final String DATA_FILE = "solutions.dat";
+
+    /**
+     * First bytes of the index file.
+     */
+    private static final int MAGIC = 0x4E534331;
+
+    /**
+     * Size of the header of the index file.
+     */
+    private static final int HEADER_BYTES = Integer.BYTES;
+
+    /**
+     * Size of a content hash.
+     */
+    private static final int KEY_BYTES = 32;
+
+    /**
+     * Size of a record of the index: the hash, the offset ({@code long}) and the length ({@code int}).
+     */
+    static final int INDEX_RECORD_BYTES = KEY_BYTES + Long.BYTES + Integer.BYTES;
+
+    /**
+     * Size of a solution without its moves: the number of states ({@code long}) and of moves ({@code int}).
+     */
+    private static final int DATA_HEADER_BYTES = Long.BYTES + Integer.BYTES;
+
+    /**
+     * Letters of the directions, by ordinal.
+     */
+    private static final String LETTERS = "LURD";
+
+    /**
+     * Cached copy of {@link Direction#values()}.
+     */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * Channel of the index file.
+     */
+    private final FileChannel indexChannel;
+
+    /**
+     * Channel of the data file.
+     */
+    private final FileChannel dataChannel;
+
+    /**
+     * Locations of the solutions in the data file by content hash, or {@code null} until the first lookup.
+     */
+    private Map<ByteBuffer, Location> locations;
+
+    /**
+     * Number of records of the index.
+     */
+    private int numEntries;
+
+    /**
+     * Constructor. The directory and the files are created if they do not exist.
+     *
+     * @param directory Directory of the cache files.
+     * @throws IOException When the files cannot be opened or the index file is not a cache index.
+     */
+    public SolutionCache(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        indexChannel = FileChannel.open(directory.resolve(INDEX_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        dataChannel = FileChannel.open(directory.resolve(DATA_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (indexChannel.size() == 0) {
+                write(indexChannel, ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).flip(), 0);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            indexChannel.read(header, 0);
+            if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+                throw new IOException("The file is not a solution cache index: " + directory.resolve(INDEX_FILE));
+            }
+            //An incomplete last record is ignored.
+            numEntries = (int) ((indexChannel.size() - HEADER_BYTES) / INDEX_RECORD_BYTES);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the result of solving a level file, from the cache if the file has not changed since it was
+     * solved. Otherwise, the level is solved and the result is added to the cache.
+     *
+     * @param fileName Name of the level file, as in {@link Level#Level(String)}.
+     * @return Result of the solver.
+     * @throws LevelException When the level file is wrong.
+     * @throws IOException When the cache files cannot be read or written.
+     * @throws IllegalArgumentException When the level has more than {@link StopGraph#MAX_GEMS} gems.
+     */
+    public synchronized CachedSolution solve(String fileName) throws LevelException, IOException {
+        Level level = new Level(fileName);
+        byte[] key = level.getContentHash();
+        CachedSolution cached = get(key);
+        if (cached == null) {
+            StateTable states = new StateTable();
+            Solution solution = Solver.solve(new StopGraph(new MoveEngine(level)), states, Integer.MAX_VALUE);
+            cached = new CachedSolution(solution, states.size());
+            put(key, cached);
+        }
+        return cached;
+    }
+
+    /**
+     * Looks up the result of a level. If the same hash has been added several times, the last one is returned.
+     *
+     * @param contentHash Hash of the level file, as returned by {@link Level#getContentHash()}.
+     * @return Cached result, or {@code null} if there is none.
+     * @throws IOException When the data file cannot be read.
+     */
+    public synchronized CachedSolution get(byte[] contentHash) throws IOException {
+        checkKey(contentHash);
+        Location location = locations().get(ByteBuffer.wrap(contentHash));
+        return location == null ? null : read(location.offset(), location.length());
+    }
+
+    /**
+     * Adds the result of a level. The solution is written before its index record, so a crash never leaves
+     * a record that points to a missing solution.
+     *
+     * @param contentHash Hash of the level file, as returned by {@link Level#getContentHash()}.
+     * @param cached Result of the solver.
+     * @throws IOException When the files cannot be written.
+     */
+    public synchronized void put(byte[] contentHash, CachedSolution cached) throws IOException {
+        checkKey(contentHash);
+        List<Direction> moves = cached.solution() == null ? List.of() : cached.solution().moves();
+        ByteBuffer data = ByteBuffer.allocate(DATA_HEADER_BYTES + moves.size());
+        data.putLong(cached.numStates()).putInt(cached.numMoves());
+        for (Direction direction : moves) {
+            data.put((byte) LETTERS.charAt(direction.ordinal()));
+        }
+        long offset = dataChannel.size();
+        write(dataChannel, data.flip(), offset);
+
+        Location location = new Location(offset, DATA_HEADER_BYTES + moves.size());
+        ByteBuffer record = ByteBuffer.allocate(INDEX_RECORD_BYTES);
+        record.put(contentHash).putLong(location.offset()).putInt(location.length());
+        write(indexChannel, record.flip(), HEADER_BYTES + (long) numEntries * INDEX_RECORD_BYTES);
+        locations().put(ByteBuffer.wrap(contentHash.clone()), location);
+        numEntries++;
+    }
+
+    /**
+     * Returns the number of entries of the index, including the ones of levels that have changed.
+     *
+     * @return Number of entries.
+     */
+    public synchronized int size() {
+        return numEntries;
+    }
+
+    /**
+     * Closes the cache files.
+     *
+     * @throws IOException When the files cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            indexChannel.close();
+        } finally {
+            dataChannel.close();
+        }
+    }
+
+    /**
+     * Returns the locations of the solutions by content hash. The first call maps the index and reads all its
+     * records. If a hash has been added several times, its last record wins.
+     *
+     * @return Table of locations.
+     * @throws IOException When the index cannot be mapped.
+     */
+    private Map<ByteBuffer, Location> locations() throws IOException {
+        if (locations == null) {
+            Map<ByteBuffer, Location> table = new HashMap<>(Math.max(16, numEntries * 2));
+            MappedByteBuffer index = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    HEADER_BYTES + (long) numEntries * INDEX_RECORD_BYTES);
+            for (int entry = 0; entry < numEntries; entry++) {
+                int position = HEADER_BYTES + entry * INDEX_RECORD_BYTES;
+                byte[] key = new byte[KEY_BYTES];
+                index.get(position, key);
+                table.put(ByteBuffer.wrap(key), new Location(index.getLong(position + KEY_BYTES),
+                        index.getInt(position + KEY_BYTES + Long.BYTES)));
+            }
+            locations = table;
+        }
+        return locations;
+    }
+
+    /**
+     * Reads a solution from the data file.
+     *
+     * @param offset Position of the solution.
+     * @param length Size of the solution.
+     * @return Cached result.
+     * @throws IOException When the file cannot be read or the solution is wrong.
+     */
+    private CachedSolution read(long offset, int length) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(length);
+        while (data.hasRemaining()) {
+            if (dataChannel.read(data, offset + data.position()) < 0) {
+                throw new IOException("The solution cache data file is truncated");
+            }
+        }
+        data.flip();
+        long numStates = data.getLong();
+        int numMoves = data.getInt();
+        if (numMoves < 0) {
+            return new CachedSolution(null, numStates);
+        }
+        List<Direction> moves = new ArrayList<>(numMoves);
+        for (int i = 0; i < numMoves; i++) {
+            int ordinal = LETTERS.indexOf(data.get());
+            if (ordinal < 0) {
+                throw new IOException("The solution cache data file is corrupted");
+            }
+            moves.add(DIRECTIONS[ordinal]);
+        }
+        return new CachedSolution(new Solution(moves), numStates);
+    }
+
+    /**
+     * Writes a buffer at a position of a file.
+     *
+     * @param channel Channel of the file.
+     * @param buffer Bytes to write.
+     * @param position Position in the file.
+     * @throws IOException When the file cannot be written.
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Checks that a content hash has the right size.
+     *
+     * @param contentHash Hash to check.
+     * @throws IllegalArgumentException When it is not a SHA-256.
+     */
+    private static void checkKey(byte[] contentHash) {
+        if (contentHash.length != KEY_BYTES) {
+            throw new IllegalArgumentException("The content hash must have " + KEY_BYTES + " bytes");
+        }
+    }
+
+    /**
+     * Position of a solution in the data file.
+     *
+     * @param offset Position of the solution.
+     * @param length Size of the solution.
+     */
+    private record Location(long offset, int length) {
+    }
+}
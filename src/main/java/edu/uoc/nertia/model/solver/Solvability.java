@@ -0,0 +1,26 @@
+package edu.uoc.nertia.model.solver;
+
+/**
+ * Whether the current state of a level can still be completed, as published by {@link SolvabilityMonitor}.
+ *
+ * @author agent
+ * @version 1.0
+ */
+public enum Solvability {
+
+    /**
+     * Every remaining gem can still be collected without dying.
+     */
+    SOLVABLE,
+
+    /**
+     * Some remaining gem cannot be collected any more (or the level has been lost): only undoing or
+     * reloading helps.
+     */
+    DEAD_END,
+
+    /**
+     * The state has not been analysed yet, or it is too big for an exact search.
+     */
+    UNKNOWN
+}
@@ -0,0 +1,166 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.levels.Level;
+import edu.uoc.nertia.model.levels.LevelMirror;
+import edu.uoc.nertia.model.levels.MoveEngine;
+
+/**
+ * Tells, in the background, whether the current state of a level can still be completed.
+ * <p>
+ * The monitor listens to a {@link LevelMirror}, so the actions of the player take no time in the caller's thread.
+ * After the last queued action, the worker thread of the mirror analyses the resulting state:
+ * </p>
+ * <ol>
+ *     <li>If some remaining gem cannot be reached in the {@link StopGraph} (i.e. without dying), it is a dead end.</li>
+ *     <li>If the greedy player of {@link AnytimeSolver} collects every gem, it is solvable.</li>
+ *     <li>Otherwise, an exact search with at most {@code maxStates} states decides it (or it stays unknown).</li>
+ * </ol>
+ * <p>
+ * Only the state after the last queued action is analysed, and each action turns the flag to
+ * {@link Solvability#UNKNOWN} until its analysis ends. The result of a state is not published if a newer action
+ * has been queued meanwhile. Moves never bring gems back, so a dead end stays a dead end until an undo or a seek.
+ * </p>
+ * <p>
+ * Every analysis runs in the worker thread of the mirror, so the monitor has no threads of its own.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class SolvabilityMonitor implements AutoCloseable {
+
+    /**
+     * Default maximum number of states of the exact search.
+     */
+    public static final long DEFAULT_MAX_STATES = 1 << 18;
+
+    /**
+     * Mirror whose states are analysed.
+     */
+    private final LevelMirror mirror;
+
+    /**
+     * Listener registered in {@link #mirror}.
+     */
+    private final LevelMirror.Listener listener;
+
+    /**
+     * Maximum number of states of the exact search.
+     */
+    private final long maxStates;
+
+    /**
+     * Solvability of the state after the last queued action.
+     */
+    private Solvability solvability;
+
+    /**
+     * Constructor. The current state of the mirror is analysed right away.
+     *
+     * @param mirror Copy of the level that follows the player.
+     * @param maxStates Maximum number of states of the exact search.
+     */
+    public SolvabilityMonitor(LevelMirror mirror, long maxStates) {
+        this.mirror = mirror;
+        this.maxStates = maxStates;
+        this.solvability = Solvability.UNKNOWN;
+        this.listener = new LevelMirror.Listener() {
+            @Override
+            public void queued(boolean restores) {
+                reset(restores);
+            }
+
+            @Override
+            public void analyse(Level level, long action) {
+                publish(level, action);
+            }
+        };
+        mirror.addListener(listener);
+    }
+
+    /**
+     * Returns whether the state after the last action can still be completed.
+     *
+     * @return Last published solvability. It is {@link Solvability#UNKNOWN} while the analysis is running.
+     */
+    public synchronized Solvability getSolvability() {
+        return solvability;
+    }
+
+    /**
+     * Stops listening to the mirror.
+     */
+    @Override
+    public void close() {
+        mirror.removeListener(listener);
+    }
+
+    /**
+     * Forgets the published solvability when an action is queued.
+     *
+     * @param restores Whether the action can bring gems back, so a dead end may stop being one.
+     */
+    private synchronized void reset(boolean restores) {
+        if (restores || solvability != Solvability.DEAD_END) {
+            solvability = Solvability.UNKNOWN;
+        }
+    }
+
+    /**
+     * Analyses the state after an action and publishes the result if no newer action has been queued.
+     *
+     * @param level Copy of the level.
+     * @param action Number of the action in the mirror.
+     */
+    private void publish(Level level, long action) {
+        synchronized (this) {
+            //Moves never bring gems back.
+            if (solvability == Solvability.DEAD_END) {
+                return;
+            }
+        }
+        Solvability result;
+        try {
+            result = analyse(level, action);
+        } catch (RuntimeException e) {
+            result = Solvability.UNKNOWN;
+        }
+        synchronized (this) {
+            if (mirror.isLatest(action)) {
+                solvability = result;
+            }
+        }
+    }
+
+    /**
+     * Analyses the current state of the copy of the level.
+     *
+     * @param level Copy of the level.
+     * @param action Number of the action in the mirror.
+     * @return Solvability of the state.
+     */
+    private Solvability analyse(Level level, long action) {
+        if (level.hasLost()) {
+            return Solvability.DEAD_END;
+        }
+        if (level.hasWon()) {
+            return Solvability.SOLVABLE;
+        }
+        StopGraph graph = new StopGraph(new MoveEngine(level));
+        if (Solver.estimate(graph, 0, 0L) == StopGraph.UNREACHABLE) {
+            return Solvability.DEAD_END;
+        }
+        if (AnytimeSolver.greedy(graph, 0, 0L) != null) {
+            return Solvability.SOLVABLE;
+        }
+        if (!mirror.isLatest(action)) {
+            return Solvability.UNKNOWN;
+        }
+        StateTable states = new StateTable();
+        int limit = (int) Math.min(maxStates, Integer.MAX_VALUE);
+        if (Solver.solve(graph, states, limit) != null) {
+            return Solvability.SOLVABLE;
+        }
+        return states.size() > limit ? Solvability.UNKNOWN : Solvability.DEAD_END;
+    }
+}
@@ -0,0 +1,158 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.levels.Level;
+import edu.uoc.nertia.model.levels.MoveEngine;
+import edu.uoc.nertia.model.utils.Direction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Optimal solver of levels.
+ * <p>
+ * It runs an A* search over the states {@code (node, collected gems)} of a {@link StopGraph}. Every slide
+ * costs one move and the estimate of a state is the distance to its farthest remaining gem, which never
+ * overestimates, so the first state with every gem that is expanded is reached with the minimum number of moves.
+ * States from which some remaining gem cannot be collected are pruned. Slides that end in a mine are not part
+ * of the graph, so a solution never loses a life.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public abstract class Solver {
+
+    /**
+     * Cached copy of {@link Direction#values()}.
+     */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * Returns the shortest solution of a level file.
+     *
+     * @param fileName Name of the level file, as in {@link Level#Level(String)}.
+     * @return Solution with the minimum number of moves, or {@code null} if the level cannot be completed.
+     * @throws LevelException When the level file is wrong.
+     */
+    public static Solution solve(String fileName) throws LevelException {
+        return solve(new Level(fileName));
+    }
+
+    /**
+     * Returns the shortest solution of a level from its current state, i.e. the moves that collect
+     * every gem that is still on the board. The level is not modified.
+     *
+     * @param level Level to solve.
+     * @return Solution with the minimum number of moves, or {@code null} if the level cannot be completed
+     * (e.g. it has been lost or a gem cannot be reached).
+     * @throws IllegalArgumentException When the level has more than {@link StopGraph#MAX_GEMS} gems.
+     */
+    public static Solution solve(Level level) {
+        if (level.hasLost() || level.getPlayerPosition() == null) {
+            return null;
+        }
+        return solve(new StopGraph(new MoveEngine(level)));
+    }
+
+    /**
+     * Returns the shortest path in a graph from node 0 to a state that has every gem.
+     *
+     * @param graph Graph of the level.
+     * @return Solution with the minimum number of moves, or {@code null} if there is none.
+     */
+    public static Solution solve(StopGraph graph) {
+        return solve(graph, new StateTable(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the shortest path in a graph from node 0 to a state that has every gem.
+     *
+     * @param graph Graph of the level.
+     * @param states Empty table where the states reached by the search are added, e.g. to count them.
+     * @param maxStates The search stops (and returns {@code null}) once the table has more states than this.
+     * @return Solution with the minimum number of moves, or {@code null} if there is none or the limit is reached.
+     */
+    static Solution solve(StopGraph graph, StateTable states, int maxStates) {
+        long goal = graph.getAllGems();
+        int estimate = estimate(graph, 0, 0L);
+        if (estimate == StopGraph.UNREACHABLE) {
+            return null;
+        }
+
+        BucketQueue open = new BucketQueue();
+        open.push(states.add(0, 0L, 0, StateTable.NO_STATE, 0), estimate);
+        while (!open.isEmpty()) {
+            int priority = open.peekPriority();
+            int id = open.pop();
+            int node = states.getNode(id);
+            long gems = states.getGems(id);
+            int cost = states.getCost(id);
+            if (cost + estimate(graph, node, gems) != priority) {
+                //A shorter path to this state was found after it was queued.
+                continue;
+            }
+            if (gems == goal) {
+                return new Solution(pathTo(states, id));
+            }
+            for (Direction direction : DIRECTIONS) {
+                int target = graph.getTarget(node, direction);
+                if (target == StopGraph.NO_NODE) {
+                    continue;
+                }
+                long collected = gems | graph.getGems(node, direction);
+                int remaining = estimate(graph, target, collected);
+                if (remaining == StopGraph.UNREACHABLE) {
+                    continue;
+                }
+                int next = states.find(target, collected);
+                if (next == StateTable.NO_STATE) {
+                    next = states.add(target, collected, cost + 1, id, direction.ordinal());
+                    if (states.size() > maxStates) {
+                        return null;
+                    }
+                } else if (cost + 1 < states.getCost(next)) {
+                    states.update(next, cost + 1, id, direction.ordinal());
+                } else {
+                    continue;
+                }
+                open.push(next, cost + 1 + remaining);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a lower bound of the moves needed to collect the remaining gems: the largest distance
+     * from the node to one of them. It never overestimates, so A* finds the shortest path.
+     *
+     * @param graph Graph of the level.
+     * @param node Number of the node where the player is.
+     * @param gems Bit mask of the collected gems.
+     * @return Lower bound of the number of moves, or {@link StopGraph#UNREACHABLE} if some gem cannot be collected.
+     */
+    static int estimate(StopGraph graph, int node, long gems) {
+        int estimate = 0;
+        for (long remaining = ~gems & graph.getAllGems(); remaining != 0; remaining &= remaining - 1) {
+            estimate = Math.max(estimate, graph.getGemDistance(Long.numberOfTrailingZeros(remaining), node));
+        }
+        return estimate;
+    }
+
+    /**
+     * Rebuilds the directions that lead from the first state to the given one.
+     *
+     * @param states Table of states.
+     * @param id Id of the last state.
+     * @return Directions in order.
+     */
+    static List<Direction> pathTo(StateTable states, int id) {
+        List<Direction> moves = new ArrayList<>();
+        for (int state = id; states.getParent(state) != StateTable.NO_STATE; state = states.getParent(state)) {
+            moves.add(DIRECTIONS[states.getDirection(state)]);
+        }
+        Collections.reverse(moves);
+        return moves;
+    }
+}
@@ -0,0 +1,151 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.levels.Level;
+import edu.uoc.nertia.model.levels.MoveEngine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Measures the throughput (states per second) of {@link ParallelSolver} with 1, 2, 4, 8 and all the cores,
+ * on the bundled levels and on big generated boards.
+ * <p>
+ * Usage: {@code SolverBenchmark [states per run] [number of generated boards] [size of generated boards]}.
+ * Every run is stopped after the given number of states, so big boards give comparable figures.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public abstract class SolverBenchmark {
+
+    /**
+     * Bundled levels.
+     */
+    private static final String[] LEVELS = {"levels/level1.txt", "levels/level2.txt", "levels/level3.txt"};
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional: states per run (default 2000000), generated boards (default 3), their size (default 40).
+     * @throws LevelException When a level cannot be parsed.
+     * @throws IOException When a generated board cannot be written.
+     */
+    public static void main(String[] args) throws LevelException, IOException {
+        long maxStates = args.length > 0 ? Long.parseLong(args[0]) : 2_000_000L;
+        int numBoards = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 40;
+
+        TreeSet<Integer> threads = new TreeSet<>(List.of(1, 2, 4, 8));
+        threads.add(Runtime.getRuntime().availableProcessors());
+
+        List<String> names = new ArrayList<>(List.of(LEVELS));
+        Path folder = Files.createTempDirectory("nertia-benchmark");
+        Random random = new Random(2023);
+        for (int i = 0; i < numBoards; i++) {
+            Path file = folder.resolve("generated" + i + ".txt");
+            generate(random, file, size, 24 + 4 * i);
+            names.add(file.toString());
+        }
+
+        //Warm up the JIT with the first generated board (or the last bundled level).
+        try (ParallelSolver solver = new ParallelSolver(threads.last())) {
+            solver.solve(graphOf(names.get(names.size() - 1)), maxStates / 4);
+        }
+
+        System.out.printf("%-40s %8s %12s %10s %14s %8s%n", "level", "threads", "states", "ms", "states/s", "moves");
+        for (String name : names) {
+            StopGraph graph = graphOf(name);
+            double base = 0;
+            for (int parallelism : threads) {
+                try (ParallelSolver solver = new ParallelSolver(parallelism)) {
+                    long start = System.nanoTime();
+                    Solution solution = solver.solve(graph, maxStates);
+                    double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+                    double rate = solver.getNumStates() / seconds;
+                    base = parallelism == 1 ? rate : base;
+                    System.out.printf("%-40s %8d %12d %10.1f %14.0f %8s  x%.2f%n",
+                            Path.of(name).getFileName(), parallelism, solver.getNumStates(), seconds * 1e3, rate,
+                            solution != null ? solution.numMoves() : solver.isLimitReached() ? "limit" : "none",
+                            rate / base);
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the graph of a level file.
+     *
+     * @param name Name of the level file.
+     * @return Graph of the level.
+     * @throws LevelException When the level cannot be parsed.
+     */
+    private static StopGraph graphOf(String name) throws LevelException {
+        return new StopGraph(new MoveEngine(new Level(name)));
+    }
+
+    /**
+     * Writes a random level file. Gems are put on empty cells where the player can rest, so all of them
+     * can be reached (although the level may still have no solution).
+     *
+     * @param random Source of randomness.
+     * @param file File to write.
+     * @param size Number of rows and columns.
+     * @param numGems Number of gems.
+     * @throws LevelException When the board cannot be parsed.
+     * @throws IOException When the file cannot be written.
+     */
+    private static void generate(Random random, Path file, int size, int numGems) throws LevelException, IOException {
+        String elements = "------------------SS##X";
+        char[] board = new char[size * size];
+        for (int i = 0; i < board.length; i++) {
+            board[i] = elements.charAt(random.nextInt(elements.length()));
+        }
+        board[random.nextInt(board.length)] = '@';
+        //A level needs one gem to be parsed. Gems do not change where slides stop, so it is removed later.
+        int first = random.nextInt(board.length);
+        while (board[first] != '-') {
+            first = random.nextInt(board.length);
+        }
+        board[first] = '*';
+        Files.writeString(file, toText(board, size));
+
+        StopGraph graph = graphOf(file.toString());
+        List<Integer> cells = new ArrayList<>();
+        for (int node = 1; node < graph.getNumNodes(); node++) {
+            if (board[graph.getCell(node)] == '-' || graph.getCell(node) == first) {
+                cells.add(graph.getCell(node));
+            }
+        }
+        Collections.shuffle(cells, random);
+        if (!cells.isEmpty()) {
+            board[first] = '-';
+        }
+        for (int cell : cells.subList(0, Math.min(numGems, cells.size()))) {
+            board[cell] = '*';
+        }
+        Files.writeString(file, toText(board, size));
+    }
+
+    /**
+     * Builds the content of a level file.
+     *
+     * @param board Symbols of the board, row by row.
+     * @param size Number of rows and columns.
+     * @return Content of a level file.
+     */
+    private static String toText(char[] board, int size) {
+        StringBuilder text = new StringBuilder("3\n" + size + "\nHARD\n");
+        for (int row = 0; row < size; row++) {
+            text.append(board, row * size, size).append('\n');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,100 @@
+package edu.uoc.nertia.model.solver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads, one by one, the search states of a file written by {@link StateWriter}.
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class StateReader implements Closeable {
+
+    /**
+     * Channel of the file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Records read from the file and not returned yet.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Node of the current state.
+     */
+    private int node;
+
+    /**
+     * Collected gems of the current state.
+     */
+    private long gems;
+
+    /**
+     * Constructor
+     *
+     * @param path Path of the file.
+     * @throws IOException When the file cannot be opened.
+     */
+    StateReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        buffer = ByteBuffer.allocate(StateWriter.BUFFER_BYTES);
+        buffer.flip();
+    }
+
+    /**
+     * Moves to the next state of the file.
+     *
+     * @return {@code true} if there is a state, {@code false} at the end of the file.
+     * @throws IOException When the file cannot be read.
+     */
+    boolean next() throws IOException {
+        if (buffer.remaining() < StateWriter.RECORD_BYTES) {
+            buffer.compact();
+            int read = 0;
+            while (buffer.position() < StateWriter.RECORD_BYTES && read >= 0) {
+                read = channel.read(buffer);
+            }
+            buffer.flip();
+            if (buffer.remaining() < StateWriter.RECORD_BYTES) {
+                return false;
+            }
+        }
+        node = buffer.getInt();
+        gems = buffer.getLong();
+        return true;
+    }
+
+    /**
+     * Returns the node of the current state.
+     *
+     * @return Number of the node.
+     */
+    int getNode() {
+        return node;
+    }
+
+    /**
+     * Returns the collected gems of the current state.
+     *
+     * @return Bit mask of gems.
+     */
+    long getGems() {
+        return gems;
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException When the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
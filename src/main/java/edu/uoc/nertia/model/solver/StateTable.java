@@ -0,0 +1,241 @@
+package edu.uoc.nertia.model.solver;
+
+import java.util.Arrays;
+
+/**
+ * Set of search states {@code (node, gems)} in discovery order.
+ * <p>
+ * Every state gets an id (0, 1, 2...) when it is added, together with its number of moves, the state it
+ * comes from and the direction of the slide, so that the path to any state can be rebuilt. The ids are also
+ * the order of a breadth-first queue. Lookups use open addressing over parallel arrays, so no object is created per state.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class StateTable {
+
+    /**
+     * Parent of the first state.
+     */
+    static final int NO_STATE = -1;
+
+    /**
+     * Initial number of states that can be stored without growing.
+     */
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    /**
+     * Node of each state.
+     */
+    private int[] nodes;
+
+    /**
+     * Collected gems of each state.
+     */
+    private long[] gems;
+
+    /**
+     * Number of moves of each state.
+     */
+    private int[] costs;
+
+    /**
+     * State each state comes from, or {@link #NO_STATE}.
+     */
+    private int[] parents;
+
+    /**
+     * Direction ordinal of the slide from the parent.
+     */
+    private byte[] directions;
+
+    /**
+     * Hash slots: {@code id + 1} of the state, or 0 if the slot is free.
+     */
+    private int[] slots;
+
+    /**
+     * Number of states.
+     */
+    private int size;
+
+    /**
+     * Constructor
+     */
+    StateTable() {
+        nodes = new int[INITIAL_CAPACITY];
+        gems = new long[INITIAL_CAPACITY];
+        costs = new int[INITIAL_CAPACITY];
+        parents = new int[INITIAL_CAPACITY];
+        directions = new byte[INITIAL_CAPACITY];
+        slots = new int[INITIAL_CAPACITY * 2];
+        size = 0;
+    }
+
+    /**
+     * Mixes a state into a hash.
+     *
+     * @param node Node of the state.
+     * @param gems Collected gems of the state.
+     * @return Hash of the state.
+     */
+    static int hash(int node, long gems) {
+        long z = (gems ^ ((long) node << 32 | node)) * 0x9E3779B97F4A7C15L;
+        return (int) (z ^ (z >>> 32));
+    }
+
+    /**
+     * Returns the id of a state.
+     *
+     * @param node Node of the state.
+     * @param gems Collected gems of the state.
+     * @return Id of the state, or {@link #NO_STATE} if it is not in the table.
+     */
+    int find(int node, long gems) {
+        int slot = slotOf(node, gems);
+        return slots[slot] - 1;
+    }
+
+    /**
+     * Adds a state if it is not in the table yet.
+     *
+     * @param node Node of the state.
+     * @param gems Collected gems of the state.
+     * @param cost Number of moves of the state.
+     * @param parent Id of the state it comes from, or {@link #NO_STATE}.
+     * @param direction Direction ordinal of the slide from {@code parent}.
+     * @return Id of the new state, or {@link #NO_STATE} if it was already in the table.
+     */
+    int add(int node, long gems, int cost, int parent, int direction) {
+        int slot = slotOf(node, gems);
+        if (slots[slot] != 0) {
+            return NO_STATE;
+        }
+        if (size == nodes.length) {
+            grow();
+            slot = slotOf(node, gems);
+        }
+        nodes[size] = node;
+        this.gems[size] = gems;
+        costs[size] = cost;
+        parents[size] = parent;
+        directions[size] = (byte) direction;
+        slots[slot] = ++size;
+        return size - 1;
+    }
+
+    /**
+     * Changes how a state is reached, e.g. when a shorter path to it is found.
+     *
+     * @param id Id of the state.
+     * @param cost Number of moves of the state.
+     * @param parent Id of the state it comes from.
+     * @param direction Direction ordinal of the slide from {@code parent}.
+     */
+    void update(int id, int cost, int parent, int direction) {
+        costs[id] = cost;
+        parents[id] = parent;
+        directions[id] = (byte) direction;
+    }
+
+    /**
+     * Returns the slot of a state, or the free slot where it would go.
+     *
+     * @param node Node of the state.
+     * @param gems Collected gems of the state.
+     * @return Index of {@link #slots}.
+     */
+    private int slotOf(int node, long gems) {
+        int mask = slots.length - 1;
+        int slot = hash(node, gems) & mask;
+        while (slots[slot] != 0) {
+            int id = slots[slot] - 1;
+            if (nodes[id] == node && this.gems[id] == gems) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Returns the number of states.
+     *
+     * @return Number of states.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the node of a state.
+     *
+     * @param id Id of the state.
+     * @return Number of the node.
+     */
+    int getNode(int id) {
+        return nodes[id];
+    }
+
+    /**
+     * Returns the collected gems of a state.
+     *
+     * @param id Id of the state.
+     * @return Bit mask of gems.
+     */
+    long getGems(int id) {
+        return gems[id];
+    }
+
+    /**
+     * Returns the number of moves of a state.
+     *
+     * @param id Id of the state.
+     * @return Number of moves from the first state.
+     */
+    int getCost(int id) {
+        return costs[id];
+    }
+
+    /**
+     * Returns the state a state comes from.
+     *
+     * @param id Id of the state.
+     * @return Id of the parent, or {@link #NO_STATE} for the first state.
+     */
+    int getParent(int id) {
+        return parents[id];
+    }
+
+    /**
+     * Returns the direction of the slide that leads to a state.
+     *
+     * @param id Id of the state.
+     * @return Direction ordinal.
+     */
+    int getDirection(int id) {
+        return directions[id];
+    }
+
+    /**
+     * Doubles the capacity and rebuilds the hash slots.
+     */
+    private void grow() {
+        int capacity = nodes.length * 2;
+        nodes = Arrays.copyOf(nodes, capacity);
+        gems = Arrays.copyOf(gems, capacity);
+        costs = Arrays.copyOf(costs, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        directions = Arrays.copyOf(directions, capacity);
+        slots = new int[capacity * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hash(nodes[id], gems[id]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+}
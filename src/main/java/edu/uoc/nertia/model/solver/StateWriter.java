@@ -0,0 +1,106 @@
+package edu.uoc.nertia.model.solver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes search states {@code (node, gems)} to a file as packed records of {@link #RECORD_BYTES} bytes.
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class StateWriter implements Closeable {
+
+    /**
+     * Size of a record: the node ({@code int}) followed by the gems ({@code long}).
+     */
+    static final int RECORD_BYTES = Integer.BYTES + Long.BYTES;
+
+    /**
+     * Default size of the I/O buffers.
+     */
+    static final int BUFFER_BYTES = (1 << 16) / RECORD_BYTES * RECORD_BYTES;
+
+    /**
+     * Channel of the file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Records waiting to be written.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Number of records written.
+     */
+    private long count;
+
+    /**
+     * Constructor. The file is created or truncated.
+     *
+     * @param path Path of the file.
+     * @throws IOException When the file cannot be opened.
+     */
+    StateWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        count = 0;
+    }
+
+    /**
+     * Appends a state.
+     *
+     * @param node Node of the state.
+     * @param gems Collected gems of the state.
+     * @throws IOException When the file cannot be written.
+     */
+    void write(int node, long gems) throws IOException {
+        if (buffer.remaining() < RECORD_BYTES) {
+            flush();
+        }
+        buffer.putInt(node).putLong(gems);
+        count++;
+    }
+
+    /**
+     * Returns the number of states written.
+     *
+     * @return Number of records.
+     */
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * Writes the buffered records to the file.
+     *
+     * @throws IOException When the file cannot be written.
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the buffered records and closes the file.
+     *
+     * @throws IOException When the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.cells.Element;
+import edu.uoc.nertia.model.levels.MoveEngine;
+import edu.uoc.nertia.model.utils.Direction;
+
+import java.util.Arrays;
+
+/**
+ * Compressed view of a level for solvers.
+ * <p>
+ * Nodes are the cells where the player can rest, i.e. the player's cell and every cell where a slide
+ * that starts in another node stops. Edges are the slides between nodes, labelled with the gems they collect.
+ * Slides are resolved by a {@link MoveEngine}, so the graph follows exactly the rules of the game.
+ * </p>
+ * <p>
+ * Walls, stops and mines never change, so the graph only depends on where the player is and on which gems
+ * are still on the board when it is built. Slides that end in a mine are left out: dying leaves the board as it
+ * was and costs a move and a life, so a shortest solution never dies. For the same reason extra lives are ignored.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+public final class StopGraph {
+
+    /**
+     * Target of the edges that do not exist (the slide is blocked or ends in a mine).
+     */
+    public static final int NO_NODE = -1;
+
+    /**
+     * Maximum number of gems, because the gems of a state are stored in a {@code long}.
+     */
+    public static final int MAX_GEMS = Long.SIZE;
+
+    /**
+     * Distance to a gem that cannot be collected.
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * Cached copy of {@link Direction#values()}.
+     */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * Number of rows and columns of the board.
+     */
+    private final int size;
+
+    /**
+     * Cell (flat index) of each node. Node 0 is the player's cell.
+     */
+    private final int[] cells;
+
+    /**
+     * Number of nodes.
+     */
+    private final int numNodes;
+
+    /**
+     * Target node of each edge ({@code node * 4 + direction ordinal}), or {@link #NO_NODE}.
+     */
+    private final int[] targets;
+
+    /**
+     * Bit mask of the gems collected by each edge.
+     */
+    private final long[] gems;
+
+    /**
+     * Cell of each gem. Gems are numbered row by row.
+     */
+    private final int[] gemCells;
+
+    /**
+     * Minimum number of moves to collect each gem from each node: {@code gem * numNodes + node}.
+     */
+    private final int[] gemDistances;
+
+    /**
+     * Constructor. It explores every node that can be reached from the player's cell.
+     *
+     * @param engine Engine of the level. The level is not modified.
+     * @throws IllegalArgumentException When there is no player or there are more than {@link #MAX_GEMS} gems.
+     */
+    public StopGraph(MoveEngine engine) {
+        size = engine.getSize();
+        int numCells = size * size;
+        int start = engine.getPlayerIndex();
+        if (start == MoveEngine.OUT_OF_BOARD) {
+            throw new IllegalArgumentException("The level has no player");
+        }
+
+        int[] gemOf = new int[numCells];
+        int numGems = 0;
+        for (int cell = 0; cell < numCells; cell++) {
+            gemOf[cell] = engine.getElement(cell) == Element.GEM ? numGems++ : -1;
+        }
+        if (numGems > MAX_GEMS) {
+            throw new IllegalArgumentException("The level has more than " + MAX_GEMS + " gems");
+        }
+        gemCells = new int[numGems];
+        for (int cell = 0; cell < numCells; cell++) {
+            if (gemOf[cell] >= 0) {
+                gemCells[gemOf[cell]] = cell;
+            }
+        }
+
+        int[] nodeOf = new int[numCells];
+        Arrays.fill(nodeOf, NO_NODE);
+        int[] nodes = new int[numCells];
+        int[] edgeTargets = new int[numCells * DIRECTIONS.length];
+        long[] edgeGems = new long[numCells * DIRECTIONS.length];
+        int[] path = new int[size];
+        int count = 0;
+
+        nodes[count] = start;
+        nodeOf[start] = count++;
+        for (int node = 0; node < count; node++) {
+            int cell = nodes[node];
+            for (Direction direction : DIRECTIONS) {
+                int edge = node * DIRECTIONS.length + direction.ordinal();
+                int stop = engine.slide(cell, direction);
+                if (stop == MoveEngine.OUT_OF_BOARD || stop == cell) {
+                    edgeTargets[edge] = NO_NODE;
+                    continue;
+                }
+                if (nodeOf[stop] == NO_NODE) {
+                    nodes[count] = stop;
+                    nodeOf[stop] = count++;
+                }
+                edgeTargets[edge] = nodeOf[stop];
+                long mask = 0L;
+                for (int i = engine.collectibles(cell, direction, path) - 1; i >= 0; i--) {
+                    if (gemOf[path[i]] >= 0) {
+                        mask |= 1L << gemOf[path[i]];
+                    }
+                }
+                edgeGems[edge] = mask;
+            }
+        }
+
+        numNodes = count;
+        cells = Arrays.copyOf(nodes, count);
+        targets = Arrays.copyOf(edgeTargets, count * DIRECTIONS.length);
+        gems = Arrays.copyOf(edgeGems, count * DIRECTIONS.length);
+        gemDistances = computeGemDistances();
+    }
+
+    /**
+     * Computes the minimum number of moves to collect each gem from each node, with one backward
+     * breadth-first search per gem from the edges that collect it.
+     *
+     * @return Distances by {@code gem * numNodes + node}.
+     */
+    private int[] computeGemDistances() {
+        //Predecessors in compressed rows: the ones of node v are predecessors[first[v]..first[v + 1]).
+        int[] first = new int[numNodes + 1];
+        for (int target : targets) {
+            if (target != NO_NODE) {
+                first[target + 1]++;
+            }
+        }
+        for (int node = 0; node < numNodes; node++) {
+            first[node + 1] += first[node];
+        }
+        int[] predecessors = new int[first[numNodes]];
+        int[] next = Arrays.copyOf(first, numNodes);
+        for (int edge = 0; edge < targets.length; edge++) {
+            if (targets[edge] != NO_NODE) {
+                predecessors[next[targets[edge]]++] = edge / DIRECTIONS.length;
+            }
+        }
+
+        int[] distances = new int[gemCells.length * numNodes];
+        Arrays.fill(distances, UNREACHABLE);
+        int[] queue = new int[numNodes];
+        for (int gem = 0; gem < gemCells.length; gem++) {
+            int offset = gem * numNodes;
+            int tail = 0;
+            for (int edge = 0; edge < targets.length; edge++) {
+                int node = edge / DIRECTIONS.length;
+                if ((gems[edge] & (1L << gem)) != 0 && distances[offset + node] == UNREACHABLE) {
+                    distances[offset + node] = 1;
+                    queue[tail++] = node;
+                }
+            }
+            for (int head = 0; head < tail; head++) {
+                int node = queue[head];
+                for (int i = first[node]; i < first[node + 1]; i++) {
+                    int predecessor = predecessors[i];
+                    if (distances[offset + predecessor] == UNREACHABLE) {
+                        distances[offset + predecessor] = distances[offset + node] + 1;
+                        queue[tail++] = predecessor;
+                    }
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Returns the number of rows and columns of the board.
+     *
+     * @return Size of the board.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of nodes.
+     *
+     * @return Number of nodes. Nodes are numbered from 0, which is the player's cell.
+     */
+    public int getNumNodes() {
+        return numNodes;
+    }
+
+    /**
+     * Returns the cell of a node.
+     *
+     * @param node Number of the node.
+     * @return Flat index ({@code row * size + column}) of the cell.
+     */
+    public int getCell(int node) {
+        return cells[node];
+    }
+
+    /**
+     * Returns the node where a slide from {@code node} ends.
+     *
+     * @param node Number of the node.
+     * @param direction Direction of the slide.
+     * @return Number of the target node, or {@link #NO_NODE} if the slide is blocked or ends in a mine.
+     */
+    public int getTarget(int node, Direction direction) {
+        return targets[node * DIRECTIONS.length + direction.ordinal()];
+    }
+
+    /**
+     * Returns the gems that a slide from {@code node} collects.
+     *
+     * @param node Number of the node.
+     * @param direction Direction of the slide.
+     * @return Bit mask of gems (bit {@code i} is gem {@code i}).
+     */
+    public long getGems(int node, Direction direction) {
+        return gems[node * DIRECTIONS.length + direction.ordinal()];
+    }
+
+    /**
+     * Returns the number of gems on the board.
+     *
+     * @return Number of gems.
+     */
+    public int getNumGems() {
+        return gemCells.length;
+    }
+
+    /**
+     * Returns the bit mask with every gem, i.e. the gems to collect to complete the level.
+     *
+     * @return Bit mask of all the gems.
+     */
+    public long getAllGems() {
+        return gemCells.length == MAX_GEMS ? -1L : (1L << gemCells.length) - 1;
+    }
+
+    /**
+     * Returns the minimum number of moves to collect a gem from a node, including the move that collects it.
+     *
+     * @param gem Number of the gem.
+     * @param node Number of the node.
+     * @return Number of moves, or {@link #UNREACHABLE} if the gem cannot be collected from that node.
+     */
+    public int getGemDistance(int gem, int node) {
+        return gemDistances[gem * numNodes + node];
+    }
+
+    /**
+     * Returns the cell of a gem.
+     *
+     * @param gem Number of the gem.
+     * @return Flat index of the cell.
+     */
+    public int getGemCell(int gem) {
+        return gemCells[gem];
+    }
+}
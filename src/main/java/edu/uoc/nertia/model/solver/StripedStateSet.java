@@ -0,0 +1,138 @@
+package edu.uoc.nertia.model.solver;
+
+/**
+ * Thread-safe set of search states {@code (node, gems)}.
+ * <p>
+ * The set is split into stripes, each one an open-addressing table with its own lock. The high bits of the
+ * hash of a state choose its stripe, so threads that add different states rarely wait for each other.
+ * States are stored as a primitive {@code int} and {@code long}, so no object is created per state.
+ * </p>
+ *
+ * @author agent
+ * @version 1.0
+ */
+final class StripedStateSet {
+
+    /**
+     * Initial number of slots of each stripe.
+     */
+    private static final int INITIAL_SLOTS = 1 << 8;
+
+    /**
+     * Stripes of the set.
+     */
+    private final Stripe[] stripes;
+
+    /**
+     * Number of bits of the hash that choose the stripe.
+     */
+    private final int stripeBits;
+
+    /**
+     * Constructor
+     *
+     * @param parallelism Number of threads that will use the set. There are at least four stripes per thread.
+     */
+    StripedStateSet(int parallelism) {
+        stripeBits = 32 - Integer.numberOfLeadingZeros(Math.max(1, parallelism * 4 - 1));
+        stripes = new Stripe[1 << stripeBits];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Adds a state if it is not in the set yet.
+     *
+     * @param node Node of the state.
+     * @param gems Collected gems of the state.
+     * @return {@code true} if the state has been added, {@code false} if it was already in the set.
+     */
+    boolean add(int node, long gems) {
+        int hash = StateTable.hash(node, gems);
+        Stripe stripe = stripes[stripeBits == 0 ? 0 : hash >>> (32 - stripeBits)];
+        synchronized (stripe) {
+            return stripe.add(node, gems, hash);
+        }
+    }
+
+    /**
+     * Returns the number of states of the set. It must not be called while states are being added.
+     *
+     * @return Number of states.
+     */
+    long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    /**
+     * One open-addressing table of the set. It is only used while holding its lock.
+     */
+    private static final class Stripe {
+
+        /**
+         * Node of each slot plus one, or 0 if the slot is free.
+         */
+        private int[] nodes = new int[INITIAL_SLOTS];
+
+        /**
+         * Collected gems of each slot.
+         */
+        private long[] gems = new long[INITIAL_SLOTS];
+
+        /**
+         * Number of states of the stripe.
+         */
+        private int size;
+
+        /**
+         * Adds a state if it is not in the stripe yet.
+         *
+         * @param node Node of the state.
+         * @param gems Collected gems of the state.
+         * @param hash Hash of the state.
+         * @return {@code true} if the state has been added.
+         */
+        private boolean add(int node, long gems, int hash) {
+            int mask = nodes.length - 1;
+            int slot = hash & mask;
+            while (nodes[slot] != 0) {
+                if (nodes[slot] == node + 1 && this.gems[slot] == gems) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            nodes[slot] = node + 1;
+            this.gems[slot] = gems;
+            if (++size * 2 > nodes.length) {
+                grow();
+            }
+            return true;
+        }
+
+        /**
+         * Doubles the number of slots.
+         */
+        private void grow() {
+            int[] oldNodes = nodes;
+            long[] oldGems = gems;
+            nodes = new int[oldNodes.length * 2];
+            gems = new long[oldNodes.length * 2];
+            int mask = nodes.length - 1;
+            for (int i = 0; i < oldNodes.length; i++) {
+                if (oldNodes[i] != 0) {
+                    int slot = StateTable.hash(oldNodes[i] - 1, oldGems[i]) & mask;
+                    while (nodes[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    nodes[slot] = oldNodes[i];
+                    gems[slot] = oldGems[i];
+                }
+            }
+        }
+    }
+}
@@ -1,15 +1,83 @@
 package edu.uoc.nertia.model.stack;
 
-import java.util.Stack;
+import edu.uoc.nertia.model.cells.Element;
+import edu.uoc.nertia.model.exceptions.PositionException;
+import edu.uoc.nertia.model.utils.Position;
 
-public class UndoStack extends Stack<StackItem> {
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EmptyStackException;
+import java.util.List;
 
+/**
+ * Stack of the moves that can be undone.
+ * <p>
+ * Moves are packed one after another in a growable {@code int[]} instead of being stored as
+ * {@link StackItem} objects. Each record is laid out as:
+ * </p>
+ * <pre>
+ * origin | origin element ordinal | number of items | item... | record length
+ * </pre>
+ * <p>
+ * Cells are stored as {@code row << 16 | column} keys. A collected gem is stored as its key and a collected
+ * extra life as {@code ~key}. The trailing length lets {@link #pop()} find the start of the last record.
+ * </p>
+ *
+ * @author David García Solórzano
+ * @version 1.0
+ */
+public class UndoStack {
+
+    /**
+     * Ints used by a record besides its items: origin, origin element, number of items and length.
+     */
+    private static final int HEADER = 4;
+
+    /**
+     * Initial capacity of {@link #records}.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Ordinal stored when the origin element is unknown (i.e. {@code null}).
+     */
+    private static final int NO_ELEMENT = -1;
+
+    /**
+     * Packed records.
+     */
+    private int[] records;
+
+    /**
+     * Number of ints of {@link #records} in use.
+     */
+    private int length;
+
+    /**
+     * Number of records in the stack.
+     */
+    private int size;
+
+    /**
+     * Number of pops done so far.
+     */
     private int num;
 
+    /**
+     * Constructor
+     */
     public UndoStack() {
+        records = new int[INITIAL_CAPACITY];
+        length = 0;
+        size = 0;
         num = 0;
     }
 
+    /**
+     * Returns the number of pops done so far.
+     *
+     * @return Number of pops.
+     */
     public int getNum() {
         return num;
     }
@@ -18,8 +86,117 @@ public class UndoStack extends Stack<StackItem> {
         num += 1;
     }
 
+    /**
+     * Returns the number of moves in the stack.
+     *
+     * @return Number of records.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the stack is empty.
+     *
+     * @return {@code true} if there are no moves to undo.
+     */
+    public boolean empty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all the moves. The number of pops is not changed.
+     */
+    public void clear() {
+        length = 0;
+        size = 0;
+    }
+
+    /**
+     * Adds a move to the stack.
+     *
+     * @param item Move to store.
+     */
+    public void push(StackItem item) {
+        List<Position> lives = item.collectedLives() == null ? List.of() : item.collectedLives();
+        List<Position> gems = item.collectedGems() == null ? List.of() : item.collectedGems();
+        int numItems = lives.size() + gems.size();
+        ensureCapacity(length + HEADER + numItems);
+        records[length++] = key(item.originPosition());
+        records[length++] = item.originElement() == null ? NO_ELEMENT : item.originElement().ordinal();
+        records[length++] = numItems;
+        for (Position position : gems) {
+            records[length++] = key(position);
+        }
+        for (Position position : lives) {
+            records[length++] = ~key(position);
+        }
+        records[length++] = HEADER + numItems;
+        size++;
+    }
+
+    /**
+     * Removes the last move and counts it as a pop.
+     *
+     * @return The removed move.
+     * @throws EmptyStackException When the stack is empty.
+     */
     public StackItem pop() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
         incrementNumPops();
-        return super.pop();
+        length -= records[length - 1];
+        size--;
+        int numItems = records[length + 2];
+        List<Position> lives = new ArrayList<>();
+        List<Position> gems = new ArrayList<>();
+        for (int i = 0; i < numItems; i++) {
+            int item = records[length + 3 + i];
+            if (item >= 0) {
+                gems.add(toPosition(item));
+            } else {
+                lives.add(toPosition(~item));
+            }
+        }
+        int ordinal = records[length + 1];
+        return new StackItem(toPosition(records[length]),
+                ordinal == NO_ELEMENT ? null : Element.values()[ordinal], lives, gems);
+    }
+
+    /**
+     * Grows {@link #records} so that it can hold at least {@code capacity} ints.
+     *
+     * @param capacity Minimum capacity.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > records.length) {
+            records = Arrays.copyOf(records, Math.max(capacity, records.length * 2));
+        }
+    }
+
+    /**
+     * Builds the key with which a cell is stored in the stack.
+     *
+     * @param position Position of the cell.
+     * @return Key of the cell. It is never negative.
+     */
+    private static int key(Position position) {
+        return position.getRow() << 16 | position.getColumn();
+    }
+
+    /**
+     * Builds the {@link Position} of a key.
+     *
+     * @param key Key built with {@link #key(Position)}.
+     * @return Position of the cell.
+     */
+    private static Position toPosition(int key) {
+        try {
+            return new Position(key >>> 16, key & 0xFFFF);
+        } catch (PositionException e) {
+            //Keys never have negative rows or columns
+            throw new IllegalStateException(e);
+        }
     }
 }
@@ -61,7 +61,9 @@ public class CmdApp {
                     }
 
                    if(userInput.toLowerCase().startsWith("undo")){
-                        if(!game.undo())
+                        if(!game.isUndoable())
+                            System.out.println("Undo is disabled in this game");
+                        else if(!game.undo())
                             System.out.println("The undo stack is empty");
 
                         continue;
@@ -126,6 +128,8 @@ public class CmdApp {
             System.out.println("Bye!");
         }
 
+        game.close();
+
         try {
             br.close();
         } catch (IOException e) {
@@ -105,6 +105,7 @@ public class PlayController {
             alert.setContentText("You have solved Level "+game.getCurrentLevel()+"!!");
             alert.showAndWait();
             if(!game.nextLevel()) {
+                game.close();
                 try {
                     GuiApp.main.createView("GameOver");
                 } catch (IOException e) {
@@ -185,6 +186,7 @@ public class PlayController {
                     alert.setHeaderText("You have lost!");
                     alert.setContentText("You don't have more lives!!");
                     alert.showAndWait();
+                    game.close();
                     GuiApp.main.createView("GameOver");
                     return;
                 }
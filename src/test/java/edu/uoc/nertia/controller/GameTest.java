@@ -1,10 +1,17 @@
 package edu.uoc.nertia.controller;
 
+import edu.uoc.nertia.model.solver.Solvability;
 import edu.uoc.nertia.model.utils.Direction;
 import edu.uoc.nertia.model.utils.MoveResult;
 import edu.uoc.nertia.model.cells.Element;
 import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.exceptions.PositionException;
+import edu.uoc.nertia.model.levels.Level;
 import edu.uoc.nertia.model.levels.LevelDifficulty;
+import edu.uoc.nertia.model.levels.LevelHistory;
+import edu.uoc.nertia.model.levels.MoveEngine;
+import edu.uoc.nertia.model.levels.MoveOutcome;
+import edu.uoc.nertia.model.utils.Position;
 import org.junit.jupiter.api.*;
 import org.junit.platform.commons.support.ModifierSupport;
 
@@ -12,6 +19,7 @@ import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
@@ -32,6 +40,11 @@ class GameTest {
         }
     }
 
+    @AfterEach
+    void tearDown() {
+        game.close();
+    }
+
     @Test
     @Tag("sanity")
     @DisplayName("Sanity - Class definition")
@@ -71,8 +84,16 @@ class GameTest {
     void checkMethodsSanity() {
         //Min 17 methods
         assertTrue(ownClass.getDeclaredMethods().length>=17);
-        //Max 18 public methods
-        assertEquals(18,Arrays.stream(ownClass.getDeclaredMethods()).filter(p -> Modifier.isPublic(p.getModifiers())).count());
+        //Max 28 public methods: the 18 of the statement
+        //+ seek and getHistorySize (history)
+        //+ stateHash (state hash)
+        //+ hint (hints)
+        //+ getSolvability (solvability monitor)
+        //+ withoutUndo and isUndoable (no-undo mode)
+        //+ peekMove (dry-run moves)
+        //+ close (background work)
+        //+ isNextLevelReady (level prefetching)
+        assertEquals(28,Arrays.stream(ownClass.getDeclaredMethods()).filter(p -> Modifier.isPublic(p.getModifiers())).count());
         //Max 0 protected methods
         assertEquals(0,Arrays.stream(ownClass.getDeclaredMethods()).filter(p -> Modifier.isProtected(p.getModifiers())).count());
         //Max 0 package-private methods
@@ -219,6 +240,202 @@ class GameTest {
         }
     }
 
+    @Test
+    @Tag("controller")
+    @DisplayName("Controller - stateHash")
+    void stateHash() {
+        try{
+            game.nextLevel();
+            long start = game.stateHash();
+            assertEquals(MoveResult.DIE,game.movePlayer(Direction.DOWN));
+            assertEquals(start,game.stateHash());
+            assertEquals(MoveResult.OK,game.movePlayer(Direction.RIGHT));
+            long stop = game.stateHash();
+            assertNotEquals(start,stop);
+            assertEquals(MoveResult.OK,game.movePlayer(Direction.RIGHT));
+            assertEquals(MoveResult.OK,game.movePlayer(Direction.DOWN));
+            assertTrue(game.isLevelCompleted());
+            long end = game.stateHash();
+            assertTrue(game.undo());
+            assertNotEquals(end,game.stateHash());
+            assertTrue(game.undo());
+            assertEquals(stop,game.stateHash());
+            assertTrue(game.seek(4));
+            assertEquals(end,game.stateHash());
+            game.reload();
+            assertEquals(start,game.stateHash());
+        }catch(LevelException e){
+            fail("stateHash failed");
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Controller - hint")
+    void hint() {
+        try{
+            game.nextLevel();
+            assertEquals(Direction.RIGHT,game.hint());
+            assertEquals(MoveResult.DIE,game.movePlayer(Direction.DOWN));
+            assertEquals(Direction.RIGHT,game.hint());
+            for(int i = 0; i < 3 && !game.isLevelCompleted(); i++){
+                assertEquals(MoveResult.OK,game.movePlayer(game.hint()));
+            }
+            assertTrue(game.isLevelCompleted());
+            assertFalse(game.hasLost());
+            assertNull(game.hint());
+            assertTrue(game.undo());
+            assertNotNull(game.hint());
+        }catch(LevelException e){
+            fail("hint failed");
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Controller - getSolvability")
+    void getSolvability() {
+        try{
+            game.nextLevel();
+            assertEquals(Solvability.SOLVABLE,awaitSolvability());
+            assertEquals(MoveResult.OK,game.movePlayer(Direction.RIGHT));
+            assertEquals(Solvability.SOLVABLE,awaitSolvability());
+            assertTrue(game.undo());
+            assertEquals(MoveResult.DIE,game.movePlayer(Direction.DOWN));
+            assertEquals(MoveResult.DIE,game.movePlayer(Direction.DOWN));
+            assertTrue(game.hasLost());
+            assertEquals(Solvability.DEAD_END,awaitSolvability());
+            game.reload();
+            assertEquals(Solvability.SOLVABLE,awaitSolvability());
+        }catch(LevelException e){
+            fail("getSolvability failed");
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Controller - withoutUndo")
+    void withoutUndo() {
+        try(Game fast = Game.withoutUndo("levels/tests/")){
+            assertTrue(game.isUndoable());
+            assertFalse(fast.isUndoable());
+            game.nextLevel();
+            fast.nextLevel();
+            for(Direction direction : new Direction[]{Direction.DOWN, Direction.RIGHT, Direction.RIGHT}){
+                assertEquals(game.movePlayer(direction),fast.movePlayer(direction));
+            }
+            assertEquals(game.toString(),fast.toString());
+            assertFalse(fast.undo());
+            //Nothing is recorded, so there is no history to go back in.
+            assertEquals(0,fast.getHistorySize());
+            assertFalse(fast.seek(1));
+            assertEquals(game.getNumMoves(),fast.getNumMoves());
+            fast.reload();
+            assertFalse(fast.undo());
+        }catch(IOException | LevelException e){
+            fail("withoutUndo failed");
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Controller - peekMove")
+    void peekMove() {
+        try{
+            game.nextLevel();
+            String board = game.toString();
+            long hash = game.stateHash();
+
+            MoveOutcome outcome = game.peekMove(Direction.DOWN);
+            assertEquals(MoveResult.DIE, outcome.result());
+            assertEquals(new Position(1,0), outcome.destination());
+            assertEquals(-1, outcome.livesDelta());
+            assertTrue(outcome.collectedGems().isEmpty());
+
+            outcome = game.peekMove(Direction.LEFT);
+            assertEquals(MoveResult.OK, outcome.result());
+            assertEquals(new Position(1,0), outcome.destination());
+            assertEquals(MoveResult.KO, game.peekMove(Direction.UP).result());
+            assertEquals(board, game.toString());
+            assertEquals(hash, game.stateHash());
+            assertEquals(0, game.getNumMoves());
+
+            for(Direction direction : new Direction[]{Direction.RIGHT, Direction.RIGHT, Direction.DOWN}){
+                outcome = game.peekMove(direction);
+                int lives = game.getNumLives();
+                assertEquals(outcome.result(), game.movePlayer(direction));
+                Element element = game.getCell(outcome.destination().getRow(), outcome.destination().getColumn()).getElement();
+                assertTrue(element == Element.PLAYER || element == Element.PLAYER_STOP);
+                assertEquals(lives + outcome.livesDelta(), game.getNumLives());
+            }
+            assertEquals(List.of(new Position(2,2)), outcome.collectedGems());
+            assertTrue(game.isLevelCompleted());
+        }catch(LevelException | PositionException e){
+            fail("peekMove failed");
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Controller - movePlayer with known outcomes")
+    void movePlayerKnownOutcomes() {
+        try{
+            game.nextLevel();
+            Level level = new Level("levels/tests/level1.txt");
+            LevelHistory history = new LevelHistory(level, new MoveEngine(level),
+                    LevelHistory.DEFAULT_CHECKPOINT_INTERVAL);
+            for(Direction direction : new Direction[]{Direction.DOWN, Direction.UP, Direction.RIGHT, Direction.RIGHT}){
+                //The outcomes of the current state are computed, so the move applies one of them.
+                assertTrue(game.awaitBackground(10_000));
+                assertEquals(history.move(direction), game.movePlayer(direction));
+                assertTrue(game.toString().startsWith(level.toString()));
+            }
+            assertEquals(1, game.getNumLives());
+            assertEquals(3, game.getNumMoves());
+            assertTrue(game.undo());
+            assertTrue(game.awaitBackground(10_000));
+            assertEquals(MoveResult.OK, game.movePlayer(Direction.RIGHT));
+            assertTrue(game.awaitBackground(10_000));
+            assertEquals(MoveResult.OK, game.movePlayer(Direction.DOWN));
+            assertTrue(game.isLevelCompleted());
+            assertEquals(1, game.getNumLives());
+        }catch(LevelException | InterruptedException e){
+            fail("movePlayerKnownOutcomes failed");
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Controller - isNextLevelReady")
+    void isNextLevelReady() {
+        try{
+            assertFalse(game.isNextLevelReady());
+            game.nextLevel();
+            assertTrue(game.awaitNextLevel(10_000));
+            assertTrue(game.isNextLevelReady());
+
+            assertTrue(game.nextLevel());
+            assertEquals(2, game.getCurrentLevel());
+            assertTrue(game.toString().startsWith(new Level("levels/tests/level2.txt").toString()));
+            assertEquals(0, game.getNumMoves());
+            assertTrue(game.isUndoable());
+            //Level 2 is the last one.
+            assertFalse(game.isNextLevelReady());
+            assertFalse(game.awaitNextLevel(10_000));
+        }catch(LevelException | InterruptedException e){
+            fail("isNextLevelReady failed");
+        }
+    }
+
+    private Solvability awaitSolvability() {
+        try{
+            assertTrue(game.awaitBackground(10_000));
+        }catch(InterruptedException e){
+            fail("The background analyses were interrupted");
+        }
+        return game.getSolvability();
+    }
+
     @Test
     @Tag("special")
     @DisplayName("Special - movePlayer + getScore")
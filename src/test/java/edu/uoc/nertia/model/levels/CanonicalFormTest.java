@@ -0,0 +1,109 @@
+package edu.uoc.nertia.model.levels;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.utils.Direction;
+import edu.uoc.nertia.model.utils.MoveResult;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+@TestInstance(PER_CLASS)
+class CanonicalFormTest {
+
+    //levels/tests/level2.txt rotated 90 degrees clockwise and mirrored.
+    private static final String ROTATED = "3\n4\nHARD\n#X@#\n#-S-\n#**#\n##X#\n";
+    private static final String MIRRORED = "3\n4\nEASY\n##-#\nX*S@\n#*-X\n####\n";
+    private static final String LIVES = "5\n4\nEASY\n##-#\nX*S@\n#*-X\n####\n";
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - symmetric levels have the same form")
+    void of() {
+        try {
+            CanonicalForm original = CanonicalForm.of(new Level("levels/tests/level2.txt"));
+            CanonicalForm rotated = CanonicalForm.of(Level.fromText(ROTATED));
+            CanonicalForm mirrored = CanonicalForm.of(Level.fromText(MIRRORED));
+            assertEquals(original, rotated);
+            assertEquals(original, mirrored);
+            assertEquals(original.getHash(), rotated.getHash());
+            assertEquals(original.getHash(), mirrored.getHash());
+            assertEquals(original.toString(), rotated.toString());
+            assertEquals(32, original.getHash().toString().length());
+            assertEquals(4, original.getSize());
+
+            CanonicalForm lives = CanonicalForm.of(Level.fromText(LIVES));
+            assertNotEquals(original, lives);
+            assertNotEquals(original.getHash(), lives.getHash());
+            assertNotEquals(original, CanonicalForm.of(new Level("levels/tests/level1.txt")));
+
+            //The form follows the state of the level.
+            Level level = new Level("levels/tests/level2.txt");
+            new MoveEngine(level).move(Direction.RIGHT);
+            assertNotEquals(original, CanonicalForm.of(level));
+        } catch (LevelException e) {
+            fail("of failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - moves are replayed in other orientations")
+    void mapMoves() {
+        try {
+            List<Direction> solution = List.of(Direction.RIGHT, Direction.DOWN, Direction.RIGHT, Direction.UP);
+            CanonicalForm original = CanonicalForm.of(new Level("levels/tests/level2.txt"));
+            for (String text : List.of(ROTATED, MIRRORED)) {
+                Level level = Level.fromText(text);
+                List<Direction> moves = original.mapMoves(solution, CanonicalForm.of(level));
+                MoveEngine engine = new MoveEngine(level);
+                for (Direction direction : moves) {
+                    assertEquals(MoveResult.OK, engine.move(direction));
+                }
+                assertTrue(level.hasWon());
+            }
+            assertEquals(List.of(Direction.DOWN, Direction.LEFT, Direction.DOWN, Direction.RIGHT),
+                    original.mapMoves(solution, CanonicalForm.of(Level.fromText(ROTATED))));
+            assertThrows(IllegalArgumentException.class,
+                    () -> original.mapMoves(solution, CanonicalForm.of(Level.fromText(LIVES))));
+        } catch (LevelException e) {
+            fail("mapMoves failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - deduplicate a catalog")
+    void group() {
+        try {
+            //The deduplicator works on level files.
+            Path directory = Files.createTempDirectory("canonical-form-test");
+            String rotated = Files.writeString(directory.resolve("rotated.txt"), ROTATED).toString();
+            String mirrored = Files.writeString(directory.resolve("mirrored.txt"), MIRRORED).toString();
+            String lives = Files.writeString(directory.resolve("lives.txt"), LIVES).toString();
+            try {
+                Map<CanonicalForm, List<String>> groups = LevelDeduplicator.group(List.of("levels/tests/level2.txt",
+                        "levels/tests/level1.txt", rotated, mirrored, lives));
+                assertEquals(3, groups.size());
+                assertEquals(List.of("levels/tests/level2.txt", rotated, mirrored),
+                        groups.get(CanonicalForm.of(new Level("levels/tests/level2.txt"))));
+            } finally {
+                for (String file : List.of(rotated, mirrored, lives)) {
+                    Files.delete(Path.of(file));
+                }
+                Files.delete(directory);
+            }
+        } catch (IOException | LevelException e) {
+            fail("group failed");
+            e.printStackTrace();
+        }
+    }
+}
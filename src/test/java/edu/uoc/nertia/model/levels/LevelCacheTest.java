@@ -0,0 +1,165 @@
+package edu.uoc.nertia.model.levels;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.utils.Direction;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+@TestInstance(PER_CLASS)
+class LevelCacheTest {
+
+    private Path writeLevel(String... rows) throws IOException {
+        Path file = Files.createTempFile("level-cache-test", ".txt");
+        Files.writeString(file, "3\n" + rows.length + "\nEASY\n" + String.join("\n", rows) + "\n");
+        return file;
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - hits, misses and edited files")
+    void load() {
+        try {
+            LevelCache cache = new LevelCache(LevelCache.DEFAULT_MAX_BYTES);
+            Level first = cache.load("levels/tests/level1.txt", true);
+            Level second = cache.load("levels/tests/level1.txt", false);
+            assertEquals(1, cache.getMisses());
+            assertEquals(1, cache.getHits());
+            assertEquals(1, cache.size());
+            assertTrue(cache.getBytes() > 0);
+            assertTrue(cache.getLoadNanos() > 0);
+
+            assertSame(first.getTemplate(), second.getTemplate());
+            assertTrue(first.isUndoable());
+            assertFalse(second.isUndoable());
+            assertEquals(new Level("levels/tests/level1.txt").toString(), second.toString());
+
+            //Sessions are independent.
+            new MoveEngine(first).move(Direction.DOWN);
+            assertEquals(0, cache.load("levels/tests/level1.txt", true).getNumMoves());
+            assertEquals(0, second.getNumMoves());
+
+            Path file = writeLevel("@-*", "---", "---");
+            try {
+                Level level = cache.load(file.toString(), true);
+                assertSame(level.getTemplate(), cache.load(file.toString(), true).getTemplate());
+                Files.writeString(file, "3\n3\nEASY\n@**\n---\n---\n");
+                Level edited = cache.load(file.toString(), true);
+                assertNotSame(level.getTemplate(), edited.getTemplate());
+                assertEquals(2, edited.getNumGemsInit());
+                assertEquals(3, cache.getMisses());
+            } finally {
+                Files.delete(file);
+            }
+
+            cache.clear();
+            assertEquals(0, cache.size());
+            assertEquals(0, cache.getBytes());
+        } catch (IOException | LevelException e) {
+            fail("load failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - wrong files are not cached")
+    void loadWrong() {
+        try {
+            LevelCache cache = new LevelCache(LevelCache.DEFAULT_MAX_BYTES);
+            Path file = writeLevel("@-*", "---");
+            try {
+                assertThrows(LevelException.class, () -> cache.load(file.toString(), true));
+                assertThrows(LevelException.class, () -> cache.load(file.toString(), true));
+                assertEquals(2, cache.getMisses());
+                assertEquals(0, cache.size());
+            } finally {
+                Files.delete(file);
+            }
+            assertThrows(IllegalArgumentException.class, () -> new LevelCache(0));
+        } catch (IOException e) {
+            fail("loadWrong failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - eviction by size")
+    void evict() {
+        try {
+            LevelCache probe = new LevelCache(LevelCache.DEFAULT_MAX_BYTES);
+            probe.load("levels/tests/level1.txt", true);
+            long bytes = probe.getBytes();
+
+            //Room for two levels like level1.
+            LevelCache cache = new LevelCache(2 * bytes + 1);
+            List<Path> files = new ArrayList<>();
+            try {
+                for (int i = 0; i < 3; i++) {
+                    files.add(writeLevel("@-*", "-" + "-S#".charAt(i) + "-", "---"));
+                    cache.load(files.get(i).toString(), true);
+                }
+                assertEquals(2, cache.size());
+                assertEquals(1, cache.getEvictions());
+                assertTrue(cache.getBytes() <= 2 * bytes + 1);
+
+                //The first one has been evicted, so it is parsed again.
+                cache.load(files.get(0).toString(), true);
+                assertEquals(4, cache.getMisses());
+                cache.load(files.get(0).toString(), true);
+                assertEquals(1, cache.getHits());
+            } finally {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+
+            LevelCache tiny = new LevelCache(1);
+            tiny.load("levels/tests/level1.txt", true);
+            assertEquals(0, tiny.size());
+        } catch (IOException | LevelException e) {
+            fail("evict failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - concurrent loads parse once")
+    void loadConcurrent() {
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            LevelCache cache = new LevelCache(LevelCache.DEFAULT_MAX_BYTES);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Level>> levels = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                levels.add(executor.submit(() -> {
+                    start.await();
+                    return cache.load("levels/tests/level2.txt", true);
+                }));
+            }
+            start.countDown();
+            LevelTemplate template = levels.get(0).get().getTemplate();
+            for (Future<Level> level : levels) {
+                assertSame(template, level.get().getTemplate());
+            }
+            assertEquals(1, cache.getMisses());
+            assertEquals(threads - 1, cache.getHits());
+        } catch (InterruptedException | ExecutionException e) {
+            fail("loadConcurrent failed");
+            e.printStackTrace();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package edu.uoc.nertia.model.levels;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.utils.Direction;
+import edu.uoc.nertia.model.utils.MoveResult;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+@TestInstance(PER_CLASS)
+class LevelHistoryTest {
+
+    private Level level;
+    private LevelHistory history;
+
+    @BeforeEach
+    void setUp() {
+        try {
+            level = new Level("levels/tests/level2.txt");
+            history = new LevelHistory(level, new MoveEngine(level), 2);
+        } catch (LevelException e) {
+            fail("setUp failed");
+            e.printStackTrace();
+        }
+    }
+
+    private String status() {
+        return level + "|" + level.getNumLives() + "|" + level.getNumGemsGot() + "|" + level.getScore();
+    }
+
+    @Test
+    @Tag("minimum")
+    @DisplayName("Minimum - constructor")
+    void constructor() {
+        assertEquals(0, history.size());
+        assertEquals(0, history.getPosition());
+        assertThrows(IllegalArgumentException.class, () -> new LevelHistory(level, new MoveEngine(level), 0));
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - move + undo + seek")
+    void seek() {
+        try {
+            List<String> states = new ArrayList<>();
+            states.add(status());
+
+            assertEquals(MoveResult.KO, history.move(Direction.UP));
+            assertEquals(0, history.size());
+
+            assertEquals(MoveResult.DIE, history.move(Direction.DOWN));
+            states.add(status());
+            assertEquals(MoveResult.OK, history.move(Direction.RIGHT));
+            states.add(status());
+            assertEquals(MoveResult.OK, history.move(Direction.DOWN));
+            states.add(status());
+            assertTrue(history.undo());
+            states.add(status());
+            assertEquals(MoveResult.OK, history.move(Direction.DOWN));
+            states.add(status());
+            assertEquals(MoveResult.OK, history.move(Direction.RIGHT));
+            states.add(status());
+            assertEquals(6, history.size());
+
+            for (int i : new int[]{0, 3, 6, 1, 5, 4, 2}) {
+                assertTrue(history.seek(i));
+                assertEquals(i, history.getPosition());
+                assertEquals(states.get(i), status());
+            }
+            assertFalse(history.seek(7));
+            assertFalse(history.seek(-1));
+
+            //A new action discards the future
+            assertTrue(history.seek(2));
+            assertEquals(MoveResult.OK, history.move(Direction.DOWN));
+            assertEquals(3, history.size());
+            assertEquals(states.get(3), status());
+        } catch (LevelException e) {
+            fail("seek failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - seekWithPenalty costs the same as undoing")
+    void seekWithPenalty() {
+        try {
+            Level undone = new Level("levels/tests/level2.txt");
+            MoveEngine engine = new MoveEngine(undone);
+            for (Direction direction : new Direction[]{Direction.DOWN, Direction.RIGHT, Direction.DOWN}) {
+                assertNotEquals(MoveResult.KO, engine.move(direction));
+                assertNotEquals(MoveResult.KO, history.move(direction));
+            }
+            int score = level.getScore();
+            assertTrue(undone.undo());
+
+            assertTrue(history.seekWithPenalty(2));
+            assertEquals(undone.toString(), level.toString());
+            assertEquals(undone.getScore(), level.getScore());
+            assertTrue(level.getScore() < score);
+
+            //Going forward again does not give the penalty back.
+            assertTrue(history.seekWithPenalty(3));
+            assertTrue(level.getScore() < score);
+            assertFalse(history.seekWithPenalty(4));
+
+            //A plain seek does not charge anything.
+            Level reviewed = new Level("levels/tests/level2.txt");
+            LevelHistory review = new LevelHistory(reviewed, new MoveEngine(reviewed), 2);
+            for (Direction direction : new Direction[]{Direction.DOWN, Direction.RIGHT, Direction.DOWN}) {
+                review.move(direction);
+            }
+            assertTrue(review.seek(2));
+            assertTrue(review.seek(3));
+            assertEquals(score, reviewed.getScore());
+        } catch (LevelException e) {
+            fail("seekWithPenalty failed");
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package edu.uoc.nertia.model.levels;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.utils.Direction;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+@TestInstance(PER_CLASS)
+class LevelMirrorTest {
+
+    private static final String FILE = "levels/tests/level2.txt";
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - listeners follow the actions")
+    void follow() {
+        try (LevelMirror mirror = new LevelMirror(new Level(FILE))) {
+            Level played = new Level(FILE);
+            LevelHistory history = new LevelHistory(played, new MoveEngine(played), 2);
+            List<String> events = new ArrayList<>();
+            List<Long> hashes = new ArrayList<>();
+            mirror.addListener(listener("first", events, hashes));
+            mirror.addListener(listener("second", events, hashes));
+            assertTrue(mirror.await(10_000));
+            assertEquals(played.stateHash(), (long) hashes.get(hashes.size() - 1));
+
+            events.clear();
+            history.move(Direction.RIGHT);
+            mirror.moved(Direction.RIGHT);
+            assertTrue(mirror.await(10_000));
+            assertEquals(List.of("first queued false", "second queued false", "first analyse", "second analyse"),
+                    events);
+            assertEquals(played.stateHash(), (long) hashes.get(hashes.size() - 1));
+
+            assertTrue(history.undo());
+            mirror.undone();
+            history.move(Direction.DOWN);
+            mirror.moved(Direction.DOWN);
+            assertTrue(history.seek(1));
+            mirror.sought(1);
+            assertTrue(mirror.await(10_000));
+            assertEquals(played.stateHash(), (long) hashes.get(hashes.size() - 1));
+        } catch (LevelException | InterruptedException e) {
+            fail("follow failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - only the last state is analysed")
+    void skipStale() {
+        try (LevelMirror mirror = new LevelMirror(new Level(FILE))) {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            List<Long> actions = new ArrayList<>();
+            mirror.addListener(new LevelMirror.Listener() {
+                @Override
+                public void queued(boolean restores) {
+                }
+
+                @Override
+                public void analyse(Level level, long action) {
+                    actions.add(action);
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            started.await();
+            assertTrue(mirror.isLatest(1));
+            mirror.moved(Direction.RIGHT);
+            mirror.moved(Direction.DOWN);
+            mirror.moved(Direction.RIGHT);
+            assertFalse(mirror.isLatest(1));
+            assertFalse(mirror.await(10));
+            release.countDown();
+            assertTrue(mirror.await(10_000));
+            assertEquals(List.of(1L, 4L), actions);
+            assertTrue(mirror.isLatest(4));
+        } catch (LevelException | InterruptedException e) {
+            fail("skipStale failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - mirrors share a bounded pool of daemon threads")
+    void sharedWorkers() {
+        try {
+            Level played = new Level(FILE);
+            List<LevelMirror> mirrors = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                //They are never closed on purpose.
+                LevelMirror mirror = new LevelMirror(played);
+                mirror.addListener(listener("mirror", new ArrayList<>(), new ArrayList<>()));
+                mirror.moved(Direction.RIGHT);
+                mirrors.add(mirror);
+            }
+            for (LevelMirror mirror : mirrors) {
+                assertTrue(mirror.await(10_000));
+            }
+            long workers = Thread.getAllStackTraces().keySet().stream()
+                    .filter(thread -> thread.getName().equals("level-mirror"))
+                    .peek(thread -> assertTrue(thread.isDaemon()))
+                    .count();
+            assertTrue(workers <= Runtime.getRuntime().availableProcessors());
+        } catch (LevelException | InterruptedException e) {
+            fail("sharedWorkers failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - closed mirrors ignore new actions")
+    void closed() {
+        try {
+            LevelMirror mirror = new LevelMirror(new Level(FILE));
+            List<String> events = new ArrayList<>();
+            mirror.addListener(listener("first", events, new ArrayList<>()));
+            assertTrue(mirror.await(10_000));
+            mirror.close();
+            events.clear();
+            mirror.moved(Direction.RIGHT);
+            assertTrue(mirror.await(10));
+            assertEquals(List.of(), events);
+        } catch (LevelException | InterruptedException e) {
+            fail("closed failed");
+            e.printStackTrace();
+        }
+    }
+
+    private LevelMirror.Listener listener(String name, List<String> events, List<Long> hashes) {
+        return new LevelMirror.Listener() {
+            @Override
+            public void queued(boolean restores) {
+                synchronized (events) {
+                    events.add(name + " queued " + restores);
+                }
+            }
+
+            @Override
+            public void analyse(Level level, long action) {
+                synchronized (events) {
+                    events.add(name + " analyse");
+                    hashes.add(level.stateHash());
+                }
+            }
+        };
+    }
+}
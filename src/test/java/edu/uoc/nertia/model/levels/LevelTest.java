@@ -4,15 +4,21 @@ import edu.uoc.nertia.model.cells.Element;
 import edu.uoc.nertia.model.exceptions.LevelException;
 import edu.uoc.nertia.model.exceptions.PositionException;
 import edu.uoc.nertia.model.stack.StackItem;
+import edu.uoc.nertia.model.utils.Direction;
 import edu.uoc.nertia.model.utils.Position;
 import org.junit.jupiter.api.*;
 import org.junit.platform.commons.support.ModifierSupport;
 
 import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
@@ -82,8 +88,13 @@ class LevelTest {
     void checkMethodsSanity() {
         //Min 25 methods
         assertTrue(ownClass.getDeclaredMethods().length>=25);
-        //Max 21 public methods
-        assertEquals(21,Arrays.stream(ownClass.getDeclaredMethods()).filter(p -> Modifier.isPublic(p.getModifiers())).count());
+        //Max 28 public methods: the 21 of the statement
+        //+ stateHash (state hash)
+        //+ getContentHash (solution cache)
+        //+ fromText (levels from text)
+        //+ withoutUndo and isUndoable (no-undo mode)
+        //+ newSession and getTemplate (shared templates)
+        assertEquals(28,Arrays.stream(ownClass.getDeclaredMethods()).filter(p -> Modifier.isPublic(p.getModifiers())).count());
         //Max 0 protected methods
         assertEquals(0,Arrays.stream(ownClass.getDeclaredMethods()).filter(p -> Modifier.isProtected(p.getModifiers())).count());
         //Max 0 package-private methods
@@ -100,8 +111,9 @@ class LevelTest {
             assertTrue(Modifier.isPrivate(ownClass.getDeclaredMethod("getFirstNonEmptyLine", BufferedReader.class).getModifiers()));
             assertTrue(Modifier.isPrivate(ownClass.getDeclaredMethod("getBoard").getModifiers()));
 
-            //Max 1 constructor
-            assertEquals(1,ownClass.getDeclaredConstructors().length);
+            //Max 1 public constructor, plus a private one that parses a stream (fromText)
+            assertEquals(2,ownClass.getDeclaredConstructors().length);
+            assertTrue(Modifier.isPrivate(ownClass.getDeclaredConstructor(InputStream.class).getModifiers()));
 
             //Constructor
             int modifiers = ownClass.getDeclaredConstructor(String.class).getModifiers();
@@ -301,6 +313,25 @@ class LevelTest {
          }
     }
 
+    @Test
+    @Tag("minimum")
+    @DisplayName("Minimum - getPlayerPosition + undo")
+    void getPlayerPositionTracked() {
+        try{
+            level.setCell(new Position(1,0), Element.EMPTY);
+            assertNull(level.getPlayerPosition());
+            level.setCell(new Position(0,1), Element.PLAYER);
+            assertEquals(new Position(0,1),level.getPlayerPosition());
+            level.push(new StackItem(new Position(1,0),Element.PLAYER,new ArrayList<>(),new ArrayList<>()));
+            assertTrue(level.undo());
+            assertEquals(new Position(1,0),level.getPlayerPosition());
+            assertEquals(Element.EMPTY, level.getCell(new Position(0,1)).getElement());
+        }catch (LevelException | PositionException e) {
+            fail("getPlayerPosition failed");
+            e.printStackTrace();
+        }
+    }
+
     @Test
     @Tag("advanced")
     @DisplayName("Advanced - getScore + push + undo")
@@ -320,6 +351,214 @@ class LevelTest {
         }
     }
 
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - collected items mask")
+    void collectedItems() {
+        try{
+            //level1 has one gem, at (2,2)
+            assertEquals(1, level.getNumItems());
+            assertEquals(0, level.getItem(8));
+            assertEquals(-1, level.getItem(0));
+            assertEquals(0L, level.getCollectedItems(0));
+
+            level.setCell(new Position(2,2), Element.EMPTY);
+            assertEquals(1L, level.getCollectedItems(0));
+            level.setCell(new Position(2,1), Element.EXTRA_LIFE);
+            assertEquals(2, level.getNumItems());
+            assertEquals(1L, level.getCollectedItems(0));
+
+            level.push(new StackItem(new Position(1,0),Element.PLAYER,
+                    new ArrayList<>(List.of(new Position(0,1))),new ArrayList<>(List.of(new Position(2,2)))));
+            assertEquals(3, level.getNumItems());
+            assertEquals(5L, level.getCollectedItems(0));
+            assertTrue(level.undo());
+            assertEquals(Element.GEM, level.getCell(2,2).getElement());
+            assertEquals(Element.EXTRA_LIFE, level.getCell(0,1).getElement());
+            assertEquals(0L, level.getCollectedItems(0));
+            assertEquals(0L, level.getCollectedItems(1));
+        }catch (LevelException | PositionException e) {
+            fail("collectedItems failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - stateHash")
+    void stateHash() {
+        try{
+            long start = level.stateHash();
+            assertEquals(start, new Level("levels/tests/level1.txt").stateHash());
+
+            //Walls and counters are not part of the state
+            level.setCell(new Position(0,1), Element.WALL);
+            level.decreaseNumLives();
+            assertEquals(start, level.stateHash());
+
+            level.setCell(new Position(2,2), Element.EMPTY);
+            long noGem = level.stateHash();
+            assertNotEquals(start, noGem);
+            level.setCell(new Position(2,2), Element.EXTRA_LIFE);
+            assertNotEquals(start, level.stateHash());
+            assertNotEquals(noGem, level.stateHash());
+            level.setCell(new Position(2,2), Element.GEM);
+            assertEquals(start, level.stateHash());
+
+            MoveEngine engine = new MoveEngine(level);
+            engine.move(Direction.RIGHT);
+            long moved = level.stateHash();
+            assertNotEquals(start, moved);
+            Checkpoint checkpoint = level.checkpoint();
+            engine.move(Direction.RIGHT);
+            engine.move(Direction.DOWN);
+            level.restore(checkpoint);
+            assertEquals(moved, level.stateHash());
+            assertTrue(level.undo());
+            assertEquals(start, level.stateHash());
+        }catch (LevelException | PositionException e) {
+            fail("stateHash failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - getContentHash")
+    void getContentHash() {
+        try{
+            byte[] hash = level.getContentHash();
+            assertEquals(32, hash.length);
+            assertArrayEquals(hash, new Level("levels/tests/level1.txt").getContentHash());
+            assertFalse(Arrays.equals(hash, new Level("levels/tests/level2.txt").getContentHash()));
+
+            //It depends on the file, not on the state.
+            new MoveEngine(level).move(Direction.RIGHT);
+            assertArrayEquals(hash, level.getContentHash());
+            level.getContentHash()[0]++;
+            assertArrayEquals(hash, level.getContentHash());
+        }catch (LevelException e) {
+            fail("getContentHash failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - withoutUndo")
+    void withoutUndo() {
+        try{
+            Level fast = Level.withoutUndo("levels/tests/level1.txt");
+            assertTrue(level.isUndoable());
+            assertFalse(fast.isUndoable());
+
+            MoveEngine engine = new MoveEngine(level);
+            MoveEngine fastEngine = new MoveEngine(fast);
+            for (Direction direction : new Direction[]{Direction.DOWN, Direction.RIGHT, Direction.RIGHT, Direction.DOWN}) {
+                assertEquals(engine.move(direction), fastEngine.move(direction));
+                assertEquals(level.stateHash(), fast.stateHash());
+                assertEquals(level.getScore(), fast.getScore());
+            }
+            assertTrue(fast.hasWon());
+            assertEquals(level.toString(), fast.toString());
+
+            assertFalse(fast.undo());
+            assertEquals(level.getScore(), fast.getScore());
+            assertTrue(level.undo());
+        }catch (LevelException e) {
+            fail("withoutUndo failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - files out of the classpath")
+    void fileSystem() {
+        try{
+            Path file = Files.createTempFile("level-test", ".txt");
+            Files.writeString(file, "2\n3\nEASY\n#-#\n@S-\nX-*\n");
+            Level fromFile = new Level(file.toString());
+            assertEquals(level.toString(), fromFile.toString());
+            assertNotNull(Level.open(file.toString()));
+
+            Files.delete(file);
+            assertNull(Level.open(file.toString()));
+            assertThrows(NullPointerException.class, () -> new Level(file.toString()));
+
+            //Bundled levels are found in the classpath.
+            assertNotNull(Level.open("levels/tests/level1.txt"));
+        }catch (LevelException | IOException e) {
+            fail("fileSystem failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - fromText")
+    void fromText() {
+        try{
+            Level parsed = Level.fromText("//Lives\n2\n//Size\n3\nEASY\n#-#\n@S-\nX-*\n");
+            assertEquals(level.toString(), parsed.toString());
+            assertEquals(level.stateHash(), parsed.stateHash());
+            assertEquals(level.getNumLives(), parsed.getNumLives());
+            assertEquals(LevelDifficulty.EASY, parsed.getDifficulty());
+
+            LevelException ex = assertThrows(LevelException.class, () -> Level.fromText("3\n3\nEASY\n#-#\n-S-\nX-*\n"));
+            assertEquals(LevelException.PLAYER_LEVEL_FILE_ERROR, ex.getMessage());
+            //Files are still parsed from the classpath.
+            assertEquals(level.toString(), new Level("levels/tests/level1.txt").toString());
+        }catch (LevelException e) {
+            fail("fromText failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - newSession")
+    void newSession() {
+        try{
+            String initial = level.toString();
+            long start = level.stateHash();
+            MoveEngine engine = new MoveEngine(level);
+            engine.move(Direction.DOWN);
+            engine.move(Direction.RIGHT);
+
+            Level session = level.newSession();
+            assertSame(level.getTemplate(), session.getTemplate());
+            assertEquals(3, session.getTemplate().getSize());
+            assertEquals(initial, session.toString());
+            assertEquals(start, session.stateHash());
+            assertEquals(0, session.getNumMoves());
+            assertEquals(level.getTemplate().getNumLives(), session.getNumLives());
+            assertFalse(session.undo());
+
+            //Playing a session does not change the other one.
+            String played = level.toString();
+            MoveEngine sessionEngine = new MoveEngine(session);
+            for (Direction direction : new Direction[]{Direction.DOWN, Direction.RIGHT, Direction.RIGHT, Direction.DOWN}) {
+                sessionEngine.move(direction);
+            }
+            assertTrue(session.hasWon());
+            assertEquals(played, level.toString());
+            assertTrue(session.undo());
+
+            //Any other change copies the board first.
+            session.setCell(new Position(0,1), Element.WALL);
+            assertEquals(Element.WALL, session.getCell(0,1).getElement());
+            assertEquals(Element.EMPTY, level.getCell(0,1).getElement());
+            assertEquals(Element.EMPTY, level.newSession().getCell(0,1).getElement());
+            assertEquals(initial, level.newSession().toString());
+
+            assertFalse(Level.withoutUndo("levels/tests/level1.txt").newSession().isUndoable());
+        }catch (LevelException | PositionException e) {
+            fail("newSession failed");
+            e.printStackTrace();
+        }
+    }
+
     @Test
     @Tag("minimum")
     @DisplayName("Minimum - toString")
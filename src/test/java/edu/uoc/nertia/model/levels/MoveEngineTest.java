@@ -0,0 +1,219 @@
+package edu.uoc.nertia.model.levels;
+
+import edu.uoc.nertia.model.cells.Element;
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.exceptions.PositionException;
+import edu.uoc.nertia.model.utils.Direction;
+import edu.uoc.nertia.model.utils.MoveResult;
+import edu.uoc.nertia.model.utils.Position;
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+@TestInstance(PER_CLASS)
+class MoveEngineTest {
+
+    private Level level;
+    private MoveEngine engine;
+    private final Class<MoveEngine> ownClass = MoveEngine.class;
+
+    @BeforeEach
+    void setUp() {
+        try {
+            level = new Level("levels/tests/level2.txt");
+            engine = new MoveEngine(level);
+        } catch (LevelException e) {
+            fail("setUp failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("sanity")
+    @DisplayName("Sanity - Class definition")
+    void checkClassSanity() {
+        int modifiers = ownClass.getModifiers();
+        assertTrue(Modifier.isPublic(modifiers));
+        assertTrue(Modifier.isFinal(modifiers));
+        assertEquals("edu.uoc.nertia.model.levels",ownClass.getPackageName());
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - move KO + DIE")
+    void moveBlocked() {
+        assertEquals(MoveResult.KO, engine.move(Direction.UP));
+        assertEquals(0, level.getNumMoves());
+        assertEquals(MoveResult.DIE, engine.move(Direction.DOWN));
+        assertEquals(1, level.getNumMoves());
+        assertEquals(2, level.getNumLives());
+        assertEquals("#-##"+System.lineSeparator()
+                +"@S*X"+System.lineSeparator()
+                +"X-*#"+System.lineSeparator()
+                +"####", level.toString());
+    }
+
+    @Test
+    @Tag("minimum")
+    @DisplayName("Minimum - indexOf + neighbour + getElement")
+    void indexes() {
+        assertEquals(4, engine.getSize());
+        assertEquals(4, engine.getPlayerIndex());
+        assertEquals(6, engine.indexOf(1,2));
+        assertEquals(MoveEngine.OUT_OF_BOARD, engine.indexOf(4,0));
+        assertEquals(MoveEngine.OUT_OF_BOARD, engine.indexOf(0,-1));
+        assertEquals(5, engine.neighbour(4, Direction.RIGHT));
+        assertEquals(0, engine.neighbour(4, Direction.UP));
+        assertEquals(MoveEngine.OUT_OF_BOARD, engine.neighbour(4, Direction.LEFT));
+        assertEquals(MoveEngine.OUT_OF_BOARD, engine.neighbour(16, Direction.LEFT));
+        assertEquals(Element.PLAYER, engine.getElement(4));
+        assertEquals(Element.STOP, engine.getElement(5));
+        assertNull(engine.getElement(MoveEngine.OUT_OF_BOARD));
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - slide + collectibles")
+    void slideQueries() {
+        int[] items = new int[engine.getSize()];
+        String board = level.toString();
+        assertEquals(4, engine.slide(4, Direction.UP));
+        assertEquals(MoveEngine.OUT_OF_BOARD, engine.slide(4, Direction.DOWN));
+        assertEquals(5, engine.slide(4, Direction.RIGHT));
+        assertEquals(MoveEngine.OUT_OF_BOARD, engine.slide(5, Direction.RIGHT));
+        assertEquals(0, engine.collectibles(5, Direction.RIGHT, items));
+        assertEquals(10, engine.slide(9, Direction.RIGHT));
+        assertEquals(1, engine.collectibles(9, Direction.RIGHT, items));
+        assertEquals(10, items[0]);
+        assertEquals(MoveEngine.OUT_OF_BOARD, engine.slide(16, Direction.LEFT));
+        assertEquals(board, level.toString());
+        assertEquals(0, level.getNumMoves());
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - peek")
+    void peek() {
+        try {
+            String board = level.toString();
+            assertEquals(new MoveOutcome(MoveResult.KO, new Position(1,0), List.of(), List.of(), 0),
+                    engine.peek(Direction.UP));
+            assertEquals(new MoveOutcome(MoveResult.DIE, new Position(1,0), List.of(), List.of(), -1),
+                    engine.peek(Direction.DOWN));
+            assertEquals(new MoveOutcome(MoveResult.OK, new Position(1,1), List.of(), List.of(), 0),
+                    engine.peek(Direction.RIGHT));
+            assertEquals(board, level.toString());
+            assertEquals(0, level.getNumMoves());
+
+            engine.move(Direction.RIGHT);
+            //The gem on the way is not collected because the slide ends in a mine
+            assertEquals(new MoveOutcome(MoveResult.DIE, new Position(1,1), List.of(), List.of(), -1),
+                    engine.peek(Direction.RIGHT));
+            engine.move(Direction.DOWN);
+            assertEquals(new MoveOutcome(MoveResult.OK, new Position(2,2), List.of(new Position(2,2)), List.of(), 0),
+                    engine.peek(Direction.RIGHT));
+            assertEquals(Element.GEM, level.getCell(2,2).getElement());
+            assertEquals(0, level.getNumGemsGot());
+        } catch (LevelException | PositionException e) {
+            fail("peek failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - apply a known outcome")
+    void apply() {
+        try {
+            Random random = new Random(22);
+            Direction[] directions = Direction.values();
+            for (Level start : List.of(new Level("levels/level3.txt"),
+                    Level.fromText("1\n5\nEASY\n@L-S#\n-#*#L\nL-S-*\n*#-#-\nX-L-S\n"))) {
+                for (int game = 0; game < 50; game++) {
+                    Level moved = start.newSession();
+                    Level applied = start.newSession();
+                    MoveEngine moveEngine = new MoveEngine(moved);
+                    MoveEngine applyEngine = new MoveEngine(applied);
+                    for (int i = 0; i < 30 && !moved.hasLost(); i++) {
+                        Direction direction = directions[random.nextInt(directions.length)];
+                        if (random.nextInt(4) == 0 && moved.undo()) {
+                            assertTrue(applied.undo());
+                        } else {
+                            assertEquals(moveEngine.move(direction), applyEngine.apply(applyEngine.peek(direction)));
+                        }
+                        assertEquals(moved.toString(), applied.toString());
+                        assertEquals(moved.stateHash(), applied.stateHash());
+                        assertEquals(moved.getNumLives(), applied.getNumLives());
+                        assertEquals(moved.getNumMoves(), applied.getNumMoves());
+                        assertEquals(moved.getNumGemsGot(), applied.getNumGemsGot());
+                    }
+                }
+            }
+        } catch (LevelException e) {
+            fail("apply failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - move OK + DIE rollback")
+    void moveSlides() {
+        try {
+            assertEquals(MoveResult.OK, engine.move(Direction.RIGHT));
+            assertEquals(new Position(1,1), level.getPlayerPosition());
+            assertEquals(Element.PLAYER_STOP, level.getCell(1,1).getElement());
+
+            //The gem on the way is collected and then given back
+            assertEquals(MoveResult.DIE, engine.move(Direction.RIGHT));
+            assertEquals(0, level.getNumGemsGot());
+            assertEquals(Element.GEM, level.getCell(1,2).getElement());
+            assertEquals(Element.PLAYER_STOP, level.getCell(1,1).getElement());
+
+            assertEquals(MoveResult.OK, engine.move(Direction.DOWN));
+            assertEquals(MoveResult.OK, engine.move(Direction.RIGHT));
+            assertEquals(1, level.getNumGemsGot());
+            assertEquals(Element.PLAYER, level.getCell(2,2).getElement());
+            assertEquals(Element.STOP, level.getCell(1,1).getElement());
+
+            assertEquals(MoveResult.OK, engine.move(Direction.UP));
+            assertEquals(2, level.getNumGemsGot());
+            assertTrue(level.hasWon());
+            assertEquals(new Position(1,2), level.getPlayerPosition());
+        } catch (LevelException | PositionException e) {
+            fail("move failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - move + undo")
+    void moveUndo() {
+        try {
+            String board = level.toString();
+            assertEquals(MoveResult.OK, engine.move(Direction.RIGHT));
+            assertEquals(MoveResult.OK, engine.move(Direction.DOWN));
+            assertEquals(MoveResult.OK, engine.move(Direction.RIGHT));
+            assertEquals(1, level.getNumGemsGot());
+
+            assertTrue(level.undo());
+            assertEquals(0, level.getNumGemsGot());
+            assertEquals(Element.GEM, level.getCell(2,2).getElement());
+            assertEquals(Element.PLAYER, level.getCell(2,1).getElement());
+            assertTrue(level.undo());
+            assertTrue(level.undo());
+            assertFalse(level.undo());
+            assertEquals(board, level.toString());
+            assertEquals(new Position(1,0), level.getPlayerPosition());
+        } catch (LevelException | PositionException e) {
+            fail("undo failed");
+            e.printStackTrace();
+        }
+    }
+}
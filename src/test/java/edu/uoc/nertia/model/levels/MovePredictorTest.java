@@ -0,0 +1,77 @@
+package edu.uoc.nertia.model.levels;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.utils.Direction;
+import edu.uoc.nertia.model.utils.MoveResult;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+@TestInstance(PER_CLASS)
+class MovePredictorTest {
+
+    private static final String FILE = "levels/tests/level2.txt";
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - lookup follows the moves")
+    void lookup() {
+        try (LevelMirror mirror = new LevelMirror(new Level(FILE))) {
+            MovePredictor predictor = new MovePredictor(mirror, MovePredictor.DEFAULT_CAPACITY);
+            Level level = new Level(FILE);
+            MoveEngine engine = new MoveEngine(level);
+            LevelHistory history = new LevelHistory(level, engine, LevelHistory.DEFAULT_CHECKPOINT_INTERVAL);
+
+            for (Direction move : new Direction[]{Direction.UP, Direction.RIGHT, Direction.DOWN, Direction.RIGHT}) {
+                assertTrue(mirror.await(10_000));
+                for (Direction direction : Direction.values()) {
+                    assertEquals(engine.peek(direction), predictor.lookup(level.stateHash(), direction));
+                }
+                history.move(move);
+                mirror.moved(move);
+            }
+
+            assertTrue(history.undo());
+            mirror.undone();
+            assertTrue(mirror.await(10_000));
+            assertEquals(engine.peek(Direction.RIGHT), predictor.lookup(level.stateHash(), Direction.RIGHT));
+            assertTrue(history.seek(0));
+            mirror.sought(0);
+            assertTrue(mirror.await(10_000));
+            assertEquals(MoveResult.DIE, predictor.lookup(level.stateHash(), Direction.DOWN).result());
+
+            assertNull(predictor.lookup(level.stateHash() + 1, Direction.DOWN));
+            assertEquals(1, predictor.getMisses());
+            assertEquals(18, predictor.getHits());
+            //The state after the last move may be skipped, because the undo was queued right after it.
+            assertTrue(predictor.size() >= 3);
+        } catch (LevelException | InterruptedException e) {
+            fail("lookup failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - capacity")
+    void capacity() {
+        try (LevelMirror mirror = new LevelMirror(new Level(FILE))) {
+            MovePredictor predictor = new MovePredictor(mirror, 2);
+            for (Direction move : new Direction[]{Direction.RIGHT, Direction.DOWN, Direction.RIGHT}) {
+                mirror.moved(move);
+                assertTrue(mirror.await(10_000));
+            }
+            assertEquals(2, predictor.size());
+        } catch (LevelException | InterruptedException e) {
+            fail("capacity failed");
+            e.printStackTrace();
+        }
+        try (LevelMirror mirror = new LevelMirror(new Level(FILE))) {
+            assertThrows(IllegalArgumentException.class, () -> new MovePredictor(mirror, 0));
+        } catch (LevelException e) {
+            fail("capacity failed");
+            e.printStackTrace();
+        }
+    }
+}
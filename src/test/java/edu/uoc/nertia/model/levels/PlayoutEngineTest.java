@@ -0,0 +1,148 @@
+package edu.uoc.nertia.model.levels;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.utils.Direction;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+@TestInstance(PER_CLASS)
+class PlayoutEngineTest {
+
+    private Level levelOf(int lives, String... rows) throws LevelException {
+        return Level.fromText("//Lives\n" + lives + "\n//Size\n" + rows.length + "\nEASY\n"
+                + String.join("\n", rows) + "\n");
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - playouts without mines always win")
+    void runWin() {
+        try {
+            PlayoutEngine engine = new PlayoutEngine(levelOf(1, "@-*", "###", "###"));
+            assertEquals(2, engine.getNumNodes());
+
+            PlayoutStats stats = engine.run(1000, 100, PlayoutPolicy.BIASED, 2, 1);
+            assertEquals(1000, stats.getNumPlayouts());
+            assertEquals(1000, stats.getNumWins());
+            assertEquals(1000, stats.getNumMoves());
+            assertEquals(1.0, stats.getWinRate());
+            assertTrue(Double.isNaN(stats.getMeanMovesToFirstDeath()));
+            assertEquals(1000, stats.getNumLivesLost(0));
+
+            stats = engine.run(1000, 100, PlayoutPolicy.RANDOM, 1, 1);
+            assertEquals(1.0, stats.getWinRate());
+            assertTrue(stats.getNumMoves() > 1000);
+            assertEquals(1, stats.getParallelism());
+            assertTrue(stats.getPlayoutsPerSecondPerCore() > 0);
+        } catch (LevelException | InterruptedException e) {
+            fail("runWin failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - deaths, losses and lives lost")
+    void runDeaths() {
+        try {
+            PlayoutEngine engine = new PlayoutEngine(levelOf(2, "@-X", "###", "##*"));
+
+            PlayoutStats stats = engine.run(100_000, 1000, PlayoutPolicy.RANDOM, 4, 7);
+            assertEquals(0, stats.getNumWins());
+            assertEquals(100_000, stats.getNumLosses());
+            assertEquals(100_000, stats.getNumLivesLost(2));
+            //One of the three valid moves dies, so the first death takes 3 moves on average.
+            assertEquals(3.0, stats.getMeanMovesToFirstDeath(), 0.1);
+            assertEquals(1.0, stats.getLivesLostDistribution()[2]);
+
+            stats = engine.run(100, 50, PlayoutPolicy.BIASED, 1, 7);
+            assertEquals(0, stats.getNumLosses());
+            assertEquals(100, stats.getNumLivesLost(0));
+            assertEquals(100 * 50, stats.getNumMoves());
+        } catch (LevelException | InterruptedException e) {
+            fail("runDeaths failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - replays match the move engine")
+    void replay() {
+        try {
+            List<Level> levels = new ArrayList<>();
+            for (String fileName : List.of("levels/level1.txt", "levels/level2.txt", "levels/level3.txt",
+                    "levels/tests/level1.txt", "levels/tests/level2.txt")) {
+                levels.add(new Level(fileName));
+            }
+            //Extra lives, unlimited lives and items collected twice.
+            levels.add(levelOf(1, "@L-S#", "-#*#L", "L-S-*", "*#-#-", "X-L-S"));
+            levels.add(levelOf(0, "@L-S#", "-#*#L", "L-S-*", "*#-#-", "X-L-S"));
+
+            Random random = new Random(19);
+            Direction[] directions = Direction.values();
+            for (Level start : levels) {
+                PlayoutEngine engine = new PlayoutEngine(start);
+                for (int game = 0; game < 200; game++) {
+                    List<Direction> moves = new ArrayList<>();
+                    for (int i = 0; i < 60; i++) {
+                        moves.add(directions[random.nextInt(directions.length)]);
+                    }
+
+                    Level level = start.newSession();
+                    MoveEngine moveEngine = new MoveEngine(level);
+                    for (Direction direction : moves) {
+                        if (level.hasWon() || level.hasLost()) {
+                            break;
+                        }
+                        moveEngine.move(direction);
+                    }
+
+                    int[] replay = engine.replay(moves);
+                    assertEquals(level.hasWon(), replay[0] == 0);
+                    assertEquals(level.getNumGemsInit() - level.getNumGemsGot(), replay[0]);
+                    assertEquals(level.getNumLives() == Integer.MAX_VALUE ? -1 : level.getNumLives(), replay[1]);
+                    assertEquals(level.getNumMoves(), replay[2]);
+                }
+            }
+        } catch (LevelException e) {
+            fail("replay failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - playouts are repeatable and do not change the level")
+    void runLevel() {
+        try {
+            Level level = new Level("levels/tests/level2.txt");
+            PlayoutEngine engine = new PlayoutEngine(level);
+            PlayoutStats first = engine.run(10_000, 200, PlayoutPolicy.RANDOM, 3, 42);
+            PlayoutStats second = engine.run(10_000, 200, PlayoutPolicy.RANDOM, 3, 42);
+            assertEquals(first.getNumWins(), second.getNumWins());
+            assertEquals(first.getNumMoves(), second.getNumMoves());
+
+            long total = 0;
+            for (int i = 0; i < PlayoutStats.MAX_LIVES_LOST; i++) {
+                total += first.getNumLivesLost(i);
+            }
+            assertEquals(10_000, total);
+            assertTrue(first.getNumWins() + first.getNumLosses() <= 10_000);
+            assertEquals(0, level.getNumMoves());
+            assertEquals(3, level.getNumLives());
+
+            assertThrows(IllegalArgumentException.class, () -> engine.run(0, 200, PlayoutPolicy.RANDOM, 1, 0));
+            assertThrows(IllegalArgumentException.class, () -> first.getNumLivesLost(PlayoutStats.MAX_LIVES_LOST));
+        } catch (LevelException | InterruptedException e) {
+            fail("runLevel failed");
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package edu.uoc.nertia.model.levels;
+
+import edu.uoc.nertia.model.utils.Direction;
+import org.junit.jupiter.api.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+@TestInstance(PER_CLASS)
+class SymmetryTest {
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - cells")
+    void cells() {
+        assertEquals(0, Symmetry.ROTATE_90.row(0, 0, 4));
+        assertEquals(3, Symmetry.ROTATE_90.column(0, 0, 4));
+        assertEquals(3, Symmetry.ROTATE_180.row(0, 1, 4));
+        assertEquals(2, Symmetry.ROTATE_180.column(0, 1, 4));
+        assertEquals(1, Symmetry.TRANSPOSE.row(0, 1, 4));
+        assertEquals(0, Symmetry.TRANSPOSE.column(0, 1, 4));
+
+        for (Symmetry symmetry : Symmetry.values()) {
+            Set<Integer> images = new HashSet<>();
+            for (int row = 0; row < 5; row++) {
+                for (int column = 0; column < 5; column++) {
+                    int imageRow = symmetry.row(row, column, 5);
+                    int imageColumn = symmetry.column(row, column, 5);
+                    assertTrue(imageRow >= 0 && imageRow < 5 && imageColumn >= 0 && imageColumn < 5);
+                    images.add(imageRow * 5 + imageColumn);
+                    Symmetry inverse = symmetry.inverse();
+                    assertEquals(row, inverse.row(imageRow, imageColumn, 5));
+                    assertEquals(column, inverse.column(imageRow, imageColumn, 5));
+                }
+            }
+            assertEquals(25, images.size());
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - directions")
+    void directions() {
+        assertEquals(Direction.RIGHT, Symmetry.ROTATE_90.apply(Direction.UP));
+        assertEquals(Direction.DOWN, Symmetry.ROTATE_90.apply(Direction.RIGHT));
+        assertEquals(Direction.LEFT, Symmetry.ROTATE_270.apply(Direction.UP));
+        assertEquals(Direction.UP, Symmetry.FLIP_HORIZONTAL.apply(Direction.UP));
+        assertEquals(Direction.LEFT, Symmetry.FLIP_HORIZONTAL.apply(Direction.RIGHT));
+        assertEquals(Direction.LEFT, Symmetry.TRANSPOSE.apply(Direction.UP));
+        assertEquals(List.of(Direction.DOWN, Direction.LEFT),
+                Symmetry.ROTATE_90.apply(List.of(Direction.RIGHT, Direction.DOWN)));
+
+        for (Symmetry symmetry : Symmetry.values()) {
+            for (Direction direction : Direction.values()) {
+                assertEquals(direction, symmetry.inverse().apply(symmetry.apply(direction)));
+            }
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - composition")
+    void then() {
+        assertEquals(Symmetry.ROTATE_180, Symmetry.ROTATE_90.then(Symmetry.ROTATE_90));
+        assertEquals(Symmetry.IDENTITY, Symmetry.ROTATE_90.then(Symmetry.ROTATE_270));
+        assertEquals(Symmetry.ROTATE_270, Symmetry.ROTATE_90.inverse());
+        assertEquals(Symmetry.FLIP_HORIZONTAL, Symmetry.FLIP_HORIZONTAL.inverse());
+
+        for (Symmetry first : Symmetry.values()) {
+            for (Symmetry second : Symmetry.values()) {
+                Symmetry both = first.then(second);
+                assertEquals(second.row(first.row(1, 2, 6), first.column(1, 2, 6), 6), both.row(1, 2, 6));
+                assertEquals(second.column(first.row(1, 2, 6), first.column(1, 2, 6), 6), both.column(1, 2, 6));
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package edu.uoc.nertia.model.levels;
+
+import org.junit.jupiter.api.*;
+
+import java.util.EmptyStackException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+@TestInstance(PER_CLASS)
+class UndoJournalTest {
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - push + pop")
+    void pop() {
+        UndoJournal journal = new UndoJournal();
+        int[] items = {7, 3};
+
+        for (int i = 0; i < 100; i++) {
+            journal.push(i, 4, items, i % 3);
+        }
+
+        for (int i = 99; i >= 0; i--) {
+            int record = journal.pop();
+            assertEquals(i, journal.getOrigin(record));
+            assertEquals(4, journal.getOriginElement(record));
+            assertEquals(i % 3, journal.getNumItems(record));
+            for (int j = 0; j < i % 3; j++) {
+                assertEquals(items[j], journal.getItem(record, j));
+            }
+        }
+        assertTrue(journal.empty());
+        assertEquals(100, journal.getNum());
+        assertThrows(EmptyStackException.class, journal::pop);
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - saveState + restoreState")
+    void restoreState() {
+        UndoJournal journal = new UndoJournal();
+        int[] items = {5};
+        journal.push(1, 0, items, 1);
+        journal.push(2, 0, items, 0);
+        int[] saved = journal.saveState();
+
+        //Popping and pushing again does not overwrite the saved records.
+        journal.pop();
+        journal.pop();
+        journal.push(9, 1, items, 0);
+        journal.restoreState(saved);
+        assertEquals(0, journal.getNum());
+
+        int record = journal.pop();
+        assertEquals(2, journal.getOrigin(record));
+        record = journal.pop();
+        assertEquals(1, journal.getOrigin(record));
+        assertEquals(5, journal.getItem(record, 0));
+        assertTrue(journal.empty());
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - release")
+    void release() {
+        UndoJournal journal = new UndoJournal();
+        int[] items = {5, 6};
+        journal.push(1, 0, items, 1);
+        int[] first = journal.saveState();
+        journal.push(2, 0, items, 2);
+        journal.saveState();
+
+        //The second state is given up, so the records pushed after restoring the first one are moved down.
+        journal.restoreState(first);
+        journal.push(3, 0, items, 2);
+        journal.push(4, 0, items, 0);
+        journal.release(first);
+        journal.push(5, 0, items, 1);
+
+        int[] origins = {5, 4, 3, 1};
+        int[] numItems = {1, 0, 2, 1};
+        for (int i = 0; i < origins.length; i++) {
+            int record = journal.pop();
+            assertEquals(origins[i], journal.getOrigin(record));
+            assertEquals(numItems[i], journal.getNumItems(record));
+            for (int j = 0; j < numItems[i]; j++) {
+                assertEquals(items[j], journal.getItem(record, j));
+            }
+        }
+        assertTrue(journal.empty());
+
+        //The first state is still valid.
+        journal.restoreState(first);
+        assertEquals(1, journal.getOrigin(journal.pop()));
+    }
+}
@@ -0,0 +1,101 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.levels.Level;
+import edu.uoc.nertia.model.levels.MoveEngine;
+import edu.uoc.nertia.model.utils.Direction;
+import edu.uoc.nertia.model.utils.MoveResult;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+@TestInstance(PER_CLASS)
+class AnytimeSolverTest {
+
+    private void replay(Level level, Solution solution) {
+        MoveEngine engine = new MoveEngine(level);
+        for (Direction direction : solution.moves()) {
+            assertEquals(MoveResult.OK, engine.move(direction));
+        }
+        assertTrue(level.hasWon());
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - anytime solve reaches the optimum")
+    void solve() {
+        try {
+            for (int i = 1; i <= 3; i++) {
+                String fileName = "levels/level" + i + ".txt";
+                Level level = new Level(fileName);
+                List<AnytimeResult> reported = new ArrayList<>();
+                AnytimeResult result = AnytimeSolver.solve(level, Duration.ofSeconds(30), reported::add);
+                assertTrue(result.optimal());
+                assertEquals(Solver.solve(fileName).numMoves(), result.upperBound());
+                assertEquals(result.upperBound(), result.lowerBound());
+                replay(new Level(fileName), result.solution());
+
+                assertFalse(reported.isEmpty());
+                for (int j = 1; j < reported.size(); j++) {
+                    assertTrue(reported.get(j).upperBound() <= reported.get(j - 1).upperBound());
+                    assertTrue(reported.get(j).lowerBound() >= reported.get(j - 1).lowerBound());
+                }
+                for (AnytimeResult partial : reported) {
+                    assertTrue(partial.lowerBound() <= result.upperBound());
+                    replay(new Level(fileName), partial.solution());
+                }
+            }
+        } catch (LevelException e) {
+            fail("solve failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - anytime solve without time")
+    void solveWithoutTime() {
+        try {
+            Level level = new Level("levels/level3.txt");
+            AnytimeResult result = AnytimeSolver.solve(level, Duration.ZERO);
+            assertTrue(result.lowerBound() <= Solver.solve(level).numMoves());
+            if (result.solution() != null) {
+                replay(new Level("levels/level3.txt"), result.solution());
+            }
+
+            level = new Level("levels/tests/level2.txt");
+            for (int i = 0; i < 3; i++) {
+                new MoveEngine(level).move(Direction.DOWN);
+            }
+            result = AnytimeSolver.solve(level, Duration.ZERO);
+            assertNull(result.solution());
+            assertTrue(result.optimal());
+            assertEquals(-1, result.upperBound());
+        } catch (LevelException e) {
+            fail("solveWithoutTime failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - greedy solution")
+    void greedy() {
+        try {
+            Level level = new Level("levels/tests/level2.txt");
+            StopGraph graph = new StopGraph(new MoveEngine(level));
+            List<Direction> moves = AnytimeSolver.greedy(graph, 0, 0L);
+            assertNotNull(moves);
+            replay(new Level("levels/tests/level2.txt"), new Solution(moves));
+            assertEquals(List.of(), AnytimeSolver.greedy(graph, 0, graph.getAllGems()));
+        } catch (LevelException e) {
+            fail("greedy failed");
+            e.printStackTrace();
+        }
+    }
+}
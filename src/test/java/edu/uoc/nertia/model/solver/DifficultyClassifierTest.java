@@ -0,0 +1,134 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.levels.Level;
+import edu.uoc.nertia.model.levels.LevelDifficulty;
+import edu.uoc.nertia.model.levels.MoveEngine;
+import edu.uoc.nertia.model.utils.Direction;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+@TestInstance(PER_CLASS)
+class DifficultyClassifierTest {
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - measure")
+    void measure() {
+        try {
+            DifficultyMetrics metrics = DifficultyClassifier.measure(new Level("levels/tests/level2.txt"), 1000);
+            assertEquals(4, metrics.optimalMoves());
+            assertEquals(5, metrics.mineAdjacentStops());
+            assertTrue(metrics.branchingFactor() > 1 && metrics.branchingFactor() < 2);
+            assertTrue(metrics.numStates() > 0);
+            assertFalse(metrics.limitReached());
+
+            metrics = DifficultyClassifier.measure(new Level("levels/level3.txt"), 1);
+            assertEquals(-1, metrics.optimalMoves());
+            assertTrue(metrics.limitReached());
+
+            Level level = new Level("levels/tests/level2.txt");
+            for (int i = 0; i < 3; i++) {
+                new MoveEngine(level).move(Direction.DOWN);
+            }
+            assertEquals(-1, DifficultyClassifier.measure(level, 1000).optimalMoves());
+        } catch (LevelException e) {
+            fail("measure failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - classify")
+    void classify() {
+        assertEquals(LevelDifficulty.EASY, DifficultyClassifier.classify(new DifficultyMetrics(3, 2, 0, 10, false)));
+        assertEquals(LevelDifficulty.MEDIUM,
+                DifficultyClassifier.classify(new DifficultyMetrics(10, 2, 2, 500, false)));
+        assertEquals(LevelDifficulty.HARD,
+                DifficultyClassifier.classify(new DifficultyMetrics(20, 3.5, 4, 50_000, false)));
+        assertEquals(LevelDifficulty.HARD, DifficultyClassifier.classify(new DifficultyMetrics(-1, 2, 0, 10, false)));
+        assertEquals(LevelDifficulty.HARD, DifficultyClassifier.classify(new DifficultyMetrics(-1, 2, 0, 10, true)));
+
+        try {
+            List<DifficultyReport> reports = DifficultyClassifier.classify(List.of("levels/level1.txt",
+                    "levels/level2.txt", "levels/level3.txt", "levels/tests/level2.txt"), 2, 1000);
+            assertEquals(4, reports.size());
+            assertEquals("levels/level2.txt", reports.get(1).fileName());
+            for (DifficultyReport report : reports) {
+                assertTrue(report.isClassified());
+                assertEquals(LevelDifficulty.EASY, report.declared());
+                assertEquals(DifficultyClassifier.classify(report.metrics()), report.derived());
+                assertEquals(report.declared() == report.derived(), report.matches());
+            }
+        } catch (InterruptedException e) {
+            fail("classify failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - classify wrong levels")
+    void classifyWrong() {
+        try {
+            //More gems than a StopGraph can hold.
+            Path file = Files.createTempFile("difficulty-classifier-test", ".txt");
+            try {
+                StringBuilder rows = new StringBuilder("@" + "*".repeat(11) + "\n");
+                for (int row = 1; row < 12; row++) {
+                    rows.append(row < 6 ? "*".repeat(12) : "-".repeat(12)).append("\n");
+                }
+                Files.writeString(file, "3\n12\nHARD\n" + rows);
+
+                List<DifficultyReport> reports = DifficultyClassifier.classify(List.of(file.toString(),
+                        "levels/errors/level-error-no-gems.txt", "levels/level1.txt"), 2, 1000);
+                assertEquals(3, reports.size());
+                for (DifficultyReport report : reports.subList(0, 2)) {
+                    assertFalse(report.isClassified());
+                    assertFalse(report.matches());
+                    assertNotNull(report.error());
+                    assertNull(report.metrics());
+                }
+                assertEquals(file.toString(), reports.get(0).fileName());
+                assertTrue(reports.get(2).isClassified());
+            } finally {
+                Files.delete(file);
+            }
+        } catch (IOException | InterruptedException e) {
+            fail("classifyWrong failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - rewriteHeader")
+    void rewriteHeader() {
+        try {
+            Path file = Files.createTempFile("difficulty-classifier-test", ".txt");
+            try {
+                Files.writeString(file, "//Lives\r\n3\r\n//Size\r\n3\r\n\r\nEASY\r\n@-*\r\n---\r\n---\r\n");
+                assertFalse(DifficultyClassifier.rewriteHeader(file, LevelDifficulty.EASY));
+                assertTrue(DifficultyClassifier.rewriteHeader(file, LevelDifficulty.HARD));
+                assertEquals("//Lives\r\n3\r\n//Size\r\n3\r\n\r\nHARD\r\n@-*\r\n---\r\n---\r\n", Files.readString(file));
+                assertEquals(LevelDifficulty.HARD, new Level(file.toString()).getDifficulty());
+
+                Files.writeString(file, "3\n3\n");
+                assertThrows(IOException.class, () -> DifficultyClassifier.rewriteHeader(file, LevelDifficulty.EASY));
+            } finally {
+                Files.delete(file);
+            }
+        } catch (IOException | LevelException e) {
+            fail("rewriteHeader failed");
+            e.printStackTrace();
+        }
+    }
+}
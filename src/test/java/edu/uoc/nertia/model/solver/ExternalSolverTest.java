@@ -0,0 +1,77 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.levels.Level;
+import edu.uoc.nertia.model.levels.MoveEngine;
+import edu.uoc.nertia.model.utils.Direction;
+import edu.uoc.nertia.model.utils.MoveResult;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+@TestInstance(PER_CLASS)
+class ExternalSolverTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() {
+        try {
+            directory = Files.createTempDirectory("external-solver-test");
+        } catch (IOException e) {
+            fail("setUp failed");
+            e.printStackTrace();
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        try {
+            Files.delete(directory);
+        } catch (IOException e) {
+            fail("The temporary files were not deleted");
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - same optimum as Solver")
+    void solve() {
+        List<String> levels = List.of("levels/tests/level1.txt", "levels/tests/level2.txt",
+                "levels/level1.txt", "levels/level2.txt", "levels/level3.txt");
+        //A tiny budget forces several sorted runs per layer.
+        for (long budget : new long[]{8 * 2 * 12, ExternalSolver.DEFAULT_HEAP_BUDGET}) {
+            ExternalSolver solver = new ExternalSolver(directory, budget);
+            try {
+                for (String name : levels) {
+                    Solution solution = solver.solve(new Level(name));
+                    assertEquals(Solver.solve(name).numMoves(), solution.numMoves());
+                    assertTrue(solver.getNumStates() > 0);
+
+                    Level level = new Level(name);
+                    MoveEngine engine = new MoveEngine(level);
+                    for (Direction direction : solution.moves()) {
+                        assertEquals(MoveResult.OK, engine.move(direction));
+                    }
+                    assertTrue(level.hasWon());
+                }
+            } catch (LevelException | IOException e) {
+                fail("solve failed");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Test
+    @Tag("minimum")
+    @DisplayName("Minimum - heap budget")
+    void budget() {
+        assertThrows(IllegalArgumentException.class, () -> new ExternalSolver(directory, 10));
+    }
+}
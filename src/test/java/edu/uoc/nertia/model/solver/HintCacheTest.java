@@ -0,0 +1,124 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.levels.Level;
+import edu.uoc.nertia.model.levels.MoveEngine;
+import edu.uoc.nertia.model.utils.Direction;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+@TestInstance(PER_CLASS)
+class HintCacheTest {
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - hints are cached by state")
+    void hint() {
+        try {
+            HintCache cache = new HintCache(2);
+            Level level = new Level("levels/tests/level2.txt");
+            assertEquals(Direction.RIGHT, cache.hint(level));
+            assertEquals(0, cache.getHits());
+            assertEquals(1, cache.getMisses());
+
+            Level other = new Level("levels/tests/level2.txt");
+            assertEquals(Direction.RIGHT, cache.hint(other));
+            assertEquals(1, cache.getHits());
+
+            MoveEngine engine = new MoveEngine(level);
+            engine.move(Direction.RIGHT);
+            assertEquals(Direction.DOWN, cache.hint(level));
+            engine.move(Direction.DOWN);
+            assertEquals(Direction.RIGHT, cache.hint(level));
+            assertEquals(2, cache.size());
+            assertEquals(3, cache.getMisses());
+
+            //The first state was the least recently used one.
+            assertEquals(Direction.RIGHT, cache.hint(other));
+            assertEquals(4, cache.getMisses());
+        } catch (LevelException e) {
+            fail("hint failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - hints of lost levels")
+    void hintLost() {
+        try {
+            Level level = new Level("levels/tests/level2.txt");
+            for (int i = 0; i < 3; i++) {
+                new MoveEngine(level).move(Direction.DOWN);
+            }
+            assertTrue(level.hasLost());
+            HintCache cache = new HintCache(HintCache.DEFAULT_CAPACITY);
+            assertNull(cache.hint(level));
+            assertEquals(0, cache.size());
+
+            //Dying does not change the board, so a new player is in the same state, and gets a hint.
+            Level other = new Level("levels/tests/level2.txt");
+            assertEquals(level.stateHash(), other.stateHash());
+            assertEquals(Direction.RIGHT, cache.hint(other));
+            assertNull(cache.hint(level));
+            assertEquals(0, cache.getHits());
+            assertEquals(1, cache.getMisses());
+            assertThrows(IllegalArgumentException.class, () -> new HintCache(0));
+        } catch (LevelException e) {
+            fail("hintLost failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - one cache per level")
+    void forLevel() {
+        try {
+            Level first = new Level("levels/level1.txt");
+            Level second = new Level("levels/level2.txt");
+            assertSame(HintCache.forLevel("levels/level1.txt", first),
+                    HintCache.forLevel("levels/level1.txt", new Level("levels/level1.txt")));
+            assertNotSame(HintCache.forLevel("levels/level1.txt", first),
+                    HintCache.forLevel("levels/level2.txt", second));
+        } catch (LevelException e) {
+            fail("forLevel failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - edited levels get a new cache")
+    void forEditedLevel() {
+        try {
+            Path file = Files.createTempFile("hint-cache-test", ".txt");
+            String fileName = file.toString();
+            Files.writeString(file, "3\n4\nEASY\n#-##\n@S*X\nX-*#\n####\n");
+            Level level = new Level(fileName);
+            HintCache cache = HintCache.forLevel(fileName, level);
+            assertEquals(Direction.RIGHT, cache.hint(level));
+
+            //The player and the gem swap places.
+            Files.writeString(file, "3\n4\nEASY\n#-##\n*S@X\nX-*#\n####\n");
+            Level edited = new Level(fileName);
+            HintCache editedCache = HintCache.forLevel(fileName, edited);
+            assertNotSame(cache, editedCache);
+            assertEquals(0, editedCache.size());
+            Direction hint = editedCache.hint(edited);
+            assertNotEquals(Direction.RIGHT, hint);
+            assertEquals(Solver.solve(edited.newSession()).moves().get(0), hint);
+            assertSame(editedCache, HintCache.forLevel(fileName, new Level(fileName)));
+            Files.delete(file);
+        } catch (LevelException | IOException e) {
+            fail("forEditedLevel failed");
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.levels.CanonicalForm;
+import edu.uoc.nertia.model.levels.Level;
+import edu.uoc.nertia.model.levels.LevelDifficulty;
+import org.junit.jupiter.api.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+@TestInstance(PER_CLASS)
+class LevelGeneratorTest {
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - generated levels meet the target")
+    void generate() {
+        try {
+            GeneratorTarget target = new GeneratorTarget(6, 2, 2, 4, 3, 12, null);
+            LevelGenerator generator = new LevelGenerator(target, 2);
+            List<String> levels = generator.generate(20, 42);
+            assertEquals(20, levels.size());
+            assertTrue(generator.getNumCandidates() >= 20);
+
+            Set<CanonicalForm> forms = new HashSet<>();
+            for (String text : levels) {
+                assertEquals(1, text.chars().filter(c -> c == '@').count());
+                Level level = Level.fromText(text);
+                assertEquals(6, level.getSize());
+                assertEquals(2, level.getNumLives());
+                assertTrue(level.getNumGemsInit() >= 2 && level.getNumGemsInit() <= 4);
+
+                Solution solution = Solver.solve(level);
+                assertNotNull(solution);
+                assertTrue(solution.numMoves() >= 3 && solution.numMoves() <= 12);
+                DifficultyMetrics metrics = DifficultyClassifier.measure(level, LevelGenerator.MAX_STATES);
+                assertEquals(DifficultyClassifier.classify(metrics), level.getDifficulty());
+                assertTrue(forms.add(CanonicalForm.of(level)));
+            }
+        } catch (InterruptedException | LevelException e) {
+            fail("generate failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - target difficulty")
+    void difficulty() {
+        try {
+            GeneratorTarget target = new GeneratorTarget(8, 3, 1, 5, 0, Integer.MAX_VALUE, LevelDifficulty.MEDIUM);
+            for (String text : new LevelGenerator(target, 1).generate(5, 7)) {
+                assertEquals(LevelDifficulty.MEDIUM, Level.fromText(text).getDifficulty());
+            }
+        } catch (InterruptedException | LevelException e) {
+            fail("difficulty failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - wrong targets")
+    void wrongTargets() {
+        assertThrows(IllegalArgumentException.class, () -> new GeneratorTarget(2, 3, 1, 1, 0, 10, null));
+        assertThrows(IllegalArgumentException.class, () -> new GeneratorTarget(5, 3, 0, 1, 0, 10, null));
+        assertThrows(IllegalArgumentException.class, () -> new GeneratorTarget(5, 3, 3, 2, 0, 10, null));
+        assertThrows(IllegalArgumentException.class, () -> new GeneratorTarget(5, 3, 1, 2, 11, 10, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new LevelGenerator(new GeneratorTarget(5, 3, 1, 2, 0, 10, null), 0));
+    }
+}
@@ -0,0 +1,62 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.levels.Level;
+import edu.uoc.nertia.model.levels.MoveEngine;
+import edu.uoc.nertia.model.utils.Direction;
+import edu.uoc.nertia.model.utils.MoveResult;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+@TestInstance(PER_CLASS)
+class ParallelSolverTest {
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - same optimum as Solver")
+    void solve() {
+        List<String> levels = List.of("levels/tests/level1.txt", "levels/tests/level2.txt",
+                "levels/level1.txt", "levels/level2.txt", "levels/level3.txt");
+        for (int parallelism : new int[]{1, 4}) {
+            try (ParallelSolver solver = new ParallelSolver(parallelism)) {
+                assertEquals(parallelism, solver.getParallelism());
+                for (String name : levels) {
+                    Solution solution = solver.solve(new Level(name));
+                    assertEquals(Solver.solve(name).numMoves(), solution.numMoves());
+                    assertFalse(solver.isLimitReached());
+                    assertTrue(solver.getNumStates() > 0);
+
+                    Level level = new Level(name);
+                    MoveEngine engine = new MoveEngine(level);
+                    for (Direction direction : solution.moves()) {
+                        assertEquals(MoveResult.OK, engine.move(direction));
+                    }
+                    assertTrue(level.hasWon());
+                }
+            } catch (LevelException e) {
+                fail("solve failed");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - limit of states")
+    void limit() {
+        try (ParallelSolver solver = new ParallelSolver(2)) {
+            StopGraph graph = new StopGraph(new MoveEngine(new Level("levels/level3.txt")));
+            assertNull(solver.solve(graph, 1));
+            assertTrue(solver.isLimitReached());
+            assertNotNull(solver.solve(graph, Long.MAX_VALUE));
+            assertFalse(solver.isLimitReached());
+        } catch (LevelException e) {
+            fail("limit failed");
+            e.printStackTrace();
+        }
+    }
+}
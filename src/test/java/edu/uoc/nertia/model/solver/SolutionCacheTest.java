@@ -0,0 +1,131 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.levels.Level;
+import edu.uoc.nertia.model.utils.Direction;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+@TestInstance(PER_CLASS)
+class SolutionCacheTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setUp() {
+        try {
+            directory = Files.createTempDirectory("solution-cache-test");
+        } catch (IOException e) {
+            fail("setUp failed");
+            e.printStackTrace();
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        try {
+            Files.deleteIfExists(directory.resolve(SolutionCache.INDEX_FILE));
+            Files.deleteIfExists(directory.resolve(SolutionCache.DATA_FILE));
+            Files.deleteIfExists(directory.resolve("level.txt"));
+            Files.delete(directory);
+        } catch (IOException e) {
+            fail("The temporary files were not deleted");
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - solutions survive a restart")
+    void solve() {
+        try {
+            CachedSolution solved;
+            try (SolutionCache cache = new SolutionCache(directory)) {
+                assertEquals(0, cache.size());
+                solved = cache.solve("levels/tests/level2.txt");
+                assertEquals(List.of(Direction.RIGHT, Direction.DOWN, Direction.RIGHT, Direction.UP),
+                        solved.solution().moves());
+                assertTrue(solved.numStates() > 0);
+                assertEquals(1, cache.size());
+                assertEquals(solved, cache.solve("levels/tests/level2.txt"));
+                assertEquals(1, cache.size());
+            }
+
+            try (SolutionCache cache = new SolutionCache(directory)) {
+                assertEquals(1, cache.size());
+                assertEquals(solved, cache.get(new Level("levels/tests/level2.txt").getContentHash()));
+                assertNull(cache.get(new Level("levels/tests/level1.txt").getContentHash()));
+                assertEquals(3, cache.solve("levels/tests/level1.txt").numMoves());
+                assertEquals(2, cache.size());
+            }
+        } catch (LevelException | IOException e) {
+            fail("solve failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - changed levels are solved again")
+    void changedLevel() {
+        try (SolutionCache cache = new SolutionCache(directory)) {
+            Path file = directory.resolve("level.txt");
+            Files.writeString(file, "3\n3\nEASY\n@-*\n---\n---\n");
+            assertEquals(1, cache.solve(file.toString()).numMoves());
+
+            Files.writeString(file, "3\n3\nEASY\n@--\n---\n--*\n");
+            CachedSolution changed = cache.solve(file.toString());
+            assertEquals(2, changed.numMoves());
+            assertEquals(2, cache.size());
+            assertEquals(changed, cache.solve(file.toString()));
+
+            cache.put(new Level(file.toString()).getContentHash(), new CachedSolution(null, 7));
+            assertEquals(new CachedSolution(null, 7), cache.solve(file.toString()));
+            assertEquals(-1, cache.solve(file.toString()).numMoves());
+            assertThrows(IllegalArgumentException.class, () -> cache.get(new byte[4]));
+        } catch (LevelException | IOException e) {
+            fail("changedLevel failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - many entries and superseded ones")
+    void manyEntries() {
+        try {
+            try (SolutionCache cache = new SolutionCache(directory)) {
+                for (int i = 0; i < 1000; i++) {
+                    cache.put(key(i), new CachedSolution(null, i));
+                }
+                assertEquals(new CachedSolution(null, 500), cache.get(key(500)));
+                cache.put(key(500), new CachedSolution(new Solution(List.of(Direction.UP)), 1));
+                assertEquals(1001, cache.size());
+            }
+
+            try (SolutionCache cache = new SolutionCache(directory)) {
+                assertEquals(1001, cache.size());
+                for (int i = 0; i < 1000; i++) {
+                    assertEquals(i == 500 ? 1 : -1, cache.get(key(i)).numMoves());
+                }
+                assertNull(cache.get(key(1000)));
+            }
+        } catch (IOException e) {
+            fail("manyEntries failed");
+            e.printStackTrace();
+        }
+    }
+
+    private byte[] key(int i) {
+        byte[] key = new byte[32];
+        key[0] = (byte) i;
+        key[31] = (byte) (i >> 8);
+        return key;
+    }
+}
@@ -0,0 +1,94 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.levels.Level;
+import edu.uoc.nertia.model.levels.LevelHistory;
+import edu.uoc.nertia.model.levels.LevelMirror;
+import edu.uoc.nertia.model.levels.MoveEngine;
+import edu.uoc.nertia.model.utils.Direction;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+@TestInstance(PER_CLASS)
+class SolvabilityMonitorTest {
+
+    private Solvability expected(Level level) {
+        return Solver.solve(level) != null ? Solvability.SOLVABLE : Solvability.DEAD_END;
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - same answer as Solver")
+    void moves() {
+        try {
+            Direction[] directions = Direction.values();
+            int deadEnds = 0;
+            for (int sequence = 0; sequence < 64; sequence++) {
+                Level level = new Level("levels/tests/level2.txt");
+                MoveEngine engine = new MoveEngine(level);
+                try (LevelMirror mirror = new LevelMirror(level);
+                     SolvabilityMonitor monitor = new SolvabilityMonitor(mirror, 1000)) {
+                    for (int move = 0, code = sequence; move < 3; move++, code /= 4) {
+                        engine.move(directions[code % 4]);
+                        mirror.moved(directions[code % 4]);
+                    }
+                    assertTrue(mirror.await(10_000));
+                    assertEquals(expected(level), monitor.getSolvability());
+                    deadEnds += monitor.getSolvability() == Solvability.DEAD_END ? 1 : 0;
+                }
+            }
+            assertTrue(deadEnds > 0);
+        } catch (LevelException | InterruptedException e) {
+            fail("moves failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - undo and seek leave dead ends")
+    void undoAndSeek() {
+        try {
+            Level level = new Level("levels/tests/level2.txt");
+            LevelMirror mirror = new LevelMirror(level);
+            SolvabilityMonitor monitor = new SolvabilityMonitor(mirror, 1000);
+            LevelHistory history = new LevelHistory(level, new MoveEngine(level), 2);
+            assertTrue(mirror.await(10_000));
+            assertEquals(Solvability.SOLVABLE, monitor.getSolvability());
+
+            history.move(Direction.RIGHT);
+            mirror.moved(Direction.RIGHT);
+            assertTrue(mirror.await(10_000));
+            assertEquals(expected(level), monitor.getSolvability());
+            assertTrue(history.undo());
+            mirror.undone();
+
+            for (int i = 0; i < 3; i++) {
+                history.move(Direction.DOWN);
+                mirror.moved(Direction.DOWN);
+            }
+            assertTrue(level.hasLost());
+            assertTrue(mirror.await(10_000));
+            assertEquals(Solvability.DEAD_END, monitor.getSolvability());
+            mirror.moved(Direction.LEFT);
+            assertEquals(Solvability.DEAD_END, monitor.getSolvability());
+
+            assertTrue(history.seek(0));
+            mirror.sought(0);
+            assertTrue(mirror.await(10_000));
+            assertEquals(Solvability.SOLVABLE, monitor.getSolvability());
+
+            //A closed monitor does not follow the mirror any more.
+            monitor.close();
+            mirror.moved(Direction.RIGHT);
+            assertTrue(mirror.await(10_000));
+            assertEquals(Solvability.SOLVABLE, monitor.getSolvability());
+            mirror.close();
+        } catch (LevelException | InterruptedException e) {
+            fail("undoAndSeek failed");
+            e.printStackTrace();
+        }
+    }
+}
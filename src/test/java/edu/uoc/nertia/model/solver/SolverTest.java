@@ -0,0 +1,85 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.levels.Level;
+import edu.uoc.nertia.model.levels.MoveEngine;
+import edu.uoc.nertia.model.utils.Direction;
+import edu.uoc.nertia.model.utils.MoveResult;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+@TestInstance(PER_CLASS)
+class SolverTest {
+
+    private void replay(Level level, Solution solution) {
+        MoveEngine engine = new MoveEngine(level);
+        for (Direction direction : solution.moves()) {
+            assertEquals(MoveResult.OK, engine.move(direction));
+        }
+        assertTrue(level.hasWon());
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - solve test levels")
+    void solve() {
+        try {
+            Solution solution = Solver.solve("levels/tests/level1.txt");
+            assertEquals(3, solution.numMoves());
+            replay(new Level("levels/tests/level1.txt"), solution);
+
+            solution = Solver.solve("levels/tests/level2.txt");
+            assertEquals(List.of(Direction.RIGHT, Direction.DOWN, Direction.RIGHT, Direction.UP), solution.moves());
+            replay(new Level("levels/tests/level2.txt"), solution);
+        } catch (LevelException e) {
+            fail("solve failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - solve from the current state")
+    void solveCurrentState() {
+        try {
+            Level level = new Level("levels/tests/level2.txt");
+            MoveEngine engine = new MoveEngine(level);
+            engine.move(Direction.RIGHT);
+            engine.move(Direction.DOWN);
+            engine.move(Direction.RIGHT);
+            assertEquals(List.of(Direction.UP), Solver.solve(level).moves());
+            engine.move(Direction.UP);
+            assertEquals(0, Solver.solve(level).numMoves());
+
+            level = new Level("levels/tests/level2.txt");
+            for (int i = 0; i < 3; i++) {
+                new MoveEngine(level).move(Direction.DOWN);
+            }
+            assertTrue(level.hasLost());
+            assertNull(Solver.solve(level));
+        } catch (LevelException e) {
+            fail("solveCurrentState failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - solve game levels")
+    void solveGameLevels() {
+        try {
+            for (int i = 1; i <= 3; i++) {
+                Solution solution = Solver.solve("levels/level" + i + ".txt");
+                assertNotNull(solution);
+                replay(new Level("levels/level" + i + ".txt"), solution);
+            }
+        } catch (LevelException e) {
+            fail("solveGameLevels failed");
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package edu.uoc.nertia.model.solver;
+
+import edu.uoc.nertia.model.exceptions.LevelException;
+import edu.uoc.nertia.model.levels.Level;
+import edu.uoc.nertia.model.levels.MoveEngine;
+import edu.uoc.nertia.model.utils.Direction;
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.Modifier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+@TestInstance(PER_CLASS)
+class StopGraphTest {
+
+    private StopGraph graph;
+    private final Class<StopGraph> ownClass = StopGraph.class;
+
+    @BeforeEach
+    void setUp() {
+        try {
+            graph = new StopGraph(new MoveEngine(new Level("levels/tests/level2.txt")));
+        } catch (LevelException e) {
+            fail("setUp failed");
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    @Tag("sanity")
+    @DisplayName("Sanity - Class definition")
+    void checkClassSanity() {
+        int modifiers = ownClass.getModifiers();
+        assertTrue(Modifier.isPublic(modifiers));
+        assertTrue(Modifier.isFinal(modifiers));
+        assertEquals("edu.uoc.nertia.model.solver", ownClass.getPackageName());
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - nodes + edges")
+    void edges() {
+        //#-##
+        //@S*X
+        //X-*#
+        //####
+        assertEquals(4, graph.getSize());
+        assertEquals(2, graph.getNumGems());
+        assertEquals(0b11L, graph.getAllGems());
+        assertEquals(6, graph.getGemCell(0));
+        assertEquals(10, graph.getGemCell(1));
+        assertEquals(4, graph.getCell(0));
+
+        //Blocked by a wall and killed by a mine
+        assertEquals(StopGraph.NO_NODE, graph.getTarget(0, Direction.UP));
+        assertEquals(StopGraph.NO_NODE, graph.getTarget(0, Direction.DOWN));
+
+        int stop = graph.getTarget(0, Direction.RIGHT);
+        assertEquals(5, graph.getCell(stop));
+        assertEquals(0L, graph.getGems(0, Direction.RIGHT));
+        assertEquals(StopGraph.NO_NODE, graph.getTarget(stop, Direction.RIGHT));
+
+        int below = graph.getTarget(stop, Direction.DOWN);
+        assertEquals(9, graph.getCell(below));
+        int gem = graph.getTarget(below, Direction.RIGHT);
+        assertEquals(10, graph.getCell(gem));
+        assertEquals(0b10L, graph.getGems(below, Direction.RIGHT));
+        assertEquals(0b01L, graph.getGems(gem, Direction.UP));
+    }
+}
@@ -1,5 +1,6 @@
 package edu.uoc.nertia.model.stack;
 
+import edu.uoc.nertia.model.cells.Element;
 import edu.uoc.nertia.model.exceptions.PositionException;
 import edu.uoc.nertia.model.utils.Position;
 import org.junit.jupiter.api.*;
@@ -7,6 +8,7 @@ import org.junit.platform.commons.support.ModifierSupport;
 
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
@@ -49,8 +51,8 @@ class UndoStackTest {
         //Min 3 methods
         assertTrue(ownClass.getDeclaredMethods().length>=3);
 
-        //Max 3 public methods (include pop():Object)
-        assertEquals(3,Arrays.stream(ownClass.getDeclaredMethods()).filter(p -> Modifier.isPublic(p.getModifiers())).count());
+        //Max 6 public methods (getNum and the methods that it used to inherit from Stack: push, pop, size, empty and clear)
+        assertEquals(6,Arrays.stream(ownClass.getDeclaredMethods()).filter(p -> Modifier.isPublic(p.getModifiers())).count());
         //Max 0 protected methods
         assertEquals(0,Arrays.stream(ownClass.getDeclaredMethods()).filter(p -> Modifier.isProtected(p.getModifiers())).count());
         //Max 0 package-private methods
@@ -109,4 +111,49 @@ class UndoStackTest {
         stack.pop();
         assertEquals(3,stack.getNum());
     }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - push + pop of many moves")
+    void pushPopMany() {
+        UndoStack journal = new UndoStack();
+        try {
+            for (int i = 0; i < 100; i++) {
+                List<Position> gems = i % 3 == 0 ? List.of() : List.of(new Position(0, 1));
+                List<Position> lives = i % 3 == 2 ? List.of(new Position(2, 3)) : List.of();
+                journal.push(new StackItem(new Position(i, 2), Element.STOP, lives, gems));
+            }
+            assertEquals(100, journal.size());
+
+            for (int i = 99; i >= 0; i--) {
+                StackItem item = journal.pop();
+                assertEquals(new Position(i, 2), item.originPosition());
+                assertEquals(Element.STOP, item.originElement());
+                assertEquals(i % 3 == 0 ? 0 : 1, item.collectedGems().size());
+                assertEquals(i % 3 == 2 ? 1 : 0, item.collectedLives().size());
+            }
+            assertTrue(journal.empty());
+            assertEquals(100, journal.getNum());
+        } catch (PositionException e) {
+            fail("There was a problem with UndoStack#push");
+        }
+    }
+
+    @Test
+    @Tag("advanced")
+    @DisplayName("Advanced - push(StackItem) + pop")
+    void pushStackItem() {
+        UndoStack journal = new UndoStack();
+        try {
+            journal.push(new StackItem(new Position(1,2), Element.PLAYER_STOP,
+                    List.of(new Position(3,4)), List.of(new Position(5,6), new Position(0,0))));
+            StackItem item = journal.pop();
+            assertEquals(new Position(1,2), item.originPosition());
+            assertEquals(Element.PLAYER_STOP, item.originElement());
+            assertEquals(List.of(new Position(3,4)), item.collectedLives());
+            assertEquals(List.of(new Position(5,6), new Position(0,0)), item.collectedGems());
+        } catch (PositionException e) {
+            fail("There was a problem with UndoStack#push");
+        }
+    }
 }